@@ -0,0 +1,84 @@
+package com.dailycodebuffer.benchmarks;
+
+import com.dailycodebuffer.orderservice.entity.Order;
+import com.dailycodebuffer.orderservice.external.response.PaymentResponse;
+import com.dailycodebuffer.orderservice.external.response.ProductResponse;
+import com.dailycodebuffer.orderservice.mapper.OrderMapper;
+import com.dailycodebuffer.orderservice.mapper.OrderMapperImpl;
+import com.dailycodebuffer.orderservice.model.OrderResponse;
+import com.dailycodebuffer.orderservice.model.PaymentMode;
+import org.openjdk.jmh.annotations.*;
+
+import java.time.Instant;
+import java.util.concurrent.TimeUnit;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class OrderMappingBenchmark {
+
+    private final OrderMapper orderMapper = new OrderMapperImpl();
+
+    private Order order;
+    private ProductResponse productResponse;
+    private PaymentResponse paymentResponse;
+
+    @Setup
+    public void setUp() {
+        order = Order.builder()
+                .id(1)
+                .productId(2)
+                .quantity(200)
+                .orderDate(Instant.now())
+                .orderStatus("PLACED")
+                .amount(100)
+                .build();
+        productResponse = ProductResponse.builder()
+                .productId(2)
+                .productName("iPhone")
+                .price(100)
+                .quantity(200)
+                .build();
+        paymentResponse = PaymentResponse.builder()
+                .paymentId(1)
+                .paymentDate(Instant.now())
+                .paymentMode(PaymentMode.CASH)
+                .amount(200)
+                .orderId(1)
+                .status("ACCEPTED")
+                .build();
+    }
+
+    // The builder chain OrderServiceImpl.getOrderByOrderId used before the mapper was generated.
+    @Benchmark
+    public OrderResponse builderMapping() {
+        OrderResponse.ProductDetails productDetails = OrderResponse.ProductDetails.builder()
+                .productId(productResponse.getProductId())
+                .productName(productResponse.getProductName())
+                .build();
+
+        OrderResponse.PaymentDetails paymentDetails = OrderResponse.PaymentDetails.builder()
+                .paymentId(paymentResponse.getPaymentId())
+                .paymentDate(paymentResponse.getPaymentDate())
+                .status(paymentResponse.getStatus())
+                .paymentMode(paymentResponse.getPaymentMode())
+                .build();
+
+        return OrderResponse.builder()
+                .orderStatus(order.getOrderStatus())
+                .amount(order.getAmount())
+                .orderDate(order.getOrderDate())
+                .orderId(order.getId())
+                .productDetails(productDetails)
+                .paymentDetails(paymentDetails)
+                .build();
+    }
+
+    @Benchmark
+    public OrderResponse generatedMapping() {
+        return orderMapper.toOrderResponse(order, productResponse, paymentResponse);
+    }
+}
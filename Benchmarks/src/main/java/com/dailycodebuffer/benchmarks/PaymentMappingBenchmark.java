@@ -0,0 +1,55 @@
+package com.dailycodebuffer.benchmarks;
+
+import com.dailycodebuffer.paymentservice.entity.Transaction;
+import com.dailycodebuffer.paymentservice.mapper.PaymentMapper;
+import com.dailycodebuffer.paymentservice.mapper.PaymentMapperImpl;
+import com.dailycodebuffer.paymentservice.model.PaymentMode;
+import com.dailycodebuffer.paymentservice.model.PaymentResponse;
+import org.openjdk.jmh.annotations.*;
+
+import java.time.Instant;
+import java.util.concurrent.TimeUnit;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class PaymentMappingBenchmark {
+
+    private final PaymentMapper paymentMapper = new PaymentMapperImpl();
+
+    private Transaction transaction;
+
+    @Setup
+    public void setUp() {
+        transaction = Transaction.builder()
+                .id(1)
+                .orderId(1)
+                .paymentMode(PaymentMode.CASH.name())
+                .referenceNumber("REF-1")
+                .paymentDate(Instant.now())
+                .paymentStatus("SUCCESS")
+                .amount(200)
+                .build();
+    }
+
+    // The builder chain PaymentServiceImpl.getPaymentDetailsByOrderId used before the mapper was generated.
+    @Benchmark
+    public PaymentResponse builderMapping() {
+        return PaymentResponse.builder()
+                .paymentMode(PaymentMode.valueOf(transaction.getPaymentMode()))
+                .paymentDate(transaction.getPaymentDate())
+                .orderId(transaction.getOrderId())
+                .paymentId(transaction.getId())
+                .amount(transaction.getAmount())
+                .status(transaction.getPaymentStatus())
+                .build();
+    }
+
+    @Benchmark
+    public PaymentResponse generatedMapping() {
+        return paymentMapper.toPaymentResponse(transaction);
+    }
+}
@@ -0,0 +1,46 @@
+package com.dailycodebuffer.benchmarks;
+
+import com.dailycodebuffer.productservice.entity.Product;
+import com.dailycodebuffer.productservice.mapper.ProductMapper;
+import com.dailycodebuffer.productservice.mapper.ProductMapperImpl;
+import com.dailycodebuffer.productservice.model.ProductResponse;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.springframework.beans.BeanUtils.copyProperties;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ProductMappingBenchmark {
+
+    private final ProductMapper productMapper = new ProductMapperImpl();
+
+    private Product product;
+
+    @Setup
+    public void setUp() {
+        product = Product.builder()
+                .productId(1)
+                .productName("iPhone")
+                .price(1000)
+                .quantity(10)
+                .build();
+    }
+
+    @Benchmark
+    public ProductResponse copyPropertiesMapping() {
+        ProductResponse productResponse = new ProductResponse();
+        copyProperties(product, productResponse);
+        return productResponse;
+    }
+
+    @Benchmark
+    public ProductResponse generatedMapping() {
+        return productMapper.toProductResponse(product);
+    }
+}
@@ -1,72 +1,79 @@
 package com.dailycodebuffer.orderservice;
 
 import com.dailycodebuffer.orderservice.external.decoder.CustomErrorDecoder;
+import com.dailycodebuffer.orderservice.external.intercept.AccessTokenProvider;
 import com.dailycodebuffer.orderservice.external.intercept.RestTemplateInterceptor;
-import org.springframework.beans.factory.annotation.Autowired;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.apache.http.client.HttpClient;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.cloud.client.loadbalancer.LoadBalanced;
 import org.springframework.cloud.netflix.eureka.EnableEurekaClient;
 import org.springframework.cloud.openfeign.EnableFeignClients;
 import org.springframework.context.annotation.Bean;
+import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
+import org.springframework.scheduling.annotation.EnableScheduling;
+import org.springframework.security.oauth2.client.AuthorizedClientServiceOAuth2AuthorizedClientManager;
 import org.springframework.security.oauth2.client.OAuth2AuthorizedClientManager;
 import org.springframework.security.oauth2.client.OAuth2AuthorizedClientProvider;
 import org.springframework.security.oauth2.client.OAuth2AuthorizedClientProviderBuilder;
+import org.springframework.security.oauth2.client.OAuth2AuthorizedClientService;
 import org.springframework.security.oauth2.client.registration.ClientRegistrationRepository;
-import org.springframework.security.oauth2.client.web.DefaultOAuth2AuthorizedClientManager;
-import org.springframework.security.oauth2.client.web.OAuth2AuthorizedClientRepository;
 import org.springframework.web.client.RestTemplate;
 
+import java.time.Duration;
 import java.util.Arrays;
 
 @SpringBootApplication
 @EnableEurekaClient
 @EnableFeignClients
+@EnableScheduling
 public class OrderServiceApplication {
 
-	@Autowired
-	private ClientRegistrationRepository clientRegistrationRepository;
+	@Value("${order.oauth.token.refresh-before-expiry:60s}")
+	private Duration tokenRefreshBeforeExpiry;
 
-	@Autowired
-	private OAuth2AuthorizedClientRepository oAuth2AuthorizedClientRepository;
+	@Value("${order.downstream.error-log-interval:1s}")
+	private Duration errorLogInterval;
 
 	public static void main(String[] args) {
 		SpringApplication.run(OrderServiceApplication.class, args);
 	}
 
 	@Bean
-	public CustomErrorDecoder errorDecoder() {
-		return new CustomErrorDecoder();
+	public CustomErrorDecoder errorDecoder(ObjectMapper objectMapper) {
+		return new CustomErrorDecoder(objectMapper, errorLogInterval);
 	}
 
 	@Bean
 	@LoadBalanced
-	public RestTemplate restTemplate() {
+	public RestTemplate restTemplate(AccessTokenProvider accessTokenProvider, HttpClient httpClient) {
 		RestTemplate restTemplate
-				= new RestTemplate();
+				= new RestTemplate(new HttpComponentsClientHttpRequestFactory(httpClient));
 		restTemplate.setInterceptors(
 				Arrays.asList(
-						new RestTemplateInterceptor(
-								clientManager(clientRegistrationRepository
-										,oAuth2AuthorizedClientRepository))));
+						new RestTemplateInterceptor(accessTokenProvider)));
 		return restTemplate;
 	}
 
+	// Not tied to an HTTP request, so orders placed in the background can call other services too.
+	// The clock skew makes a token count as expired once AccessTokenProvider wants to replace it.
 	@Bean
 	public OAuth2AuthorizedClientManager clientManager(
 			ClientRegistrationRepository clientRegistrationRepository,
-			OAuth2AuthorizedClientRepository oAuth2AuthorizedClientRepository
+			OAuth2AuthorizedClientService oAuth2AuthorizedClientService
 	) {
 		OAuth2AuthorizedClientProvider oAuth2AuthorizedClientProvider
 				= OAuth2AuthorizedClientProviderBuilder
 				.builder()
-				.clientCredentials()
+				.clientCredentials(clientCredentials -> clientCredentials.clockSkew(tokenRefreshBeforeExpiry))
 				.build();
 
-		DefaultOAuth2AuthorizedClientManager oAuth2AuthorizedClientManager
-				= new DefaultOAuth2AuthorizedClientManager(
+		AuthorizedClientServiceOAuth2AuthorizedClientManager oAuth2AuthorizedClientManager
+				= new AuthorizedClientServiceOAuth2AuthorizedClientManager(
 				clientRegistrationRepository,
-				oAuth2AuthorizedClientRepository);
+				oAuth2AuthorizedClientService);
 
 		oAuth2AuthorizedClientManager.setAuthorizedClientProvider(
 				oAuth2AuthorizedClientProvider
@@ -0,0 +1,36 @@
+package com.dailycodebuffer.orderservice.config;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.binder.jvm.ExecutorServiceMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+/**
+ * Runs the calls to other services that a request makes concurrently. The pool and its queue
+ * are bounded, so a slow dependency gets its calls rejected instead of piling up threads.
+ */
+@Configuration
+public class DownstreamExecutorConfig {
+
+    public static final String DOWNSTREAM_EXECUTOR = "downstreamExecutor";
+
+    @Bean(DOWNSTREAM_EXECUTOR)
+    public ThreadPoolTaskExecutor downstreamExecutor(
+            MeterRegistry meterRegistry,
+            @Value("${order.downstream.pool-size:32}") int poolSize,
+            @Value("${order.downstream.queue-capacity:64}") int queueCapacity) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setThreadNamePrefix("downstream-");
+        executor.setCorePoolSize(poolSize);
+        executor.setMaxPoolSize(poolSize);
+        executor.setQueueCapacity(queueCapacity);
+        executor.initialize();
+
+        new ExecutorServiceMetrics(executor.getThreadPoolExecutor(), DOWNSTREAM_EXECUTOR, Tags.empty())
+                .bindTo(meterRegistry);
+        return executor;
+    }
+}
@@ -0,0 +1,64 @@
+package com.dailycodebuffer.orderservice.config;
+
+import com.dailycodebuffer.orderservice.external.response.PaymentResponse;
+import com.dailycodebuffer.orderservice.external.response.ProductResponse;
+import com.dailycodebuffer.orderservice.service.Hedger;
+import com.dailycodebuffer.orderservice.service.SingleFlight;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+import java.util.concurrent.Executor;
+
+/**
+ * Lets reads of orders of a popular product, or repeated reads of one order, share their calls
+ * for product and payment details instead of each making its own, and hedges those calls when
+ * {@code order.downstream.hedging.enabled} is set.
+ */
+@Configuration
+public class DownstreamLookupConfig {
+
+    public static final String PRODUCT_LOOKUPS = "productLookups";
+    public static final String PAYMENT_LOOKUPS = "paymentLookups";
+    public static final String PRODUCT_HEDGER = "productHedger";
+    public static final String PAYMENT_HEDGER = "paymentHedger";
+
+    @Bean(PRODUCT_LOOKUPS)
+    public SingleFlight<Long, ProductResponse> productLookups(
+            MeterRegistry meterRegistry,
+            @Value("${order.downstream.lookup.product-cache-ttl:0s}") Duration cacheTtl,
+            @Value("${order.downstream.lookup.cache-maximum-size:10000}") long cacheMaximumSize) {
+        return new SingleFlight<>("PRODUCT-SERVICE", cacheTtl, cacheMaximumSize, meterRegistry);
+    }
+
+    @Bean(PAYMENT_LOOKUPS)
+    public SingleFlight<Long, PaymentResponse> paymentLookups(
+            MeterRegistry meterRegistry,
+            @Value("${order.downstream.lookup.payment-cache-ttl:0s}") Duration cacheTtl,
+            @Value("${order.downstream.lookup.cache-maximum-size:10000}") long cacheMaximumSize) {
+        return new SingleFlight<>("PAYMENT-SERVICE", cacheTtl, cacheMaximumSize, meterRegistry);
+    }
+
+    @Bean(PRODUCT_HEDGER)
+    public Hedger<ProductResponse> productHedger(
+            MeterRegistry meterRegistry,
+            @Qualifier(DownstreamExecutorConfig.DOWNSTREAM_EXECUTOR) Executor downstreamExecutor,
+            @Value("${order.downstream.hedging.enabled:false}") boolean enabled,
+            @Value("${order.downstream.hedging.percentile:0.95}") double percentile,
+            @Value("${order.downstream.hedging.budget:0.1}") double budget) {
+        return new Hedger<>("PRODUCT-SERVICE", enabled, percentile, budget, downstreamExecutor, meterRegistry);
+    }
+
+    @Bean(PAYMENT_HEDGER)
+    public Hedger<PaymentResponse> paymentHedger(
+            MeterRegistry meterRegistry,
+            @Qualifier(DownstreamExecutorConfig.DOWNSTREAM_EXECUTOR) Executor downstreamExecutor,
+            @Value("${order.downstream.hedging.enabled:false}") boolean enabled,
+            @Value("${order.downstream.hedging.percentile:0.95}") double percentile,
+            @Value("${order.downstream.hedging.budget:0.1}") double budget) {
+        return new Hedger<>("PAYMENT-SERVICE", enabled, percentile, budget, downstreamExecutor, meterRegistry);
+    }
+}
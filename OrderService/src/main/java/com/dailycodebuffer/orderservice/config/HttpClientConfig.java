@@ -0,0 +1,70 @@
+package com.dailycodebuffer.orderservice.config;
+
+import feign.Request;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.httpcomponents.PoolingHttpClientConnectionManagerMetricsBinder;
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.HttpClients;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The HTTP client that the Feign clients and the load balanced RestTemplate share, so that calls
+ * to other services reuse kept-alive connections from one bounded pool. Spring Cloud OpenFeign
+ * uses this client instead of creating its own, and {@link Request.Options} gives Feign the same
+ * timeouts, since it sets them on every request.
+ */
+@Configuration
+public class HttpClientConfig {
+
+    public static final String POOL_NAME = "downstream";
+
+    @Bean(destroyMethod = "close")
+    public PoolingHttpClientConnectionManager httpClientConnectionManager(
+            MeterRegistry meterRegistry,
+            @Value("${order.http.max-connections:200}") int maxConnections,
+            @Value("${order.http.max-connections-per-route:50}") int maxConnectionsPerRoute,
+            @Value("${order.http.time-to-live:5m}") Duration timeToLive) {
+        PoolingHttpClientConnectionManager connectionManager
+                = new PoolingHttpClientConnectionManager(timeToLive.toMillis(), TimeUnit.MILLISECONDS);
+        connectionManager.setMaxTotal(maxConnections);
+        connectionManager.setDefaultMaxPerRoute(maxConnectionsPerRoute);
+
+        new PoolingHttpClientConnectionManagerMetricsBinder(connectionManager, POOL_NAME).bindTo(meterRegistry);
+        return connectionManager;
+    }
+
+    @Bean(destroyMethod = "close")
+    public CloseableHttpClient httpClient(
+            PoolingHttpClientConnectionManager httpClientConnectionManager,
+            @Value("${order.http.connect-timeout:2s}") Duration connectTimeout,
+            @Value("${order.http.read-timeout:5s}") Duration readTimeout,
+            @Value("${order.http.connection-request-timeout:1s}") Duration connectionRequestTimeout,
+            @Value("${order.http.idle-timeout:30s}") Duration idleTimeout) {
+        return HttpClients.custom()
+                .setConnectionManager(httpClientConnectionManager)
+                .setDefaultRequestConfig(RequestConfig.custom()
+                        .setConnectTimeout((int) connectTimeout.toMillis())
+                        .setSocketTimeout((int) readTimeout.toMillis())
+                        .setConnectionRequestTimeout((int) connectionRequestTimeout.toMillis())
+                        .build())
+                .evictExpiredConnections()
+                .evictIdleConnections(idleTimeout.toMillis(), TimeUnit.MILLISECONDS)
+                .disableCookieManagement()
+                .build();
+    }
+
+    @Bean
+    public Request.Options feignRequestOptions(
+            @Value("${order.http.connect-timeout:2s}") Duration connectTimeout,
+            @Value("${order.http.read-timeout:5s}") Duration readTimeout) {
+        return new Request.Options(connectTimeout.toMillis(), TimeUnit.MILLISECONDS,
+                readTimeout.toMillis(), TimeUnit.MILLISECONDS, true);
+    }
+}
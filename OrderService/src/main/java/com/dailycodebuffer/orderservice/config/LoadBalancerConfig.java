@@ -0,0 +1,19 @@
+package com.dailycodebuffer.orderservice.config;
+
+import com.dailycodebuffer.orderservice.external.loadbalancer.LatencyAwareLoadBalancerConfig;
+import org.springframework.cloud.loadbalancer.annotation.LoadBalancerClient;
+import org.springframework.cloud.loadbalancer.annotation.LoadBalancerClients;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Spreads the calls to ProductService and PaymentService over their instances by latency and
+ * load instead of round-robin, so one slow instance does not slow down every order. Setting
+ * {@code order.load-balancer.latency-aware} to {@code false} goes back to round-robin.
+ */
+@Configuration
+@LoadBalancerClients({
+        @LoadBalancerClient(name = "PRODUCT-SERVICE", configuration = LatencyAwareLoadBalancerConfig.class),
+        @LoadBalancerClient(name = "PAYMENT-SERVICE", configuration = LatencyAwareLoadBalancerConfig.class)
+})
+public class LoadBalancerConfig {
+}
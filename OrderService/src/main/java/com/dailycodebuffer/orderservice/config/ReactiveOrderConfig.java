@@ -0,0 +1,83 @@
+package com.dailycodebuffer.orderservice.config;
+
+import com.dailycodebuffer.orderservice.external.intercept.AccessTokenProvider;
+import io.netty.channel.ChannelOption;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.cloud.client.loadbalancer.LoadBalanced;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
+import org.springframework.web.reactive.function.client.ClientRequest;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
+
+import java.time.Duration;
+
+/**
+ * What the non-blocking order reads run on, when {@code order.reactive.enabled} is set: a load
+ * balanced {@link WebClient} for calls to other services, and a scheduler for the JPA calls.
+ *
+ * <p>The WebClient pools connections like the blocking client does, with the same
+ * {@code order.http} limits and timeouts, but calls waiting for a connection hold no thread.
+ * JPA blocks, so its calls run on {@link #JDBC_SCHEDULER}, which has no more threads than the
+ * connection pool has connections; reads beyond that queue for a thread there instead of
+ * blocking a request thread while they wait for a connection. The queue is bounded, and reads
+ * that find it full are turned away with a 503 rather than piling up on the heap.
+ */
+@Configuration
+@ConditionalOnProperty(name = "order.reactive.enabled", havingValue = "true")
+public class ReactiveOrderConfig {
+
+    public static final String DOWNSTREAM_WEB_CLIENT = "downstreamWebClient";
+    public static final String JDBC_SCHEDULER = "jdbcScheduler";
+
+    @Bean
+    @LoadBalanced
+    public WebClient.Builder loadBalancedWebClientBuilder(
+            AccessTokenProvider accessTokenProvider,
+            @Value("${order.http.max-connections:200}") int maxConnections,
+            @Value("${order.reactive.max-pending-connections:10000}") int maxPendingConnections,
+            @Value("${order.http.connect-timeout:2s}") Duration connectTimeout,
+            @Value("${order.http.read-timeout:5s}") Duration readTimeout,
+            @Value("${order.http.connection-request-timeout:1s}") Duration connectionRequestTimeout,
+            @Value("${order.http.time-to-live:5m}") Duration timeToLive,
+            @Value("${order.http.idle-timeout:30s}") Duration idleTimeout) {
+        ConnectionProvider connectionProvider = ConnectionProvider.builder(HttpClientConfig.POOL_NAME)
+                .maxConnections(maxConnections)
+                .pendingAcquireMaxCount(maxPendingConnections)
+                .pendingAcquireTimeout(connectionRequestTimeout)
+                .maxLifeTime(timeToLive)
+                .maxIdleTime(idleTimeout)
+                .metrics(true)
+                .build();
+        HttpClient httpClient = HttpClient.create(connectionProvider)
+                .option(ChannelOption.CONNECT_TIMEOUT_MILLIS, (int) connectTimeout.toMillis())
+                .responseTimeout(readTimeout);
+
+        // The token is almost always cached; only a call that finds it expired waits for the refresh.
+        return WebClient.builder()
+                .clientConnector(new ReactorClientHttpConnector(httpClient))
+                .filter((request, next) -> Mono.fromCallable(() -> ClientRequest.from(request)
+                                .header(HttpHeaders.AUTHORIZATION, accessTokenProvider.authorizationHeader())
+                                .build())
+                        .flatMap(next::exchange));
+    }
+
+    @Bean(DOWNSTREAM_WEB_CLIENT)
+    public WebClient downstreamWebClient(@LoadBalanced WebClient.Builder loadBalancedWebClientBuilder) {
+        return loadBalancedWebClientBuilder.build();
+    }
+
+    @Bean(name = JDBC_SCHEDULER, destroyMethod = "dispose")
+    public Scheduler jdbcScheduler(
+            @Value("${spring.datasource.hikari.maximum-pool-size:10}") int connections,
+            @Value("${order.reactive.jdbc-queue-capacity:1000}") int queueCapacity) {
+        return Schedulers.newBoundedElastic(connections, queueCapacity, "jdbc");
+    }
+}
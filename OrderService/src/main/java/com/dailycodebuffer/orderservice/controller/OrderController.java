@@ -1,7 +1,12 @@
 package com.dailycodebuffer.orderservice.controller;
 
+import com.dailycodebuffer.orderservice.model.OrderPage;
 import com.dailycodebuffer.orderservice.model.OrderRequest;
 import com.dailycodebuffer.orderservice.model.OrderResponse;
+import com.dailycodebuffer.orderservice.model.OrderResult;
+import com.dailycodebuffer.orderservice.model.OrderSearchRequest;
+import com.dailycodebuffer.orderservice.model.OrderStatusResponse;
+import com.dailycodebuffer.orderservice.service.IdempotencyKeys;
 import com.dailycodebuffer.orderservice.service.OrderService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
@@ -9,20 +14,78 @@ import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
 
+import java.net.URI;
+import java.security.Principal;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
 @RestController
 @RequestMapping("/order")
 public class OrderController {
 
+    private static final String IDEMPOTENCY_KEY = "Idempotency-Key";
+
     @Autowired
     private OrderService orderService;
 
+    @Autowired
+    private IdempotencyKeys idempotencyKeys;
+
+    /**
+     * Places the order. A request repeated with the same {@code Idempotency-Key} returns the
+     * order placed the first time instead of placing another one.
+     */
     @PreAuthorize("hasAuthority('Customer')")
     @PostMapping
-    public ResponseEntity<Long> placeOrder(@RequestBody OrderRequest orderRequest) {
-        long orderId = orderService.placeOrder(orderRequest);
+    public ResponseEntity<Long> placeOrder(@RequestBody OrderRequest orderRequest,
+                                           @RequestHeader(value = IDEMPOTENCY_KEY, required = false) String idempotencyKey,
+                                           Principal principal) {
+        long orderId = idempotencyKey == null
+                ? orderService.placeOrder(orderRequest)
+                : idempotencyKeys.placeOnce(principal.getName(), idempotencyKey, orderRequest, orderService::placeOrder);
         return new ResponseEntity<>(orderId, HttpStatus.CREATED);
     }
 
+    /**
+     * Places many orders at once, with a single call to reserve their quantities. Every order
+     * gets a result in request order: the order placed, or the error it was rejected with.
+     */
+    @PreAuthorize("hasAuthority('Customer')")
+    @PostMapping("/batch")
+    public ResponseEntity<List<OrderResult>> placeOrders(@RequestBody List<OrderRequest> orderRequests) {
+        List<OrderResult> orderResults = orderService.placeOrders(orderRequests);
+        return new ResponseEntity<>(orderResults, HttpStatus.OK);
+    }
+
+    /**
+     * Accepts the order without waiting for it to be placed. Its final status can be polled
+     * at the returned location.
+     */
+    @PreAuthorize("hasAuthority('Customer')")
+    @PostMapping("/async")
+    public ResponseEntity<Long> acceptOrder(@RequestBody OrderRequest orderRequest,
+                                            @RequestHeader(value = IDEMPOTENCY_KEY, required = false) String idempotencyKey,
+                                            Principal principal) {
+        long orderId = idempotencyKey == null
+                ? orderService.acceptOrder(orderRequest)
+                : idempotencyKeys.placeOnce(principal.getName(), idempotencyKey, orderRequest, orderService::acceptOrder);
+        return ResponseEntity.accepted()
+                .location(URI.create("/order/" + orderId + "/status"))
+                .body(orderId);
+    }
+
+    /**
+     * Returns the status of the order, waiting up to {@code waitSeconds} for an order that is
+     * still being placed to get its final status.
+     */
+    @PreAuthorize("hasAuthority('Admin') || hasAuthority('Customer')")
+    @GetMapping("/{orderId}/status")
+    public CompletableFuture<OrderStatusResponse> getOrderStatus(@PathVariable long orderId,
+                                                                 @RequestParam(defaultValue = "0") long waitSeconds) {
+        return orderService.getOrderStatus(orderId, Duration.ofSeconds(waitSeconds));
+    }
+
     @PreAuthorize("hasAuthority('Admin') || hasAuthority('Customer')")
     @GetMapping("/{orderId}")
     public ResponseEntity<OrderResponse> getOrderByOrderId(@PathVariable long orderId) {
@@ -30,4 +93,17 @@ public class OrderController {
         return new ResponseEntity<>(orderResponse, HttpStatus.OK);
     }
 
+    /**
+     * Returns orders newest first, optionally only those of a product, with a status or placed
+     * from {@code from} up to {@code to}. The next page is requested by passing the returned
+     * {@code nextAfterOrderDate} and {@code nextAfterOrderId} as {@code afterOrderDate} and
+     * {@code afterOrderId}; they are null on the last page.
+     */
+    @PreAuthorize("hasAuthority('Admin') || hasAuthority('SCOPE_internal')")
+    @GetMapping
+    public ResponseEntity<OrderPage> getOrders(OrderSearchRequest orderSearchRequest) {
+        OrderPage orderPage = orderService.getOrders(orderSearchRequest);
+        return new ResponseEntity<>(orderPage, HttpStatus.OK);
+    }
+
 }
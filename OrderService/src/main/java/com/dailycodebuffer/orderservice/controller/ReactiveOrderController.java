@@ -0,0 +1,34 @@
+package com.dailycodebuffer.orderservice.controller;
+
+import com.dailycodebuffer.orderservice.model.OrderResponse;
+import com.dailycodebuffer.orderservice.service.ReactiveOrderService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import reactor.core.publisher.Mono;
+
+/**
+ * Non-blocking variants of the {@link OrderController} reads, served when
+ * {@code order.reactive.enabled} is set. The request thread is released as soon as the read has
+ * started, and the response is written when it completes.
+ */
+@RestController
+@RequestMapping("/order/reactive")
+@ConditionalOnProperty(name = "order.reactive.enabled", havingValue = "true")
+public class ReactiveOrderController {
+
+    @Autowired
+    private ReactiveOrderService reactiveOrderService;
+
+    @PreAuthorize("hasAuthority('Admin') || hasAuthority('Customer')")
+    @GetMapping("/{orderId}")
+    public Mono<ResponseEntity<OrderResponse>> getOrderByOrderId(@PathVariable long orderId) {
+        return reactiveOrderService.getOrderByOrderId(orderId)
+                .map(ResponseEntity::ok);
+    }
+}
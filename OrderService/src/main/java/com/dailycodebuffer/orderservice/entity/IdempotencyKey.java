@@ -0,0 +1,48 @@
+package com.dailycodebuffer.orderservice.entity;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.domain.Persistable;
+
+import javax.persistence.*;
+import java.time.Instant;
+
+@Entity
+@Table(name = "IDEMPOTENCY_KEYS", indexes = {
+        @Index(name = "IDX_IDEMPOTENCY_EXPIRES_AT", columnList = "EXPIRES_AT")
+})
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class IdempotencyKey implements Persistable<String> {
+    @Id
+    @Column(name = "IDEMPOTENCY_KEY")
+    private String key;
+
+    @Column(name = "REQUEST_FINGERPRINT")
+    private String requestFingerprint;
+
+    @Column(name = "ORDER_ID")
+    private Long orderId;
+
+    @Column(name = "EXPIRES_AT")
+    private Instant expiresAt;
+
+    // Until the order is placed, the request placing it holds the key only until then.
+    @Column(name = "CLAIMED_UNTIL")
+    private Instant claimedUntil;
+
+    @Override
+    public String getId() {
+        return key;
+    }
+
+    // A key is claimed by inserting it, so that a concurrent claim fails on the primary key.
+    @Override
+    public boolean isNew() {
+        return orderId == null;
+    }
+}
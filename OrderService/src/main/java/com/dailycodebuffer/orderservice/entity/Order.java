@@ -1,5 +1,6 @@
 package com.dailycodebuffer.orderservice.entity;
 
+import com.dailycodebuffer.orderservice.model.PaymentMode;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
@@ -9,14 +10,21 @@ import javax.persistence.*;
 import java.time.Instant;
 
 @Entity
-@Table(name = "ORDER_DETAILS")
+// Each index serves the order history with or without one of its filters, newest first.
+@Table(name = "ORDER_DETAILS", indexes = {
+        @Index(name = "IDX_ORDER_DATE", columnList = "ORDER_DATE DESC, ID DESC"),
+        @Index(name = "IDX_ORDER_PRODUCT_DATE", columnList = "PRODUCT_ID, ORDER_DATE DESC, ID DESC"),
+        @Index(name = "IDX_ORDER_STATUS_DATE", columnList = "STATUS, ORDER_DATE DESC, ID DESC")
+})
 @Data
 @AllArgsConstructor
 @NoArgsConstructor
 @Builder
 public class Order {
+    // Ids are handed out in blocks so that batches of orders do not go to the database for every row.
     @Id
-    @GeneratedValue(strategy = GenerationType.AUTO)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "order_sequence")
+    @SequenceGenerator(name = "order_sequence", sequenceName = "hibernate_sequence", allocationSize = 50)
     private long id;
 
     @Column(name = "PRODUCT_ID")
@@ -33,4 +41,12 @@ public class Order {
 
     @Column(name = "TOTAL_AMOUNT")
     private long amount;
+
+    @Column(name = "PAYMENT_MODE")
+    @Enumerated(EnumType.STRING)
+    private PaymentMode paymentMode;
+
+    // How long the instance that accepted a CREATED order has to move it on before another takes it over.
+    @Column(name = "CLAIMED_UNTIL")
+    private Instant claimedUntil;
 }
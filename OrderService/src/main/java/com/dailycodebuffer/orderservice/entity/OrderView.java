@@ -0,0 +1,58 @@
+package com.dailycodebuffer.orderservice.entity;
+
+import com.dailycodebuffer.orderservice.model.PaymentMode;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import javax.persistence.*;
+import java.time.Instant;
+
+/**
+ * An {@link com.dailycodebuffer.orderservice.model.OrderResponse} as last fetched, with the
+ * product and payment details copied in so that reading it needs no other service. Reads rebuild
+ * a view that was refreshed longer than {@code order.view.time-to-live} ago.
+ */
+@Entity
+@Table(name = "ORDER_VIEW")
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class OrderView {
+    @Id
+    @Column(name = "ORDER_ID")
+    private long orderId;
+
+    @Column(name = "ORDER_DATE")
+    private Instant orderDate;
+
+    @Column(name = "STATUS")
+    private String orderStatus;
+
+    @Column(name = "TOTAL_AMOUNT")
+    private long amount;
+
+    @Column(name = "PRODUCT_ID")
+    private Long productId;
+
+    @Column(name = "PRODUCT_NAME")
+    private String productName;
+
+    @Column(name = "PAYMENT_ID")
+    private Long paymentId;
+
+    @Column(name = "PAYMENT_STATUS")
+    private String paymentStatus;
+
+    @Column(name = "PAYMENT_MODE")
+    @Enumerated(EnumType.STRING)
+    private PaymentMode paymentMode;
+
+    @Column(name = "PAYMENT_DATE")
+    private Instant paymentDate;
+
+    @Column(name = "REFRESHED_AT")
+    private Instant refreshedAt;
+}
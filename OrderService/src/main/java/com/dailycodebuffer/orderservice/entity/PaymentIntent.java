@@ -0,0 +1,54 @@
+package com.dailycodebuffer.orderservice.entity;
+
+import com.dailycodebuffer.orderservice.model.PaymentMode;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import javax.persistence.*;
+import java.time.Instant;
+
+@Entity
+@Table(name = "PAYMENT_OUTBOX", indexes = {
+        @Index(name = "IDX_PAYMENT_OUTBOX_NEXT_ATTEMPT_AT", columnList = "NEXT_ATTEMPT_AT"),
+        @Index(name = "IDX_PAYMENT_OUTBOX_CLAIMED_BY", columnList = "CLAIMED_BY")
+})
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class PaymentIntent {
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "payment_intent_sequence")
+    @SequenceGenerator(name = "payment_intent_sequence", sequenceName = "hibernate_sequence", allocationSize = 50)
+    private long id;
+
+    @Column(name = "ORDER_ID", unique = true)
+    private long orderId;
+
+    @Column(name = "RESERVATION_ID")
+    private long reservationId;
+
+    @Column(name = "AMOUNT")
+    private long amount;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "PAYMENT_MODE")
+    private PaymentMode paymentMode;
+
+    @Column(name = "ATTEMPTS")
+    private int attempts;
+
+    @Column(name = "CREATED_AT")
+    private Instant createdAt;
+
+    @Column(name = "NEXT_ATTEMPT_AT")
+    private Instant nextAttemptAt;
+
+    @Column(name = "CLAIMED_BY")
+    private String claimedBy;
+
+    @Column(name = "CLAIMED_UNTIL")
+    private Instant claimedUntil;
+}
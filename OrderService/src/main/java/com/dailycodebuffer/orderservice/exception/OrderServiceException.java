@@ -9,8 +9,16 @@ public class OrderServiceException extends RuntimeException {
     private String errorCode;
     private int status;
 
+    // Client errors are expected and frequent, so they skip filling in a stack trace nobody reads.
     public OrderServiceException(String message, String errorCode, int status) {
-        super(message);
+        super(message, null, true, status >= 500);
+        this.errorCode = errorCode;
+        this.status = status;
+    }
+
+    // Server errors keep their cause and stack trace for whoever has to look into them.
+    public OrderServiceException(String message, String errorCode, int status, Throwable cause) {
+        super(message, cause);
         this.errorCode = errorCode;
         this.status = status;
     }
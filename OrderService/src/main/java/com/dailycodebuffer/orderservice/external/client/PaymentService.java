@@ -5,18 +5,25 @@ import com.dailycodebuffer.orderservice.external.request.PaymentRequest;
 import io.github.resilience4j.circuitbreaker.annotation.CircuitBreaker;
 import org.springframework.cloud.openfeign.FeignClient;
 import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 
+import java.util.List;
+
 @FeignClient("PAYMENT-SERVICE/payment")
 @CircuitBreaker(name = "external", fallbackMethod = "fallback")
 public interface PaymentService {
 
-    @PostMapping
-    ResponseEntity<Long> doPayment(@RequestBody PaymentRequest paymentRequest);
+    @PostMapping("/batch")
+    ResponseEntity<List<Long>> doPayments(@RequestBody List<PaymentRequest> paymentRequests);
+
+    @PutMapping("/order/{orderId}/refund")
+    ResponseEntity<Void> refundPayment(@PathVariable("orderId") long orderId);
 
     default ResponseEntity<Void> fallback(Exception e) {
-        throw new OrderServiceException("Payment service is offline!", "PAYMENT_SERVICE_OFFLINE", 500);
+        throw new OrderServiceException("Payment service is offline!", "PAYMENT_SERVICE_OFFLINE", 500, e);
     }
 
 }
@@ -1,13 +1,24 @@
 package com.dailycodebuffer.orderservice.external.client;
 
 import com.dailycodebuffer.orderservice.exception.OrderServiceException;
+import com.dailycodebuffer.orderservice.external.request.ReduceQuantityRequest;
+import com.dailycodebuffer.orderservice.external.request.ReservationRequest;
+import com.dailycodebuffer.orderservice.external.response.ProductResponse;
+import com.dailycodebuffer.orderservice.external.response.ReservationResponse;
+import com.dailycodebuffer.orderservice.external.response.ReservationResult;
 import io.github.resilience4j.circuitbreaker.annotation.CircuitBreaker;
 import org.springframework.cloud.openfeign.FeignClient;
 import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
+import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestParam;
 
+import java.util.Collection;
+import java.util.List;
+
 @FeignClient("PRODUCT-SERVICE/product")
 @CircuitBreaker(name = "external", fallbackMethod = "fallback")
 public interface ProductService {
@@ -15,8 +26,30 @@ public interface ProductService {
     @PutMapping("/reduceQuantity/{id}")
     ResponseEntity<Void> reduceQuantity(@PathVariable("id") long productId, @RequestParam long quantity);
 
+    @PutMapping("/reduceQuantity")
+    ResponseEntity<Void> reduceQuantities(@RequestBody List<ReduceQuantityRequest> reduceQuantityRequests);
+
+    @PostMapping("/reservations")
+    ResponseEntity<ReservationResponse> reserve(@RequestBody ReservationRequest reservationRequest);
+
+    @PostMapping("/reservations/batch")
+    ResponseEntity<List<ReservationResult>> reserveAll(@RequestBody List<ReservationRequest> reservationRequests);
+
+    @PutMapping("/reservations/{id}/confirm")
+    ResponseEntity<Void> confirmReservation(@PathVariable("id") long reservationId);
+
+    @PutMapping("/reservations/{id}/release")
+    ResponseEntity<Void> releaseReservation(@PathVariable("id") long reservationId);
+
+    @GetMapping
+    ResponseEntity<List<ProductResponse>> getProductsByIds(@RequestParam("ids") Collection<Long> productIds);
+
+    // Errors ProductService answered with, such as an expired reservation, are passed on as they are.
     default ResponseEntity<Void> fallback(Exception e) {
-        throw new OrderServiceException("Product service is offline!", "PRODUCT_SERVICE_OFFLINE", 500);
+        if (e instanceof OrderServiceException && ((OrderServiceException) e).getStatus() < 500) {
+            throw (OrderServiceException) e;
+        }
+        throw new OrderServiceException("Product service is offline!", "PRODUCT_SERVICE_OFFLINE", 500, e);
     }
 
 }
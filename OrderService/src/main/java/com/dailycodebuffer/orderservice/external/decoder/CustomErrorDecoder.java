@@ -4,28 +4,61 @@ package com.dailycodebuffer.orderservice.external.decoder;
 import com.dailycodebuffer.orderservice.exception.OrderServiceException;
 import com.dailycodebuffer.orderservice.external.response.ErrorResponse;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
 import feign.Response;
 import feign.codec.ErrorDecoder;
 import lombok.extern.log4j.Log4j2;
 
 import java.io.IOException;
+import java.io.InputStream;
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
 
-
+/**
+ * Turns error responses of other services into {@link OrderServiceException}s carrying their
+ * error code and status.
+ *
+ * <p>When a service is down every call ends up here, so errors are logged at most once per
+ * {@code logInterval}, together with the number of errors left out since the last one logged.
+ */
 @Log4j2
 public class CustomErrorDecoder implements ErrorDecoder {
 
-    @Override
-    public Exception decode(String s, Response response) {
-        log.info("::{}", response.request().url());
-        log.info("::{}", response.request().headers());
+    private final ObjectReader errorResponseReader;
+    private final long logIntervalNanos;
+    private final AtomicLong nextLogAt = new AtomicLong(System.nanoTime());
+    private final LongAdder notLogged = new LongAdder();
+
+    public CustomErrorDecoder(ObjectMapper objectMapper, Duration logInterval) {
+        this.errorResponseReader = objectMapper.readerFor(ErrorResponse.class);
+        this.logIntervalNanos = logInterval.toNanos();
+    }
 
-        ObjectMapper objectMapper = new ObjectMapper();
+    @Override
+    public Exception decode(String methodKey, Response response) {
+        OrderServiceException exception = toException(response);
+        long now = System.nanoTime();
+        long logAt = nextLogAt.get();
+        if (now - logAt >= 0 && nextLogAt.compareAndSet(logAt, now + logIntervalNanos)) {
+            log.warn("{} failed with status {}: {} {} ({} more errors since the last one logged)",
+                    methodKey, response.status(), exception.getErrorCode(), exception.getMessage(),
+                    notLogged.sumThenReset());
+        } else {
+            notLogged.increment();
+        }
+        return exception;
+    }
 
-        try {
-            ErrorResponse errorResponse = objectMapper.readValue(response.body().asInputStream(), ErrorResponse.class);
+    private OrderServiceException toException(Response response) {
+        if (response.body() == null) {
+            return new OrderServiceException("Internal server error!", "INTERNAL_SERVER_ERROR", 500, null);
+        }
+        try (InputStream body = response.body().asInputStream()) {
+            ErrorResponse errorResponse = errorResponseReader.readValue(body);
             return new OrderServiceException(errorResponse.getErrorMessage(), errorResponse.getErrorCode(), response.status());
         } catch (IOException e) {
-            throw new OrderServiceException("Internal server error!", "INTERNAL_SERVER_ERROR", 500);
+            return new OrderServiceException("Internal server error!", "INTERNAL_SERVER_ERROR", 500, e);
         }
     }
 }
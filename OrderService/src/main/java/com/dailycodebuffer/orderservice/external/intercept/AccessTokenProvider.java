@@ -0,0 +1,149 @@
+package com.dailycodebuffer.orderservice.external.intercept;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.security.oauth2.client.OAuth2AuthorizeRequest;
+import org.springframework.security.oauth2.client.OAuth2AuthorizedClient;
+import org.springframework.security.oauth2.client.OAuth2AuthorizedClientManager;
+import org.springframework.security.oauth2.core.OAuth2AccessToken;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Holds the {@code Authorization} header that calls to other services are made with, so that the
+ * interceptors read a field instead of authorizing the internal client on every request.
+ *
+ * <p>The token is replaced in the background once it is within {@code refresh-before-expiry} of
+ * expiring, which is also the clock skew the client manager is built with, so the manager fetches
+ * a new token then rather than handing back the cached one. Only one refresh runs at a time;
+ * requests that find the token expired wait for that refresh instead of starting their own.
+ */
+@Component
+@Log4j2
+public class AccessTokenProvider {
+
+    static final String CLIENT_REGISTRATION_ID = "internal-client";
+
+    // A token this close to expiring is not sent, since it could expire on the way.
+    private static final Duration EXPIRY_SKEW = Duration.ofSeconds(5);
+
+    private static final OAuth2AuthorizeRequest AUTHORIZE_REQUEST = OAuth2AuthorizeRequest
+            .withClientRegistrationId(CLIENT_REGISTRATION_ID)
+            .principal("internal")
+            .build();
+
+    @Autowired
+    private OAuth2AuthorizedClientManager oAuth2AuthorizedClientManager;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${order.oauth.token.refresh-before-expiry:60s}")
+    private Duration refreshBeforeExpiry;
+
+    private final AtomicReference<CompletableFuture<Token>> refreshing = new AtomicReference<>();
+
+    private volatile Token token;
+
+    private Timer refreshTimer;
+    private Counter refreshFailures;
+
+    @PostConstruct
+    public void init() {
+        refreshTimer = Timer.builder("order.oauth.token.refresh").register(meterRegistry);
+        refreshFailures = meterRegistry.counter("order.oauth.token.refresh.failures");
+    }
+
+    /**
+     * @return the {@code Authorization} header value for calls to other services
+     */
+    public String authorizationHeader() {
+        Token current = token;
+        if (current != null && System.currentTimeMillis() < current.usableUntil) {
+            return current.header;
+        }
+        try {
+            return refresh().join().header;
+        } catch (CompletionException e) {
+            throw e.getCause() instanceof RuntimeException ? (RuntimeException) e.getCause() : e;
+        }
+    }
+
+    // A failed refresh keeps the current token, which stays usable until it expires.
+    @Scheduled(fixedDelayString = "${order.oauth.token.refresh-check-interval-ms:5000}")
+    public void refreshAhead() {
+        Token current = token;
+        if (current != null && System.currentTimeMillis() < current.refreshAt) {
+            return;
+        }
+        try {
+            refresh().join();
+        } catch (CompletionException e) {
+            log.warn("Failed to refresh access token of {}, retrying on next check", CLIENT_REGISTRATION_ID, e.getCause());
+        }
+    }
+
+    private CompletableFuture<Token> refresh() {
+        CompletableFuture<Token> refresh = new CompletableFuture<>();
+        CompletableFuture<Token> running = refreshing.compareAndExchange(null, refresh);
+        if (running != null) {
+            return running;
+        }
+
+        try {
+            Token current = token;
+            if (current != null && System.currentTimeMillis() < current.refreshAt) {
+                // Another refresh finished between the caller's check and this one.
+                refresh.complete(current);
+            } else {
+                token = refreshTimer.record(this::fetch);
+                refresh.complete(token);
+            }
+        } catch (RuntimeException e) {
+            refreshFailures.increment();
+            refresh.completeExceptionally(e);
+        } finally {
+            refreshing.set(null);
+        }
+        return refresh;
+    }
+
+    private Token fetch() {
+        OAuth2AuthorizedClient authorizedClient = oAuth2AuthorizedClientManager.authorize(AUTHORIZE_REQUEST);
+        if (authorizedClient == null) {
+            throw new IllegalStateException("Client " + CLIENT_REGISTRATION_ID + " could not be authorized");
+        }
+        OAuth2AccessToken accessToken = authorizedClient.getAccessToken();
+        Instant expiresAt = accessToken.getExpiresAt() == null ? Instant.MAX : accessToken.getExpiresAt();
+        log.info("Fetched access token of {} expiring at {}", CLIENT_REGISTRATION_ID, expiresAt);
+        return new Token("Bearer " + accessToken.getTokenValue(),
+                millisBefore(expiresAt, refreshBeforeExpiry), millisBefore(expiresAt, EXPIRY_SKEW));
+    }
+
+    private static long millisBefore(Instant instant, Duration duration) {
+        return instant.equals(Instant.MAX) ? Long.MAX_VALUE : instant.minus(duration).toEpochMilli();
+    }
+
+    private static class Token {
+        private final String header;
+        private final long refreshAt;
+        private final long usableUntil;
+
+        private Token(String header, long refreshAt, long usableUntil) {
+            this.header = header;
+            this.refreshAt = refreshAt;
+            this.usableUntil = usableUntil;
+        }
+    }
+}
@@ -5,32 +5,23 @@ import org.springframework.http.HttpRequest;
 import org.springframework.http.client.ClientHttpRequestExecution;
 import org.springframework.http.client.ClientHttpRequestInterceptor;
 import org.springframework.http.client.ClientHttpResponse;
-import org.springframework.security.oauth2.client.OAuth2AuthorizeRequest;
-import org.springframework.security.oauth2.client.OAuth2AuthorizedClientManager;
 
 import java.io.IOException;
 
 @Configuration
 public class RestTemplateInterceptor implements ClientHttpRequestInterceptor {
 
-    private OAuth2AuthorizedClientManager oAuth2AuthorizedClientManager;
+    private AccessTokenProvider accessTokenProvider;
 
     public RestTemplateInterceptor(
-            OAuth2AuthorizedClientManager oAuth2AuthorizedClientManager) {
-        this.oAuth2AuthorizedClientManager
-                = oAuth2AuthorizedClientManager;
+            AccessTokenProvider accessTokenProvider) {
+        this.accessTokenProvider
+                = accessTokenProvider;
     }
 
     @Override
     public ClientHttpResponse intercept(HttpRequest request, byte[] body, ClientHttpRequestExecution execution) throws IOException {
-        request.getHeaders().add("Authorization","Bearer "
-                + oAuth2AuthorizedClientManager
-                .authorize(OAuth2AuthorizeRequest
-                        .withClientRegistrationId("internal-client")
-                        .principal("internal")
-                        .build())
-                .getAccessToken()
-                .getTokenValue());
+        request.getHeaders().add("Authorization", accessTokenProvider.authorizationHeader());
 
         return execution.execute(request, body);
     }
@@ -0,0 +1,222 @@
+package com.dailycodebuffer.orderservice.external.loadbalancer;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.client.loadbalancer.CompletionContext;
+import org.springframework.cloud.client.loadbalancer.DefaultResponse;
+import org.springframework.cloud.client.loadbalancer.EmptyResponse;
+import org.springframework.cloud.client.loadbalancer.LoadBalancerLifecycle;
+import org.springframework.cloud.client.loadbalancer.Request;
+import org.springframework.cloud.client.loadbalancer.RequestData;
+import org.springframework.cloud.client.loadbalancer.RequestDataContext;
+import org.springframework.cloud.client.loadbalancer.Response;
+import org.springframework.cloud.client.loadbalancer.ResponseData;
+import org.springframework.cloud.client.loadbalancer.TimedRequestContext;
+import org.springframework.cloud.loadbalancer.core.NoopServiceInstanceListSupplier;
+import org.springframework.cloud.loadbalancer.core.ReactorServiceInstanceLoadBalancer;
+import org.springframework.cloud.loadbalancer.core.SelectedInstanceCallback;
+import org.springframework.cloud.loadbalancer.core.ServiceInstanceListSupplier;
+import org.springframework.http.client.ClientHttpResponse;
+import reactor.core.publisher.Mono;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+/**
+ * Picks the less loaded of two randomly chosen instances of a service, instead of taking them in
+ * turn. The load of an instance is its latency times the requests it is already serving, so an
+ * instance that turns slow, e.g. in a long GC pause, gets fewer requests until it answers quickly
+ * again.
+ *
+ * <p>Latency is a moving average that jumps to every response slower than it and then decays
+ * over {@code decayTime}, also while the instance gets no requests, so a slow instance is tried
+ * again after a while. Failed calls count as at least {@code failurePenalty}, so an instance that
+ * fails fast does not attract requests.
+ *
+ * <p>The balancer learns about calls as their {@link LoadBalancerLifecycle}, which Feign clients,
+ * {@code @LoadBalanced} RestTemplates and WebClients notify. A call sent with a
+ * {@value #HEDGE_ID_HEADER} header while an earlier call with the same id is in flight is a hedge,
+ * and goes to another instance than that call.
+ */
+public class LatencyAwareLoadBalancer implements ReactorServiceInstanceLoadBalancer,
+        LoadBalancerLifecycle<Object, Object, ServiceInstance> {
+
+    public static final String HEDGE_ID_HEADER = "X-Hedge-Id";
+
+    private final ObjectProvider<ServiceInstanceListSupplier> serviceInstanceListSupplierProvider;
+    private final double decayNanos;
+    private final long failurePenaltyNanos;
+    private final Map<String, InstanceLoad> loads = new ConcurrentHashMap<>();
+    private final Map<String, String> hedgedInstances = new ConcurrentHashMap<>();
+
+    public LatencyAwareLoadBalancer(ObjectProvider<ServiceInstanceListSupplier> serviceInstanceListSupplierProvider,
+                                    Duration decayTime, Duration failurePenalty) {
+        this.serviceInstanceListSupplierProvider = serviceInstanceListSupplierProvider;
+        this.decayNanos = decayTime.toNanos();
+        this.failurePenaltyNanos = failurePenalty.toNanos();
+    }
+
+    @Override
+    public Mono<Response<ServiceInstance>> choose(Request request) {
+        ServiceInstanceListSupplier supplier = serviceInstanceListSupplierProvider
+                .getIfAvailable(NoopServiceInstanceListSupplier::new);
+        String hedgeId = hedgeId(request);
+        return supplier.get(request).next().map(serviceInstances -> {
+            Response<ServiceInstance> response = choose(serviceInstances, hedgeId);
+            if (supplier instanceof SelectedInstanceCallback && response.hasServer()) {
+                ((SelectedInstanceCallback) supplier).selectedServiceInstance(response.getServer());
+            }
+            return response;
+        });
+    }
+
+    private Response<ServiceInstance> choose(List<ServiceInstance> serviceInstances, String hedgeId) {
+        if (hedgeId == null) {
+            return choose(serviceInstances);
+        }
+        String hedged = hedgedInstances.get(hedgeId);
+        if (hedged == null) {
+            Response<ServiceInstance> response = choose(serviceInstances);
+            if (response.hasServer()) {
+                hedgedInstances.put(hedgeId, key(response.getServer()));
+            }
+            return response;
+        }
+        List<ServiceInstance> others = serviceInstances.stream()
+                .filter(serviceInstance -> !hedged.equals(key(serviceInstance)))
+                .collect(Collectors.toList());
+        return choose(others.isEmpty() ? serviceInstances : others);
+    }
+
+    Response<ServiceInstance> choose(List<ServiceInstance> serviceInstances) {
+        if (serviceInstances.isEmpty()) {
+            return new EmptyResponse();
+        }
+        if (serviceInstances.size() == 1) {
+            return new DefaultResponse(serviceInstances.get(0));
+        }
+
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int first = random.nextInt(serviceInstances.size());
+        int second = random.nextInt(serviceInstances.size() - 1);
+        if (second >= first) {
+            second++;
+        }
+        ServiceInstance a = serviceInstances.get(first);
+        ServiceInstance b = serviceInstances.get(second);
+        long now = System.nanoTime();
+        return new DefaultResponse(load(b).cost(now) < load(a).cost(now) ? b : a);
+    }
+
+    @Override
+    public void onStart(Request<Object> request) {
+    }
+
+    @Override
+    public void onStartRequest(Request<Object> request, Response<ServiceInstance> lbResponse) {
+        if (request.getContext() instanceof TimedRequestContext) {
+            ((TimedRequestContext) request.getContext()).setRequestStartTime(System.nanoTime());
+        }
+        if (lbResponse.hasServer()) {
+            load(lbResponse.getServer()).inFlight.incrementAndGet();
+        }
+    }
+
+    @Override
+    public void onComplete(CompletionContext<Object, ServiceInstance, Object> completionContext) {
+        Response<ServiceInstance> lbResponse = completionContext.getLoadBalancerResponse();
+        if (completionContext.status() == CompletionContext.Status.DISCARD || lbResponse == null
+                || !lbResponse.hasServer()) {
+            return;
+        }
+        InstanceLoad load = load(lbResponse.getServer());
+        load.inFlight.decrementAndGet();
+        String hedgeId = hedgeId(completionContext.getLoadBalancerRequest());
+        if (hedgeId != null) {
+            hedgedInstances.remove(hedgeId, key(lbResponse.getServer()));
+        }
+
+        Object context = completionContext.getLoadBalancerRequest().getContext();
+        if (context instanceof TimedRequestContext && ((TimedRequestContext) context).getRequestStartTime() != 0) {
+            long now = System.nanoTime();
+            long latency = now - ((TimedRequestContext) context).getRequestStartTime();
+            if (failed(completionContext)) {
+                latency = Math.max(latency, failurePenaltyNanos);
+            }
+            load.observe(latency, now);
+        }
+    }
+
+    private InstanceLoad load(ServiceInstance serviceInstance) {
+        return loads.computeIfAbsent(key(serviceInstance), instance -> new InstanceLoad());
+    }
+
+    private static String key(ServiceInstance serviceInstance) {
+        return serviceInstance.getHost() + ":" + serviceInstance.getPort();
+    }
+
+    private static String hedgeId(Request<?> request) {
+        if (request == null || !(request.getContext() instanceof RequestDataContext)) {
+            return null;
+        }
+        RequestData requestData = ((RequestDataContext) request.getContext()).getClientRequest();
+        return requestData == null || requestData.getHeaders() == null
+                ? null
+                : requestData.getHeaders().getFirst(HEDGE_ID_HEADER);
+    }
+
+    // Server errors are failures of the instance, client errors are not.
+    private static boolean failed(CompletionContext<Object, ServiceInstance, Object> completionContext) {
+        if (completionContext.status() == CompletionContext.Status.FAILED) {
+            return true;
+        }
+        Object clientResponse = completionContext.getClientResponse();
+        if (clientResponse instanceof ResponseData) {
+            ResponseData responseData = (ResponseData) clientResponse;
+            return responseData.getHttpStatus() != null && responseData.getHttpStatus().is5xxServerError();
+        }
+        if (clientResponse instanceof ClientHttpResponse) {
+            try {
+                return ((ClientHttpResponse) clientResponse).getRawStatusCode() >= 500;
+            } catch (IOException e) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private class InstanceLoad {
+
+        private final AtomicInteger inFlight = new AtomicInteger();
+        private double latency;
+        private long observedAt = System.nanoTime();
+        private boolean measured;
+
+        synchronized void observe(long latencyNanos, long now) {
+            update(latencyNanos, now);
+            measured = true;
+        }
+
+        synchronized double cost(long now) {
+            int requests = inFlight.get();
+            // An instance is tried once before it gets more requests than it has answered.
+            if (!measured) {
+                return requests == 0 ? 0 : Double.MAX_VALUE / 2 + requests;
+            }
+            update(0, now);
+            return latency * (requests + 1);
+        }
+
+        private void update(long latencyNanos, long now) {
+            double weight = Math.exp(-Math.max(0, now - observedAt) / decayNanos);
+            observedAt = now;
+            latency = latencyNanos > latency ? latencyNanos : latency * weight + latencyNanos * (1 - weight);
+        }
+    }
+}
@@ -0,0 +1,34 @@
+package com.dailycodebuffer.orderservice.external.loadbalancer;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.convert.DurationStyle;
+import org.springframework.cloud.loadbalancer.core.ServiceInstanceListSupplier;
+import org.springframework.cloud.loadbalancer.support.LoadBalancerClientFactory;
+import org.springframework.context.annotation.Bean;
+import org.springframework.core.env.Environment;
+
+import java.time.Duration;
+
+/**
+ * Load balancer configuration of a single service. It is not a {@code @Configuration}, since it
+ * belongs in the load balancer context of that service and not in the application context.
+ */
+public class LatencyAwareLoadBalancerConfig {
+
+    @Bean
+    @ConditionalOnProperty(name = "order.load-balancer.latency-aware", havingValue = "true", matchIfMissing = true)
+    public LatencyAwareLoadBalancer latencyAwareLoadBalancer(
+            Environment environment,
+            LoadBalancerClientFactory loadBalancerClientFactory) {
+        String serviceId = environment.getProperty(LoadBalancerClientFactory.PROPERTY_NAME);
+        return new LatencyAwareLoadBalancer(
+                loadBalancerClientFactory.getLazyProvider(serviceId, ServiceInstanceListSupplier.class),
+                duration(environment, "order.load-balancer.decay-time", "10s"),
+                duration(environment, "order.load-balancer.failure-penalty", "1s"));
+    }
+
+    // This context does not convert "10s" to a Duration, as the application context does.
+    private static Duration duration(Environment environment, String name, String defaultValue) {
+        return DurationStyle.detectAndParse(environment.getProperty(name, defaultValue));
+    }
+}
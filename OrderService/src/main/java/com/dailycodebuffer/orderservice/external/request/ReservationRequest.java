@@ -0,0 +1,16 @@
+package com.dailycodebuffer.orderservice.external.request;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class ReservationRequest {
+    private long productId;
+    private long quantity;
+    private Long ttlSeconds;
+}
@@ -0,0 +1,15 @@
+package com.dailycodebuffer.orderservice.external.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class ReservationResult {
+    private ReservationResponse reservation;
+    private ErrorResponse error;
+}
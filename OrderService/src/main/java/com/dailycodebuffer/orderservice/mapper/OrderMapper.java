@@ -0,0 +1,78 @@
+package com.dailycodebuffer.orderservice.mapper;
+
+import com.dailycodebuffer.orderservice.entity.Order;
+import com.dailycodebuffer.orderservice.entity.OrderView;
+import com.dailycodebuffer.orderservice.entity.PaymentIntent;
+import com.dailycodebuffer.orderservice.external.request.PaymentRequest;
+import com.dailycodebuffer.orderservice.external.response.PaymentResponse;
+import com.dailycodebuffer.orderservice.external.response.ProductResponse;
+import com.dailycodebuffer.orderservice.model.OrderRequest;
+import com.dailycodebuffer.orderservice.model.OrderResponse;
+import com.dailycodebuffer.orderservice.model.PaymentMode;
+import org.mapstruct.Mapper;
+import org.mapstruct.Mapping;
+
+import java.time.Instant;
+
+@Mapper(componentModel = "spring", imports = Instant.class)
+public interface OrderMapper {
+
+    @Mapping(target = "id", ignore = true)
+    @Mapping(target = "amount", source = "totalAmount")
+    @Mapping(target = "orderStatus", constant = "CREATED")
+    @Mapping(target = "orderDate", expression = "java(Instant.now())")
+    @Mapping(target = "claimedUntil", ignore = true)
+    Order toOrder(OrderRequest orderRequest);
+
+    @Mapping(target = "id", ignore = true)
+    @Mapping(target = "orderId", source = "order.id")
+    @Mapping(target = "amount", source = "order.amount")
+    @Mapping(target = "reservationId", source = "reservationId")
+    @Mapping(target = "paymentMode", source = "paymentMode")
+    @Mapping(target = "attempts", ignore = true)
+    @Mapping(target = "createdAt", expression = "java(Instant.now())")
+    @Mapping(target = "nextAttemptAt", expression = "java(Instant.now())")
+    @Mapping(target = "claimedBy", ignore = true)
+    @Mapping(target = "claimedUntil", ignore = true)
+    PaymentIntent toPaymentIntent(Order order, long reservationId, PaymentMode paymentMode);
+
+    @Mapping(target = "referenceNumber", ignore = true)
+    PaymentRequest toPaymentRequest(PaymentIntent paymentIntent);
+
+    @Mapping(target = "orderId", source = "order.id")
+    @Mapping(target = "orderDate", source = "order.orderDate")
+    @Mapping(target = "orderStatus", source = "order.orderStatus")
+    @Mapping(target = "amount", source = "order.amount")
+    @Mapping(target = "productDetails", source = "productResponse")
+    @Mapping(target = "paymentDetails", source = "paymentResponse")
+    @Mapping(target = "downstreamErrors", ignore = true)
+    OrderResponse toOrderResponse(Order order, ProductResponse productResponse, PaymentResponse paymentResponse);
+
+    @Mapping(target = "productId", source = "productDetails.productId")
+    @Mapping(target = "productName", source = "productDetails.productName")
+    @Mapping(target = "paymentId", source = "paymentDetails.paymentId")
+    @Mapping(target = "paymentStatus", source = "paymentDetails.status")
+    @Mapping(target = "paymentMode", source = "paymentDetails.paymentMode")
+    @Mapping(target = "paymentDate", source = "paymentDetails.paymentDate")
+    @Mapping(target = "refreshedAt", expression = "java(Instant.now())")
+    OrderView toOrderView(OrderResponse orderResponse);
+
+    @Mapping(target = "productDetails", source = "orderView", conditionExpression = "java(orderView.getProductId() != null)")
+    @Mapping(target = "paymentDetails", source = "orderView", conditionExpression = "java(orderView.getPaymentId() != null)")
+    @Mapping(target = "downstreamErrors", ignore = true)
+    OrderResponse toOrderResponse(OrderView orderView);
+
+    @Mapping(target = "productId", source = "productId")
+    @Mapping(target = "productName", source = "productName")
+    OrderResponse.ProductDetails toProductDetails(OrderView orderView);
+
+    @Mapping(target = "paymentId", source = "paymentId")
+    @Mapping(target = "status", source = "paymentStatus")
+    @Mapping(target = "paymentMode", source = "paymentMode")
+    @Mapping(target = "paymentDate", source = "paymentDate")
+    OrderResponse.PaymentDetails toPaymentDetails(OrderView orderView);
+
+    OrderResponse.ProductDetails toProductDetails(ProductResponse productResponse);
+
+    OrderResponse.PaymentDetails toPaymentDetails(PaymentResponse paymentResponse);
+}
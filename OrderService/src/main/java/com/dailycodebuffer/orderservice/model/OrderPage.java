@@ -0,0 +1,19 @@
+package com.dailycodebuffer.orderservice.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+import java.util.List;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class OrderPage {
+    private List<OrderSummary> orders;
+    private Instant nextAfterOrderDate;
+    private Long nextAfterOrderId;
+}
@@ -1,11 +1,13 @@
 package com.dailycodebuffer.orderservice.model;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 
 import java.time.Instant;
+import java.util.List;
 
 @Data
 @AllArgsConstructor
@@ -19,6 +21,10 @@ public class OrderResponse {
     private ProductDetails productDetails;
     private PaymentDetails paymentDetails;
 
+    // Details that could not be fetched are left null and explained here.
+    @JsonInclude(JsonInclude.Include.NON_EMPTY)
+    private List<DownstreamError> downstreamErrors;
+
     @Data
     @AllArgsConstructor
     @NoArgsConstructor
@@ -38,4 +44,14 @@ public class OrderResponse {
         private PaymentMode paymentMode;
         private Instant paymentDate;
     }
+
+    @Data
+    @AllArgsConstructor
+    @NoArgsConstructor
+    @Builder
+    public static class DownstreamError {
+        private String service;
+        private String errorCode;
+        private String errorMessage;
+    }
 }
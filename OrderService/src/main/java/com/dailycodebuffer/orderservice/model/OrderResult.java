@@ -0,0 +1,23 @@
+package com.dailycodebuffer.orderservice.model;
+
+import com.dailycodebuffer.orderservice.external.response.ErrorResponse;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Outcome of one order of a batch: the id and status of the order placed, or the error it was
+ * rejected with.
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class OrderResult {
+    private Long orderId;
+    private String orderStatus;
+    private ErrorResponse error;
+}
@@ -0,0 +1,22 @@
+package com.dailycodebuffer.orderservice.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class OrderSearchRequest {
+    private Long productId;
+    private String status;
+    private Instant from;
+    private Instant to;
+    private Instant afterOrderDate;
+    private Long afterOrderId;
+    private Integer size;
+}
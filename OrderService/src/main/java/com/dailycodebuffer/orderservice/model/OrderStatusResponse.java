@@ -0,0 +1,15 @@
+package com.dailycodebuffer.orderservice.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class OrderStatusResponse {
+    private long orderId;
+    private String orderStatus;
+}
@@ -0,0 +1,21 @@
+package com.dailycodebuffer.orderservice.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class OrderSummary {
+    private long orderId;
+    private long productId;
+    private long quantity;
+    private Instant orderDate;
+    private String orderStatus;
+    private long amount;
+}
@@ -0,0 +1,42 @@
+package com.dailycodebuffer.orderservice.repository;
+
+import com.dailycodebuffer.orderservice.entity.IdempotencyKey;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+
+@Repository
+public interface IdempotencyKeyRepository extends JpaRepository<IdempotencyKey, String> {
+
+    // Deleting through the entity would be skipped while it has no order, see IdempotencyKey#isNew.
+    @Transactional
+    @Modifying
+    @Query("delete from IdempotencyKey k where k.key = :key")
+    int release(@Param("key") String key);
+
+    // A key whose request went away without placing the order or releasing it can be claimed again.
+    @Transactional
+    @Modifying
+    @Query("update IdempotencyKey k set k.claimedUntil = :claimedUntil where k.key = :key "
+            + "and k.orderId is null and (k.claimedUntil is null or k.claimedUntil < :now)")
+    int takeOver(@Param("key") String key, @Param("claimedUntil") Instant claimedUntil, @Param("now") Instant now);
+
+    /**
+     * @return 1 if the order was recorded, 0 if another request took the key over in the meantime
+     */
+    @Transactional
+    @Modifying
+    @Query("update IdempotencyKey k set k.orderId = :orderId, k.claimedUntil = null "
+            + "where k.key = :key and k.orderId is null and k.claimedUntil = :claimedUntil")
+    int complete(@Param("key") String key, @Param("orderId") long orderId, @Param("claimedUntil") Instant claimedUntil);
+
+    @Transactional
+    @Modifying
+    @Query("delete from IdempotencyKey k where k.expiresAt < :now")
+    int deleteExpired(@Param("now") Instant now);
+}
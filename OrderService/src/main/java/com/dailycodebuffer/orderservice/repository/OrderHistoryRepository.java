@@ -0,0 +1,23 @@
+package com.dailycodebuffer.orderservice.repository;
+
+import com.dailycodebuffer.orderservice.model.OrderSummary;
+
+import java.time.Instant;
+import java.util.List;
+
+public interface OrderHistoryRepository {
+
+    /**
+     * Returns orders newest first, by order date and then id, seeking past
+     * {@code afterOrderDate} and {@code afterOrderId} instead of using an OFFSET, so every page
+     * costs the same however deep it is. Null filters are left out of the query, so that it can
+     * use the index of the filters that are given; {@code to} is exclusive.
+     */
+    List<OrderSummary> findHistory(Long productId,
+                                   String status,
+                                   Instant from,
+                                   Instant to,
+                                   Instant afterOrderDate,
+                                   Long afterOrderId,
+                                   int limit);
+}
@@ -0,0 +1,68 @@
+package com.dailycodebuffer.orderservice.repository;
+
+import com.dailycodebuffer.orderservice.model.OrderSummary;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import javax.persistence.TypedQuery;
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// Orders are read straight into OrderSummary, so none of them is loaded into the persistence context.
+class OrderHistoryRepositoryImpl implements OrderHistoryRepository {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public List<OrderSummary> findHistory(Long productId,
+                                          String status,
+                                          Instant from,
+                                          Instant to,
+                                          Instant afterOrderDate,
+                                          Long afterOrderId,
+                                          int limit) {
+        StringBuilder jpql = new StringBuilder("select new com.dailycodebuffer.orderservice.model.OrderSummary("
+                + "o.id, o.productId, o.quantity, o.orderDate, o.orderStatus, o.amount) from Order o where 1 = 1");
+        Map<String, Object> parameters = new HashMap<>();
+        if (productId != null) {
+            jpql.append(" and o.productId = :productId");
+            parameters.put("productId", productId);
+        }
+        if (status != null) {
+            jpql.append(" and o.orderStatus = :status");
+            parameters.put("status", status);
+        }
+        if (from != null) {
+            jpql.append(" and o.orderDate >= :from");
+            parameters.put("from", from);
+        }
+        if (to != null) {
+            jpql.append(" and o.orderDate < :to");
+            parameters.put("to", to);
+        }
+        if (afterOrderDate != null) {
+            // The first condition alone is a range the index can seek to.
+            jpql.append(" and o.orderDate <= :afterOrderDate"
+                    + " and (o.orderDate < :afterOrderDate or o.id < :afterOrderId)");
+            parameters.put("afterOrderDate", afterOrderDate);
+            parameters.put("afterOrderId", afterOrderId);
+        }
+
+        // Leading with the column filtered on lets the database read its index in order, rather
+        // than sorting every match.
+        jpql.append(" order by ");
+        if (productId != null) {
+            jpql.append("o.productId, ");
+        } else if (status != null) {
+            jpql.append("o.orderStatus, ");
+        }
+        jpql.append("o.orderDate desc, o.id desc");
+
+        TypedQuery<OrderSummary> query = entityManager.createQuery(jpql.toString(), OrderSummary.class);
+        parameters.forEach(query::setParameter);
+        return query.setMaxResults(limit).getResultList();
+    }
+}
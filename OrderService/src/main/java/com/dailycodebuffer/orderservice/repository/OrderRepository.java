@@ -1,9 +1,35 @@
 package com.dailycodebuffer.orderservice.repository;
 
 import com.dailycodebuffer.orderservice.entity.Order;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+import java.util.List;
 
 @Repository
-public interface OrderRepository extends JpaRepository<Order, Long> {
+public interface OrderRepository extends JpaRepository<Order, Long>, OrderHistoryRepository {
+
+    @Query("select o.id from Order o where o.orderStatus = 'CREATED' and o.claimedUntil < :now order by o.id")
+    List<Long> findStranded(@Param("now") Instant now, Pageable pageable);
+
+    // An order another instance took over in the meantime is left out, so each is placed by one instance at a time.
+    @Transactional
+    @Modifying
+    @Query("update Order o set o.claimedUntil = :claimedUntil "
+            + "where o.id = :id and o.orderStatus = 'CREATED' and o.claimedUntil < :now")
+    int claim(@Param("id") long id, @Param("claimedUntil") Instant claimedUntil, @Param("now") Instant now);
+
+    /**
+     * @return 1 if the status was changed, 0 if the order is not in {@code from}
+     */
+    @Transactional
+    @Modifying
+    @Query("update Order o set o.orderStatus = :to where o.id = :id and o.orderStatus = :from")
+    int updateStatus(@Param("id") long id, @Param("from") String from, @Param("to") String to);
 }
@@ -0,0 +1,9 @@
+package com.dailycodebuffer.orderservice.repository;
+
+import com.dailycodebuffer.orderservice.entity.OrderView;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface OrderViewRepository extends JpaRepository<OrderView, Long> {
+}
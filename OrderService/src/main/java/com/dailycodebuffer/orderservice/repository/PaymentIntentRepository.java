@@ -0,0 +1,35 @@
+package com.dailycodebuffer.orderservice.repository;
+
+import com.dailycodebuffer.orderservice.entity.PaymentIntent;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface PaymentIntentRepository extends JpaRepository<PaymentIntent, Long> {
+
+    @Query("select i.id from PaymentIntent i where i.nextAttemptAt <= :now "
+            + "and (i.claimedUntil is null or i.claimedUntil < :now) order by i.id")
+    List<Long> findDue(@Param("now") Instant now, Pageable pageable);
+
+    // Intents another relay claimed in the meantime are left out, so each is sent by one relay at a time.
+    @Transactional
+    @Modifying
+    @Query("update PaymentIntent i set i.claimedBy = :claimedBy, i.claimedUntil = :claimedUntil "
+            + "where i.id in :ids and (i.claimedUntil is null or i.claimedUntil < :now)")
+    int claim(@Param("ids") Collection<Long> ids, @Param("claimedBy") String claimedBy,
+              @Param("claimedUntil") Instant claimedUntil, @Param("now") Instant now);
+
+    List<PaymentIntent> findByClaimedByOrderById(String claimedBy);
+
+    Optional<PaymentIntent> findFirstByOrderByIdAsc();
+}
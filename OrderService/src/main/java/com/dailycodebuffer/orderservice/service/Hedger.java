@@ -0,0 +1,152 @@
+package com.dailycodebuffer.orderservice.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+import java.util.Arrays;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * Hedges idempotent reads of another service: when a call has not answered within the
+ * {@code percentile} of the latency of recent calls, a second call is made and whichever answers
+ * first is used. A slow instance then costs a read little more than the usual latency of the
+ * service, instead of deciding its response time.
+ *
+ * <p>Hedges are limited by a budget: every call adds {@code budget} of a hedge to it, up to
+ * {@value #MAX_BUDGET} hedges, so hedges add at most that share of calls. Until
+ * {@value #MIN_SAMPLES} calls have answered there is no latency to hedge after, and nothing is
+ * hedged.
+ *
+ * <p>Both calls get the same hedge id to send with them, with which the load balancer sends the
+ * hedge to another instance than the first call. Hedges are started on {@code executor}, the one
+ * the calls themselves run on, so they are bounded by it like any other call. Hedges are counted in
+ * {@code order.downstream.hedges} by whether they were {@code fired}, {@code won} the race, or
+ * were not fired because the budget was {@code exhausted} or the executor {@code rejected} them,
+ * and {@code order.downstream.hedge.delay} is how long calls currently wait before they are hedged.
+ */
+public class Hedger<V> {
+
+    static final int MIN_SAMPLES = 20;
+    static final int MAX_BUDGET = 10;
+
+    private static final int WINDOW = 1000;
+    private static final long MILLI_HEDGES = 1000;
+
+    private final boolean enabled;
+    private final double percentile;
+    private final long budgetPerCall;
+    private final Executor executor;
+
+    private final long[] latencies = new long[WINDOW];
+    private long samples;
+    private volatile long delayNanos = -1;
+
+    private final AtomicLong budget = new AtomicLong();
+    private final AtomicLong hedgeIds = new AtomicLong();
+
+    private final Counter fired;
+    private final Counter won;
+    private final Counter exhausted;
+    private final Counter rejected;
+
+    public Hedger(String service, boolean enabled, double percentile, double budget, Executor executor,
+                  MeterRegistry meterRegistry) {
+        this.enabled = enabled;
+        this.percentile = percentile;
+        this.budgetPerCall = Math.round(budget * MILLI_HEDGES);
+        this.executor = executor;
+        this.fired = meterRegistry.counter("order.downstream.hedges", "service", service, "result", "fired");
+        this.won = meterRegistry.counter("order.downstream.hedges", "service", service, "result", "won");
+        this.exhausted = meterRegistry.counter("order.downstream.hedges", "service", service, "result", "exhausted");
+        this.rejected = meterRegistry.counter("order.downstream.hedges", "service", service, "result", "rejected");
+        Gauge.builder("order.downstream.hedge.delay", this, hedger -> Math.max(0, hedger.delayNanos) / 1e6)
+                .tag("service", service)
+                .baseUnit("milliseconds")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Starts a call with {@code call}, and a second one if the first is slow. {@code call} gets the
+     * hedge id to send, or {@code null} when hedging is disabled.
+     *
+     * @return the result of the call that answers first, or the failure of the last one to fail
+     */
+    public CompletableFuture<V> call(Function<String, CompletableFuture<V>> call) {
+        if (!enabled) {
+            return call.apply(null);
+        }
+        budget.getAndUpdate(available -> Math.min(available + budgetPerCall, MAX_BUDGET * MILLI_HEDGES));
+
+        String hedgeId = Long.toString(hedgeIds.incrementAndGet());
+        CompletableFuture<V> result = new CompletableFuture<>();
+        AtomicInteger pending = new AtomicInteger(1);
+        start(call, hedgeId, result, pending, false);
+
+        long delay = delayNanos;
+        if (delay >= 0 && !result.isDone()) {
+            CompletableFuture.delayedExecutor(delay, TimeUnit.NANOSECONDS, this::execute).execute(() -> {
+                if (result.isDone()) {
+                    return;
+                }
+                if (budget.getAndUpdate(available -> available >= MILLI_HEDGES ? available - MILLI_HEDGES : available)
+                        < MILLI_HEDGES) {
+                    exhausted.increment();
+                    return;
+                }
+                fired.increment();
+                pending.incrementAndGet();
+                start(call, hedgeId, result, pending, true);
+            });
+        }
+        return result;
+    }
+
+    // The JDK delayer thread only hands the hedge over; a hedge the executor has no room for is dropped.
+    private void execute(Runnable hedge) {
+        try {
+            executor.execute(hedge);
+        } catch (RejectedExecutionException e) {
+            rejected.increment();
+        }
+    }
+
+    private void start(Function<String, CompletableFuture<V>> call, String hedgeId, CompletableFuture<V> result,
+                       AtomicInteger pending, boolean hedge) {
+        long startedAt = System.nanoTime();
+        CompletableFuture<V> attempt;
+        try {
+            attempt = call.apply(hedgeId);
+        } catch (RuntimeException e) {
+            attempt = CompletableFuture.failedFuture(e);
+        }
+        attempt.whenComplete((value, e) -> {
+            if (e == null) {
+                record(System.nanoTime() - startedAt);
+                if (result.complete(value) && hedge) {
+                    won.increment();
+                }
+            } else if (pending.decrementAndGet() == 0) {
+                result.completeExceptionally(e instanceof CompletionException && e.getCause() != null ? e.getCause() : e);
+            }
+        });
+    }
+
+    // The delay is worked out again every tenth of the window, so it follows the latency of the service.
+    private synchronized void record(long latencyNanos) {
+        latencies[(int) (samples % WINDOW)] = latencyNanos;
+        samples++;
+        if (samples == MIN_SAMPLES || samples % (WINDOW / 10) == 0) {
+            long[] recent = Arrays.copyOf(latencies, (int) Math.min(samples, WINDOW));
+            Arrays.sort(recent);
+            delayNanos = recent[(int) Math.min(recent.length - 1, Math.floor(recent.length * percentile))];
+        }
+    }
+}
@@ -0,0 +1,196 @@
+package com.dailycodebuffer.orderservice.service;
+
+import com.dailycodebuffer.orderservice.entity.IdempotencyKey;
+import com.dailycodebuffer.orderservice.exception.OrderServiceException;
+import com.dailycodebuffer.orderservice.model.OrderRequest;
+import com.dailycodebuffer.orderservice.repository.IdempotencyKeyRepository;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.LongSupplier;
+import java.util.function.ToLongFunction;
+
+/**
+ * Remembers the order placed for each {@code Idempotency-Key}, so that a client repeating a
+ * request gets the order the first one placed instead of a second one.
+ *
+ * <p>Keys are looked up in a bounded in-memory index first, where a repeat arriving while the
+ * first request is still being placed waits up to {@code order.idempotency.claim-timeout} for
+ * its result. IDEMPOTENCY_KEYS behind it catches repeats that reach another instance or come
+ * after a restart, and its rows are deleted once their time to live has passed. A request that fails releases its key, so it can be retried.
+ * A request that stops without releasing it, e.g. because its instance crashed, holds the key
+ * for {@code order.idempotency.claim-timeout}, after which a repeat takes it over.
+ */
+@Component
+@Log4j2
+public class IdempotencyKeys {
+
+    private static final int MAX_KEY_LENGTH = 128;
+
+    @Autowired
+    private IdempotencyKeyRepository idempotencyKeyRepository;
+
+    @Value("${order.idempotency.time-to-live:24h}")
+    private Duration timeToLive;
+
+    @Value("${order.idempotency.local.maximum-size:100000}")
+    private long maximumSize;
+
+    @Value("${order.idempotency.claim-timeout:1m}")
+    private Duration claimTimeout;
+
+    private Cache<String, Placement> placements;
+
+    @PostConstruct
+    public void init() {
+        placements = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(timeToLive)
+                .build();
+    }
+
+    /**
+     * Places the order unless {@code clientId} already did so with the same key.
+     *
+     * @return the id of the order placed with this key
+     */
+    public long placeOnce(String clientId, String idempotencyKey, OrderRequest orderRequest,
+                          ToLongFunction<OrderRequest> placeOrder) {
+        if (idempotencyKey.isBlank() || idempotencyKey.length() > MAX_KEY_LENGTH) {
+            throw new OrderServiceException("Idempotency key must have 1 to " + MAX_KEY_LENGTH + " characters!",
+                    "INVALID_IDEMPOTENCY_KEY", 400);
+        }
+        String key = clientId + ":" + idempotencyKey;
+        String fingerprint = fingerprint(orderRequest);
+
+        Placement placement = new Placement(fingerprint);
+        Placement first = placements.asMap().putIfAbsent(key, placement);
+        if (first != null) {
+            log.info("Repeated request with idempotency key:{}", key);
+            return first.await(fingerprint, claimTimeout);
+        }
+
+        try {
+            long orderId = claimAndPlace(key, fingerprint, () -> placeOrder.applyAsLong(orderRequest));
+            placement.orderId.complete(orderId);
+            return orderId;
+        } catch (RuntimeException e) {
+            placements.asMap().remove(key, placement);
+            placement.orderId.completeExceptionally(e);
+            throw e;
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${order.idempotency.cleanup-interval-ms:600000}")
+    public void deleteExpired() {
+        int deleted = idempotencyKeyRepository.deleteExpired(Instant.now());
+        if (deleted > 0) {
+            log.info("Deleted {} expired idempotency keys", deleted);
+        }
+    }
+
+    private long claimAndPlace(String key, String fingerprint, LongSupplier placeOrder) {
+        Instant now = Instant.now();
+        // Truncated so that the value read back from the column compares equal when the order is recorded.
+        Instant claimedUntil = now.plus(claimTimeout).truncatedTo(ChronoUnit.MILLIS);
+        Optional<IdempotencyKey> stored = idempotencyKeyRepository.findById(key);
+        if (stored.isPresent()) {
+            checkFingerprint(stored.get().getRequestFingerprint(), fingerprint);
+            if (stored.get().getOrderId() != null || idempotencyKeyRepository.takeOver(key, claimedUntil, now) == 0) {
+                return replay(idempotencyKeyRepository.findById(key).orElse(stored.get()), fingerprint);
+            }
+            log.warn("Taking over idempotency key:{} left unfinished by another request", key);
+        } else {
+            try {
+                idempotencyKeyRepository.saveAndFlush(IdempotencyKey.builder()
+                        .key(key)
+                        .requestFingerprint(fingerprint)
+                        .expiresAt(now.plus(timeToLive))
+                        .claimedUntil(claimedUntil)
+                        .build());
+            } catch (DataIntegrityViolationException e) {
+                // Another instance claimed the key since it was looked up.
+                return replay(idempotencyKeyRepository.findById(key).orElseThrow(() -> e), fingerprint);
+            }
+        }
+
+        long orderId;
+        try {
+            orderId = placeOrder.getAsLong();
+        } catch (RuntimeException e) {
+            idempotencyKeyRepository.release(key);
+            throw e;
+        }
+        if (idempotencyKeyRepository.complete(key, orderId, claimedUntil) == 0) {
+            log.error("Idempotency key:{} was taken over while order id:{} was placed, raise order.idempotency.claim-timeout",
+                    key, orderId);
+        }
+        return orderId;
+    }
+
+    private static long replay(IdempotencyKey idempotencyKey, String fingerprint) {
+        checkFingerprint(idempotencyKey.getRequestFingerprint(), fingerprint);
+        if (idempotencyKey.getOrderId() == null) {
+            throw inProgress();
+        }
+        return idempotencyKey.getOrderId();
+    }
+
+    private static OrderServiceException inProgress() {
+        return new OrderServiceException("Order with the same idempotency key is still being placed!",
+                "IDEMPOTENCY_KEY_IN_PROGRESS", 409);
+    }
+
+    private static void checkFingerprint(String expected, String actual) {
+        if (!expected.equals(actual)) {
+            throw new OrderServiceException("Idempotency key was used for a different order!",
+                    "IDEMPOTENCY_KEY_REUSED", 422);
+        }
+    }
+
+    private static String fingerprint(OrderRequest orderRequest) {
+        return orderRequest.getProductId() + ":" + orderRequest.getQuantity() + ":"
+                + orderRequest.getTotalAmount() + ":" + orderRequest.getPaymentMode();
+    }
+
+    private static class Placement {
+
+        private final String fingerprint;
+        private final CompletableFuture<Long> orderId = new CompletableFuture<>();
+
+        Placement(String fingerprint) {
+            this.fingerprint = fingerprint;
+        }
+
+        // Waits no longer than the first request holds the key, and answers like a repeat that finds it claimed.
+        long await(String fingerprint, Duration timeout) {
+            checkFingerprint(this.fingerprint, fingerprint);
+            try {
+                return orderId.get(timeout.toMillis(), TimeUnit.MILLISECONDS);
+            } catch (ExecutionException e) {
+                throw e.getCause() instanceof RuntimeException
+                        ? (RuntimeException) e.getCause() : new IllegalStateException(e.getCause());
+            } catch (TimeoutException e) {
+                throw inProgress();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw inProgress();
+            }
+        }
+    }
+}
@@ -0,0 +1,126 @@
+package com.dailycodebuffer.orderservice.service;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.binder.jvm.ExecutorServiceMetrics;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.time.Duration;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * The stages orders accepted with {@link OrderService#acceptOrder} go through: reserving the
+ * quantity, then writing the payment intent or recording the failed reservation. Each stage has
+ * its own threads, and the payment itself is taken by the {@link PaymentOutboxRelay}, which
+ * {@link #placement completes} the order once it knows the outcome.
+ *
+ * <p>At most {@code order.placement.pipeline.capacity} orders are in the pipeline at once, from
+ * being accepted until their payment is relayed. Every stage queue can hold that many, so handing
+ * an order to the next stage never blocks or fails; when the pipeline is full new orders are
+ * turned away instead.
+ */
+@Component
+public class OrderPlacementPipeline {
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${order.placement.pipeline.capacity:256}")
+    private int capacity;
+
+    @Value("${order.placement.pipeline.inventory-threads:8}")
+    private int inventoryThreads;
+
+    @Value("${order.placement.pipeline.completion-threads:4}")
+    private int completionThreads;
+
+    @Value("${order.placement.pipeline.max-placement-time:10m}")
+    private Duration maxPlacementTime;
+
+    private final Map<Long, CompletableFuture<String>> placements = new ConcurrentHashMap<>();
+
+    private Semaphore admission;
+    private ThreadPoolExecutor inventoryStage;
+    private ThreadPoolExecutor completionStage;
+
+    @PostConstruct
+    public void start() {
+        admission = new Semaphore(capacity);
+        inventoryStage = stage("inventory", inventoryThreads);
+        completionStage = stage("completion", completionThreads);
+        Gauge.builder("order.placement.pipeline.in.flight", placements, Map::size)
+                .register(meterRegistry);
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        for (ThreadPoolExecutor stage : new ThreadPoolExecutor[]{inventoryStage, completionStage}) {
+            stage.shutdown();
+            stage.awaitTermination(10, TimeUnit.SECONDS);
+        }
+    }
+
+    /**
+     * @return {@code true} if the order may enter the pipeline; it must then either be
+     * {@link #track tracked} or {@link #cancel cancelled}
+     */
+    public boolean tryAdmit() {
+        return admission.tryAcquire();
+    }
+
+    public void cancel() {
+        admission.release();
+    }
+
+    /**
+     * Makes the final status of an admitted order available to {@link #placement} until it is
+     * known, and frees its place in the pipeline after that. An order whose payment another
+     * instance relays is never completed here, so it gives up its place after
+     * {@code max-placement-time}.
+     */
+    public void track(long orderId, CompletableFuture<String> placement) {
+        placements.put(orderId, placement);
+        placement.orTimeout(maxPlacementTime.toMillis(), TimeUnit.MILLISECONDS).whenComplete((status, e) -> {
+            placements.remove(orderId);
+            admission.release();
+        });
+    }
+
+    /**
+     * @return the final status of an order still in the pipeline of this instance
+     */
+    public Optional<CompletableFuture<String>> placement(long orderId) {
+        return Optional.ofNullable(placements.get(orderId));
+    }
+
+    public Executor inventoryStage() {
+        return inventoryStage;
+    }
+
+    public Executor completionStage() {
+        return completionStage;
+    }
+
+    private ThreadPoolExecutor stage(String name, int threads) {
+        AtomicInteger count = new AtomicInteger();
+        ThreadPoolExecutor stage = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(capacity),
+                runnable -> new Thread(runnable, "order-" + name + "-" + count.incrementAndGet()));
+        new ExecutorServiceMetrics(stage, "order.placement." + name, Tags.empty()).bindTo(meterRegistry);
+        return stage;
+    }
+}
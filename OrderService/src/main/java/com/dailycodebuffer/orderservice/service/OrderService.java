@@ -1,10 +1,26 @@
 package com.dailycodebuffer.orderservice.service;
 
+import com.dailycodebuffer.orderservice.model.OrderPage;
 import com.dailycodebuffer.orderservice.model.OrderRequest;
 import com.dailycodebuffer.orderservice.model.OrderResponse;
+import com.dailycodebuffer.orderservice.model.OrderResult;
+import com.dailycodebuffer.orderservice.model.OrderSearchRequest;
+import com.dailycodebuffer.orderservice.model.OrderStatusResponse;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 public interface OrderService {
     long placeOrder(OrderRequest orderRequest);
 
+    List<OrderResult> placeOrders(List<OrderRequest> orderRequests);
+
+    long acceptOrder(OrderRequest orderRequest);
+
+    CompletableFuture<OrderStatusResponse> getOrderStatus(long orderId, Duration wait);
+
     OrderResponse getOrderByOrderId(long orderId);
+
+    OrderPage getOrders(OrderSearchRequest orderSearchRequest);
 }
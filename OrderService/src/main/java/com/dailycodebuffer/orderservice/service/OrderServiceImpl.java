@@ -1,111 +1,543 @@
 package com.dailycodebuffer.orderservice.service;
 
+import com.dailycodebuffer.orderservice.config.DownstreamExecutorConfig;
+import com.dailycodebuffer.orderservice.config.DownstreamLookupConfig;
 import com.dailycodebuffer.orderservice.entity.Order;
+import com.dailycodebuffer.orderservice.entity.OrderView;
+import com.dailycodebuffer.orderservice.entity.PaymentIntent;
 import com.dailycodebuffer.orderservice.exception.OrderServiceException;
-import com.dailycodebuffer.orderservice.external.client.PaymentService;
 import com.dailycodebuffer.orderservice.external.client.ProductService;
-import com.dailycodebuffer.orderservice.external.request.PaymentRequest;
+import com.dailycodebuffer.orderservice.external.loadbalancer.LatencyAwareLoadBalancer;
+import com.dailycodebuffer.orderservice.external.request.ReservationRequest;
+import com.dailycodebuffer.orderservice.external.response.ErrorResponse;
 import com.dailycodebuffer.orderservice.external.response.PaymentResponse;
 import com.dailycodebuffer.orderservice.external.response.ProductResponse;
+import com.dailycodebuffer.orderservice.external.response.ReservationResult;
+import com.dailycodebuffer.orderservice.mapper.OrderMapper;
+import com.dailycodebuffer.orderservice.model.OrderPage;
 import com.dailycodebuffer.orderservice.model.OrderRequest;
 import com.dailycodebuffer.orderservice.model.OrderResponse;
+import com.dailycodebuffer.orderservice.model.OrderResult;
+import com.dailycodebuffer.orderservice.model.OrderSearchRequest;
+import com.dailycodebuffer.orderservice.model.OrderStatusResponse;
+import com.dailycodebuffer.orderservice.model.OrderSummary;
+import com.dailycodebuffer.orderservice.model.PaymentMode;
 import com.dailycodebuffer.orderservice.repository.OrderRepository;
+import com.dailycodebuffer.orderservice.repository.OrderViewRepository;
+import com.dailycodebuffer.orderservice.repository.PaymentIntentRepository;
 import lombok.extern.log4j.Log4j2;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.http.RequestEntity;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.client.HttpStatusCodeException;
 import org.springframework.web.client.RestTemplate;
 
+import java.net.URI;
+import java.time.Duration;
 import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
 
 @Service
 @Log4j2
 public class OrderServiceImpl implements OrderService {
 
+    static final Set<String> IN_PROGRESS = Set.of("CREATED", "PAYMENT_PENDING");
+
+    static final int DEFAULT_PAGE_SIZE = 20;
+    static final int MAX_PAGE_SIZE = 100;
+
     @Autowired
     private OrderRepository orderRepository;
 
     @Autowired
-    private ProductService productService;
+    private OrderViewRepository orderViewRepository;
+
+    @Autowired
+    private PaymentIntentRepository paymentIntentRepository;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
 
     @Autowired
-    private PaymentService paymentService;
+    private ProductService productService;
 
     @Autowired
     private RestTemplate restTemplate;
 
+    @Autowired
+    private OrderMapper orderMapper;
+
+    @Autowired
+    @Qualifier(DownstreamExecutorConfig.DOWNSTREAM_EXECUTOR)
+    private Executor downstreamExecutor;
+
+    @Autowired
+    @Qualifier(DownstreamLookupConfig.PRODUCT_LOOKUPS)
+    private SingleFlight<Long, ProductResponse> productLookups;
+
+    @Autowired
+    @Qualifier(DownstreamLookupConfig.PAYMENT_LOOKUPS)
+    private SingleFlight<Long, PaymentResponse> paymentLookups;
+
+    @Autowired
+    @Qualifier(DownstreamLookupConfig.PRODUCT_HEDGER)
+    private Hedger<ProductResponse> productHedger;
+
+    @Autowired
+    @Qualifier(DownstreamLookupConfig.PAYMENT_HEDGER)
+    private Hedger<PaymentResponse> paymentHedger;
+
+    @Value("${order.downstream.product-timeout:2s}")
+    private Duration productTimeout;
+
+    @Value("${order.downstream.payment-timeout:2s}")
+    private Duration paymentTimeout;
+
+    @Autowired
+    private OrderPlacementPipeline orderPlacementPipeline;
+
+    @Value("${order.placement.max-status-wait:30s}")
+    private Duration maxStatusWait;
+
+    @Value("${order.batch.max-size:500}")
+    private int maxBatchSize;
+
+    @Value("${order.view.time-to-live:10m}")
+    private Duration viewTimeToLive;
+
+    @Value("${order.reservation.ttl:30m}")
+    private Duration reservationTtl;
+
+    @Value("${order.placement.claim-timeout:5m}")
+    private Duration placementClaimTimeout;
+
+    @Value("${order.placement.resume-batch-size:100}")
+    private int resumeBatchSize;
+
+    /**
+     * Reserves the quantity and saves the order as PAYMENT_PENDING. The payment is taken by the
+     * {@link PaymentOutboxRelay}, which moves the order on to PLACED or PAYMENT_FAILED.
+     */
     @Override
     public long placeOrder(OrderRequest orderRequest) {
-        log.info("Checking product quantity with id:{}", orderRequest.getProductId());
-        productService.reduceQuantity(orderRequest.getProductId(), orderRequest.getQuantity());
-
-       log.info("Placing order request: {}", orderRequest);
-       Order order = Order.builder()
-               .orderDate(Instant.now())
-               .orderStatus("CREATED")
-               .quantity(orderRequest.getQuantity())
-               .amount(orderRequest.getTotalAmount())
-               .productId(orderRequest.getProductId())
-               .build();
-
-       orderRepository.save(order);
-
-       log.info("Redirecting to payment service...");
-       PaymentRequest paymentRequest = PaymentRequest.builder()
-               .orderId(order.getId())
-               .amount(orderRequest.getTotalAmount())
-               .paymentMode(orderRequest.getPaymentMode())
-               .build();
-       String orderStatus = null;
-       try {
-           paymentService.doPayment(paymentRequest);
-           log.info("Payment successful: Changing the order status to PLACED");
-           orderStatus = "PLACED";
-       } catch (Exception e) {
-           log.error("Payment failed: Changing the order status to PAYMENT_FAILED", e);
-           orderStatus = "PAYMENT_FAILED";
-       }
-
-       order.setOrderStatus(orderStatus);
-       orderRepository.save(order);
-
-       log.info("Order placed successfully with orderId: {}", order.getId());
-       return order.getId();
+        long reservationId = reserve(orderRequest.getProductId(), orderRequest.getQuantity());
+
+        log.info("Placing order request: {}", orderRequest);
+        Order order = orderMapper.toOrder(orderRequest);
+
+        try {
+            enqueuePayment(order, reservationId, orderRequest.getPaymentMode());
+        } catch (RuntimeException e) {
+            log.error("Failed to save order, releasing reservation with id:{}", reservationId, e);
+            releaseReservation(reservationId);
+            throw e;
+        }
+
+        log.info("Order saved with orderId: {}, payment pending", order.getId());
+        return order.getId();
+    }
+
+    /**
+     * Places the orders with a single call reserving all of their quantities, then saves them as
+     * PAYMENT_PENDING together with their payment intents in one transaction, inserted in JDBC
+     * batches. Orders that are not valid or cannot be reserved get the error in their result and
+     * are not saved; the others are paid by the {@link PaymentOutboxRelay} as single orders are.
+     */
+    @Override
+    public List<OrderResult> placeOrders(List<OrderRequest> orderRequests) {
+        if (orderRequests.size() > maxBatchSize) {
+            throw new OrderServiceException("At most " + maxBatchSize + " orders can be placed at once!",
+                    "BATCH_TOO_LARGE", 400);
+        }
+        log.info("Placing {} orders", orderRequests.size());
+        OrderResult[] results = new OrderResult[orderRequests.size()];
+
+        List<Integer> valid = new ArrayList<>(orderRequests.size());
+        for (int i = 0; i < orderRequests.size(); i++) {
+            try {
+                validate(orderRequests.get(i));
+                valid.add(i);
+            } catch (OrderServiceException e) {
+                results[i] = rejected(new ErrorResponse(e.getMessage(), e.getErrorCode()));
+            }
+        }
+        if (valid.isEmpty()) {
+            return Arrays.asList(results);
+        }
+
+        List<ReservationResult> reservations = productService.reserveAll(valid.stream()
+                        .map(i -> toReservationRequest(orderRequests.get(i).getProductId(), orderRequests.get(i).getQuantity()))
+                        .collect(Collectors.toList()))
+                .getBody();
+
+        List<Integer> reserved = new ArrayList<>(valid.size());
+        List<Order> orders = new ArrayList<>(valid.size());
+        List<Long> reservationIds = new ArrayList<>(valid.size());
+        for (int line = 0; line < valid.size(); line++) {
+            int i = valid.get(line);
+            ReservationResult reservation = reservations.get(line);
+            if (reservation.getError() != null) {
+                results[i] = rejected(reservation.getError());
+                continue;
+            }
+            Order order = orderMapper.toOrder(orderRequests.get(i));
+            order.setOrderStatus("PAYMENT_PENDING");
+            reserved.add(i);
+            orders.add(order);
+            reservationIds.add(reservation.getReservation().getReservationId());
+        }
+
+        if (!orders.isEmpty()) {
+            try {
+                enqueuePayments(orders, reservationIds, reserved.stream()
+                        .map(i -> orderRequests.get(i).getPaymentMode())
+                        .collect(Collectors.toList()));
+            } catch (RuntimeException e) {
+                log.error("Failed to save {} orders, releasing their reservations", orders.size(), e);
+                reservationIds.forEach(this::releaseReservation);
+                throw e;
+            }
+        }
+        for (int line = 0; line < orders.size(); line++) {
+            Order order = orders.get(line);
+            results[reserved.get(line)] = OrderResult.builder()
+                    .orderId(order.getId())
+                    .orderStatus(order.getOrderStatus())
+                    .build();
+        }
+
+        log.info("Placed {} of {} orders, payments pending", orders.size(), orderRequests.size());
+        return Arrays.asList(results);
+    }
+
+    /**
+     * Saves the order as CREATED and leaves reserving and queuing the payment to the
+     * {@link OrderPlacementPipeline}. Orders that fail to reserve their quantity end up as
+     * RESERVATION_FAILED. The order is claimed by this instance for
+     * {@code order.placement.claim-timeout}; if it is still CREATED after that,
+     * {@link #resumeStrandedOrders} places it again.
+     */
+    @Override
+    public long acceptOrder(OrderRequest orderRequest) {
+        validate(orderRequest);
+        if (!orderPlacementPipeline.tryAdmit()) {
+            throw new OrderServiceException("Too many orders are being placed, try again later!", "ORDER_PIPELINE_FULL", 503);
+        }
+
+        Order order = orderMapper.toOrder(orderRequest);
+        order.setClaimedUntil(Instant.now().plus(placementClaimTimeout));
+        try {
+            order = orderRepository.save(order);
+        } catch (RuntimeException e) {
+            orderPlacementPipeline.cancel();
+            throw e;
+        }
+        log.info("Order accepted with orderId: {}", order.getId());
+
+        place(order);
+        return order.getId();
+    }
+
+    /**
+     * Puts orders that are still CREATED after their claim ran out back into the
+     * {@link OrderPlacementPipeline}, e.g. those accepted by an instance that stopped before
+     * reserving them. Runs on startup and then every {@code order.placement.resume-interval-ms}.
+     */
+    @Scheduled(fixedDelayString = "${order.placement.resume-interval-ms:60000}")
+    public void resumeStrandedOrders() {
+        Instant now = Instant.now();
+        int resumed = 0;
+        for (long orderId : orderRepository.findStranded(now, PageRequest.of(0, resumeBatchSize))) {
+            if (!orderPlacementPipeline.tryAdmit()) {
+                log.warn("Placement pipeline is full, resuming the other stranded orders later");
+                break;
+            }
+            if (orderRepository.claim(orderId, now.plus(placementClaimTimeout), now) == 0) {
+                orderPlacementPipeline.cancel();
+                continue;
+            }
+            place(findOrder(orderId));
+            resumed++;
+        }
+        if (resumed > 0) {
+            log.info("Resumed placing {} stranded orders", resumed);
+        }
+    }
+
+    // The order leaves CREATED only from here, so of two instances placing it only one goes on to the payment.
+    private void place(Order order) {
+        CompletableFuture<String> placement = new CompletableFuture<>();
+        orderPlacementPipeline.track(order.getId(), placement);
+
+        CompletableFuture.supplyAsync(() -> reserve(order.getProductId(), order.getQuantity()), orderPlacementPipeline.inventoryStage())
+                .whenCompleteAsync((reservationId, e) -> {
+                    if (e != null) {
+                        log.error("Reservation failed: Changing the order status to RESERVATION_FAILED", e);
+                        if (orderRepository.updateStatus(order.getId(), "CREATED", "RESERVATION_FAILED") == 1) {
+                            order.setOrderStatus("RESERVATION_FAILED");
+                            fetchOrderResponse(order);
+                        }
+                        placement.complete(findOrder(order.getId()).getOrderStatus());
+                        return;
+                    }
+                    try {
+                        enqueueAcceptedPayment(order, reservationId);
+                        log.info("Order reserved with orderId: {}, payment pending", order.getId());
+                    } catch (RuntimeException ex) {
+                        log.error("Failed to queue payment of order id:{}", order.getId(), ex);
+                        releaseReservation(reservationId);
+                        placement.completeExceptionally(ex);
+                    }
+                }, orderPlacementPipeline.completionStage());
     }
 
+    /**
+     * Completes with the status of the order once it has left the {@link OrderPlacementPipeline},
+     * or after {@code wait}, whichever comes first. Orders this instance is not placing complete
+     * straight away.
+     */
+    @Override
+    public CompletableFuture<OrderStatusResponse> getOrderStatus(long orderId, Duration wait) {
+        Optional<CompletableFuture<String>> placement = orderPlacementPipeline.placement(orderId);
+        if (placement.isEmpty() || wait.isNegative() || wait.isZero()) {
+            return CompletableFuture.completedFuture(getOrderStatus(orderId));
+        }
+
+        Duration timeout = wait.compareTo(maxStatusWait) > 0 ? maxStatusWait : wait;
+        return placement.get().copy()
+                .completeOnTimeout(null, timeout.toMillis(), TimeUnit.MILLISECONDS)
+                .handle((orderStatus, e) -> orderStatus == null
+                        ? getOrderStatus(orderId)
+                        : new OrderStatusResponse(orderId, orderStatus));
+    }
+
+    private OrderStatusResponse getOrderStatus(long orderId) {
+        return new OrderStatusResponse(orderId, findOrder(orderId).getOrderStatus());
+    }
+
+    private static void validate(OrderRequest orderRequest) {
+        if (orderRequest.getProductId() <= 0 || orderRequest.getQuantity() <= 0
+                || orderRequest.getTotalAmount() < 0 || orderRequest.getPaymentMode() == null) {
+            throw new OrderServiceException("Order request is not valid!", "INVALID_ORDER", 400);
+        }
+    }
+
+    private long reserve(long productId, long quantity) {
+        log.info("Reserving product quantity with id:{}", productId);
+        return productService.reserve(toReservationRequest(productId, quantity))
+                .getBody()
+                .getReservationId();
+    }
+
+    // Held long enough for the PaymentOutboxRelay to use up its attempts before it confirms.
+    private ReservationRequest toReservationRequest(long productId, long quantity) {
+        return ReservationRequest.builder()
+                .productId(productId)
+                .quantity(quantity)
+                .ttlSeconds(reservationTtl.toSeconds())
+                .build();
+    }
+
+    private static OrderResult rejected(ErrorResponse error) {
+        return OrderResult.builder().error(error).build();
+    }
+
+    // The intent is written in the transaction that saves the order, so neither is kept without the other.
+    private void enqueuePayment(Order order, long reservationId, PaymentMode paymentMode) {
+        transactionTemplate.executeWithoutResult(status -> {
+            order.setOrderStatus("PAYMENT_PENDING");
+            orderRepository.save(order);
+            paymentIntentRepository.save(orderMapper.toPaymentIntent(order, reservationId, paymentMode));
+        });
+    }
+
+    private void enqueueAcceptedPayment(Order order, long reservationId) {
+        transactionTemplate.executeWithoutResult(status -> {
+            if (orderRepository.updateStatus(order.getId(), "CREATED", "PAYMENT_PENDING") == 0) {
+                throw new OrderServiceException("Order is no longer waiting to be placed!", "ORDER_NOT_CREATED", 409);
+            }
+            order.setOrderStatus("PAYMENT_PENDING");
+            paymentIntentRepository.save(orderMapper.toPaymentIntent(order, reservationId, order.getPaymentMode()));
+        });
+    }
+
+    // The orders get their ids when they are saved, so the intents are built after that.
+    private void enqueuePayments(List<Order> orders, List<Long> reservationIds, List<PaymentMode> paymentModes) {
+        transactionTemplate.executeWithoutResult(status -> {
+            orderRepository.saveAll(orders);
+            List<PaymentIntent> paymentIntents = new ArrayList<>(orders.size());
+            for (int i = 0; i < orders.size(); i++) {
+                paymentIntents.add(orderMapper.toPaymentIntent(orders.get(i), reservationIds.get(i), paymentModes.get(i)));
+            }
+            paymentIntentRepository.saveAll(paymentIntents);
+        });
+    }
+
+    // A reservation that cannot be released now gives its quantity back when it expires.
+    private void releaseReservation(long reservationId) {
+        try {
+            productService.releaseReservation(reservationId);
+        } catch (Exception e) {
+            log.error("Failed to release reservation with id:{}, leaving it to expire", reservationId, e);
+        }
+    }
+
+    /**
+     * Reads the order from its view when there is one that was refreshed within
+     * {@code order.view.time-to-live}. Otherwise the product and payment details
+     * are fetched at the same time, so the response takes as long as the slower of the two calls,
+     * and the view is written for the next read. A call that fails or times out leaves its
+     * details out of the response and adds a {@link OrderResponse.DownstreamError} instead.
+     * Reads that need details already being fetched for another read share that call.
+     */
     @Override
     public OrderResponse getOrderByOrderId(long orderId) {
         log.info("Fetching order details with id:{}", orderId);
-        Order order = orderRepository.findById(orderId)
-                .orElseThrow(() -> new OrderServiceException("No order found with given id!", "ORDER_NOT_FOUND", 404));
+        Optional<OrderView> orderView = orderViewRepository.findById(orderId)
+                .filter(view -> isFresh(view, viewTimeToLive));
+        if (orderView.isPresent()) {
+            return orderMapper.toOrderResponse(orderView.get());
+        }
 
-        log.info("Fetching product details for product id:{}", order.getProductId());
-        ProductResponse productResponse = restTemplate.getForObject("http://PRODUCT-SERVICE/product/" + order.getProductId(),
-                ProductResponse.class);
+        log.info("No fresh view of order id:{}, fetching its details", orderId);
+        return fetchOrderResponse(findOrder(orderId));
+    }
 
-        OrderResponse.ProductDetails productDetails = OrderResponse.ProductDetails.builder()
-                .productId(productResponse.getProductId())
-                .productName(productResponse.getProductName())
-                .build();
+    @Override
+    public OrderPage getOrders(OrderSearchRequest orderSearchRequest) {
+        log.info("Searching orders with request: {}", orderSearchRequest);
+        if ((orderSearchRequest.getAfterOrderDate() == null) != (orderSearchRequest.getAfterOrderId() == null)) {
+            throw new OrderServiceException("Both afterOrderDate and afterOrderId must be given to read the next page!",
+                    "INVALID_PAGE", 400);
+        }
+        int size = orderSearchRequest.getSize() == null
+                ? DEFAULT_PAGE_SIZE
+                : Math.max(1, Math.min(orderSearchRequest.getSize(), MAX_PAGE_SIZE));
 
-        log.info("Fetching payment details for order id:{}", order.getId());
-        PaymentResponse paymentResponse = restTemplate.getForObject("http://PAYMENT-SERVICE/payment/order/" + order.getId(),
-                PaymentResponse.class);
+        // One extra row tells whether there is a next page without a count query.
+        List<OrderSummary> orders = orderRepository.findHistory(
+                orderSearchRequest.getProductId(),
+                orderSearchRequest.getStatus(),
+                orderSearchRequest.getFrom(),
+                orderSearchRequest.getTo(),
+                orderSearchRequest.getAfterOrderDate(),
+                orderSearchRequest.getAfterOrderId(),
+                size + 1);
+        boolean hasNext = orders.size() > size;
+        if (hasNext) {
+            orders = orders.subList(0, size);
+        }
 
-        OrderResponse.PaymentDetails paymentDetails = OrderResponse.PaymentDetails.builder()
-                .paymentId(paymentResponse.getPaymentId())
-                .paymentDate(paymentResponse.getPaymentDate())
-                .status(paymentResponse.getStatus())
-                .paymentMode(paymentResponse.getPaymentMode())
+        OrderSummary last = hasNext ? orders.get(size - 1) : null;
+        return OrderPage.builder()
+                .orders(orders)
+                .nextAfterOrderDate(last == null ? null : last.getOrderDate())
+                .nextAfterOrderId(last == null ? null : last.getOrderId())
                 .build();
+    }
 
+    // Nothing tells OrderService when a product or payment changes, so views are only trusted for a while.
+    static boolean isFresh(OrderView orderView, Duration timeToLive) {
+        return orderView.getRefreshedAt() != null
+                && orderView.getRefreshedAt().isAfter(Instant.now().minus(timeToLive));
+    }
 
-        return OrderResponse.builder()
-                .orderStatus(order.getOrderStatus())
-                .amount(order.getAmount())
-                .orderDate(order.getOrderDate())
-                .orderId(order.getId())
-                .productDetails(productDetails)
-                .paymentDetails(paymentDetails)
-                .build();
+    private Order findOrder(long orderId) {
+        return orderRepository.findById(orderId)
+                .orElseThrow(() -> new OrderServiceException("No order found with given id!", "ORDER_NOT_FOUND", 404));
+    }
+
+    private OrderResponse fetchOrderResponse(Order order) {
+        log.info("Fetching product details for product id:{} and payment details for order id:{}",
+                order.getProductId(), order.getId());
+        CompletableFuture<ProductResponse> product = productLookups.get(order.getProductId(), () -> productHedger.call(
+                hedgeId -> fetch(() -> get("http://PRODUCT-SERVICE/product/" + order.getProductId(), ProductResponse.class, hedgeId))))
+                .orTimeout(productTimeout.toMillis(), TimeUnit.MILLISECONDS);
+        // Only placed orders have a payment to show.
+        CompletableFuture<PaymentResponse> payment = !"PLACED".equals(order.getOrderStatus())
+                ? CompletableFuture.completedFuture(null)
+                : paymentLookups.get(order.getId(), () -> paymentHedger.call(
+                hedgeId -> fetch(() -> get("http://PAYMENT-SERVICE/payment/order/" + order.getId(), PaymentResponse.class, hedgeId))))
+                .orTimeout(paymentTimeout.toMillis(), TimeUnit.MILLISECONDS);
+
+        List<OrderResponse.DownstreamError> downstreamErrors = new ArrayList<>();
+        ProductResponse productResponse = await(product, "PRODUCT-SERVICE", productTimeout, downstreamErrors);
+        PaymentResponse paymentResponse = await(payment, "PAYMENT-SERVICE", paymentTimeout, downstreamErrors);
+
+        OrderResponse orderResponse = orderMapper.toOrderResponse(order, productResponse, paymentResponse);
+        if (!downstreamErrors.isEmpty()) {
+            orderResponse.setDownstreamErrors(downstreamErrors);
+        } else if (!IN_PROGRESS.contains(order.getOrderStatus())) {
+            saveOrderView(orderResponse);
+        }
+        return orderResponse;
+    }
+
+    // The view only saves calls to other services, so failing to write it fails nothing else.
+    private void saveOrderView(OrderResponse orderResponse) {
+        try {
+            orderViewRepository.save(orderMapper.toOrderView(orderResponse));
+        } catch (RuntimeException e) {
+            log.warn("Failed to save view of order id:{}", orderResponse.getOrderId(), e);
+        }
+    }
+
+    // Calls sent with the same hedge id go to different instances.
+    private <T> T get(String url, Class<T> responseType, String hedgeId) {
+        if (hedgeId == null) {
+            return restTemplate.getForObject(url, responseType);
+        }
+        return restTemplate.exchange(RequestEntity.get(URI.create(url)).header(LatencyAwareLoadBalancer.HEDGE_ID_HEADER, hedgeId).build(),
+                responseType).getBody();
+    }
+
+    private <T> CompletableFuture<T> fetch(Supplier<T> call) {
+        try {
+            return CompletableFuture.supplyAsync(call, downstreamExecutor);
+        } catch (RejectedExecutionException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    private static <T> T await(CompletableFuture<T> future, String service, Duration timeout,
+                               List<OrderResponse.DownstreamError> downstreamErrors) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            Throwable cause = e.getCause();
+            OrderResponse.DownstreamError downstreamError;
+            if (cause instanceof TimeoutException) {
+                downstreamError = new OrderResponse.DownstreamError(service, "TIMEOUT",
+                        "No response within " + timeout.toMillis() + " ms");
+            } else if (cause instanceof RejectedExecutionException) {
+                downstreamError = new OrderResponse.DownstreamError(service, "REJECTED",
+                        "Too many calls in flight");
+            } else if (cause instanceof HttpStatusCodeException) {
+                downstreamError = new OrderResponse.DownstreamError(service,
+                        ((HttpStatusCodeException) cause).getStatusCode().name(), cause.getMessage());
+            } else {
+                downstreamError = new OrderResponse.DownstreamError(service, "UNAVAILABLE", cause.getMessage());
+            }
+            log.warn("Failed to fetch details from {}: {}", service, downstreamError.getErrorCode(), cause);
+            downstreamErrors.add(downstreamError);
+            return null;
+        }
     }
 }
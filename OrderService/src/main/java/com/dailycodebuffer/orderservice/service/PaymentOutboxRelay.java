@@ -0,0 +1,283 @@
+package com.dailycodebuffer.orderservice.service;
+
+import com.dailycodebuffer.orderservice.entity.PaymentIntent;
+import com.dailycodebuffer.orderservice.exception.OrderServiceException;
+import com.dailycodebuffer.orderservice.external.client.PaymentService;
+import com.dailycodebuffer.orderservice.external.client.ProductService;
+import com.dailycodebuffer.orderservice.external.request.PaymentRequest;
+import com.dailycodebuffer.orderservice.mapper.OrderMapper;
+import com.dailycodebuffer.orderservice.repository.OrderRepository;
+import com.dailycodebuffer.orderservice.repository.PaymentIntentRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.Collectors;
+
+/**
+ * Sends the payment intents written with orders to PAYMENT-SERVICE and moves the orders on to
+ * PLACED or PAYMENT_FAILED. An order whose reservation expired or was released before it could
+ * be confirmed has its payment refunded and ends as RESERVATION_FAILED.
+ *
+ * <p>Each poll claims up to {@code batch-size * parallelism} due intents, oldest first, and sends
+ * them as {@code parallelism} concurrent batches. The intents of a batch that fails are retried
+ * with exponential backoff and go ahead of newer intents once they are due again; their orders
+ * fail once {@code max-attempts} is used up. Once a payment is taken there is no giving up: the
+ * intent is retried until its reservation is confirmed, or found lapsed and the payment refunded,
+ * which the reservation expiring guarantees. Intents are claimed for
+ * {@code claim-timeout}, so that several instances can relay the same outbox and intents left by
+ * a crashed instance are picked up again. An intent may therefore be sent more than once;
+ * PAYMENT-SERVICE records a single payment per order. Reservations are held for
+ * {@code order.reservation.ttl}, which must cover every attempt, so startup fails when it does not.
+ */
+@Component
+@Log4j2
+public class PaymentOutboxRelay {
+
+    private static final Set<String> LAPSED_RESERVATIONS = Set.of("RESERVATION_EXPIRED", "RESERVATION_RELEASED");
+
+    @Autowired
+    private PaymentIntentRepository paymentIntentRepository;
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @Autowired
+    private PaymentService paymentService;
+
+    @Autowired
+    private ProductService productService;
+
+    @Autowired
+    private OrderPlacementPipeline orderPlacementPipeline;
+
+    @Autowired
+    private OrderMapper orderMapper;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${order.payment.outbox.batch-size:50}")
+    private int batchSize;
+
+    @Value("${order.payment.outbox.parallelism:4}")
+    private int parallelism;
+
+    @Value("${order.payment.outbox.claim-timeout:1m}")
+    private Duration claimTimeout;
+
+    @Value("${order.payment.outbox.max-attempts:10}")
+    private int maxAttempts;
+
+    @Value("${order.payment.outbox.initial-backoff:1s}")
+    private Duration initialBackoff;
+
+    @Value("${order.payment.outbox.max-backoff:5m}")
+    private Duration maxBackoff;
+
+    @Value("${order.reservation.ttl:30m}")
+    private Duration reservationTtl;
+
+    private final AtomicReference<Instant> oldestPending = new AtomicReference<>();
+
+    private ExecutorService relayExecutor;
+    private Timer batchTimer;
+    private Counter placed;
+    private Counter retried;
+    private Counter failed;
+
+    @PostConstruct
+    public void start() {
+        Duration retryWindow = retryWindow();
+        if (retryWindow.compareTo(reservationTtl) > 0) {
+            throw new IllegalStateException("order.reservation.ttl must be at least " + retryWindow
+                    + ", the time the payment outbox may keep retrying, was " + reservationTtl);
+        }
+
+        AtomicInteger count = new AtomicInteger();
+        relayExecutor = Executors.newFixedThreadPool(parallelism,
+                runnable -> new Thread(runnable, "payment-outbox-" + count.incrementAndGet()));
+        batchTimer = Timer.builder("order.payment.outbox.batch").register(meterRegistry);
+        placed = meterRegistry.counter("order.payment.outbox.intents", "outcome", "placed");
+        retried = meterRegistry.counter("order.payment.outbox.intents", "outcome", "retried");
+        failed = meterRegistry.counter("order.payment.outbox.intents", "outcome", "failed");
+        Gauge.builder("order.payment.outbox.lag", oldestPending, PaymentOutboxRelay::lagSeconds)
+                .baseUnit("seconds")
+                .register(meterRegistry);
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        relayExecutor.shutdown();
+        relayExecutor.awaitTermination(10, TimeUnit.SECONDS);
+    }
+
+    @Scheduled(fixedDelayString = "${order.payment.outbox.poll-interval-ms:200}")
+    public synchronized void drain() {
+        int limit = batchSize * parallelism;
+        while (relay(limit) == limit) {
+            log.info("Outbox had more than {} due payment intents, relaying the next ones", limit);
+        }
+        oldestPending.set(paymentIntentRepository.findFirstByOrderByIdAsc()
+                .map(PaymentIntent::getCreatedAt)
+                .orElse(null));
+    }
+
+    private int relay(int limit) {
+        Instant now = Instant.now();
+        List<Long> due = paymentIntentRepository.findDue(now, PageRequest.of(0, limit));
+        if (due.isEmpty()) {
+            return 0;
+        }
+
+        String claimedBy = UUID.randomUUID().toString();
+        paymentIntentRepository.claim(due, claimedBy, now.plus(claimTimeout), now);
+        List<PaymentIntent> intents = paymentIntentRepository.findByClaimedByOrderById(claimedBy);
+        log.info("Relaying {} payment intents", intents.size());
+
+        List<CompletableFuture<Void>> batches = new ArrayList<>();
+        for (int from = 0; from < intents.size(); from += batchSize) {
+            List<PaymentIntent> batch = intents.subList(from, Math.min(from + batchSize, intents.size()));
+            batches.add(CompletableFuture.runAsync(() -> send(batch), relayExecutor));
+        }
+        batches.forEach(CompletableFuture::join);
+        return due.size();
+    }
+
+    private void send(List<PaymentIntent> batch) {
+        List<PaymentRequest> paymentRequests = batch.stream()
+                .map(orderMapper::toPaymentRequest)
+                .collect(Collectors.toList());
+        try {
+            batchTimer.record(() -> paymentService.doPayments(paymentRequests));
+        } catch (RuntimeException e) {
+            log.error("Failed to send batch of {} payments", batch.size(), e);
+            batch.forEach(intent -> retry(intent, "PAYMENT_FAILED"));
+            return;
+        }
+
+        for (PaymentIntent intent : batch) {
+            try {
+                productService.confirmReservation(intent.getReservationId());
+            } catch (RuntimeException e) {
+                if (e instanceof OrderServiceException
+                        && LAPSED_RESERVATIONS.contains(((OrderServiceException) e).getErrorCode())) {
+                    refund(intent, ((OrderServiceException) e).getErrorCode());
+                    continue;
+                }
+                // The payment is sent again with the retry, and PAYMENT-SERVICE keeps the first one.
+                log.error("Failed to confirm reservation with id:{}", intent.getReservationId(), e);
+                reschedule(intent);
+                continue;
+            }
+            complete(intent, "PLACED");
+            placed.increment();
+        }
+    }
+
+    // The quantity is no longer held for the order, so it cannot be placed and its payment is given back.
+    private void refund(PaymentIntent intent, String errorCode) {
+        log.error("Reservation with id:{} of order id:{} is {}, refunding its payment",
+                intent.getReservationId(), intent.getOrderId(), errorCode);
+        try {
+            paymentService.refundPayment(intent.getOrderId());
+        } catch (RuntimeException e) {
+            log.error("Failed to refund payment of order id:{}", intent.getOrderId(), e);
+            reschedule(intent);
+            return;
+        }
+        complete(intent, "RESERVATION_FAILED");
+        failed.increment();
+    }
+
+    // Once the attempts are used up the order gets the status it would have had without retries.
+    private void retry(PaymentIntent intent, String finalStatus) {
+        if (intent.getAttempts() + 1 >= maxAttempts) {
+            log.error("Giving up on payment of order id:{} after {} attempts, changing its status to {}",
+                    intent.getOrderId(), maxAttempts, finalStatus);
+            complete(intent, finalStatus);
+            failed.increment();
+            return;
+        }
+        reschedule(intent);
+    }
+
+    // A taken payment is retried past max-attempts, at the longest backoff, until it is settled.
+    private void reschedule(PaymentIntent intent) {
+        if (intent.getAttempts() + 1 >= maxAttempts) {
+            log.warn("Payment of order id:{} is still not settled after {} attempts, retrying",
+                    intent.getOrderId(), intent.getAttempts() + 1);
+        }
+        intent.setAttempts(intent.getAttempts() + 1);
+        intent.setNextAttemptAt(Instant.now().plus(backoff(intent.getAttempts())));
+        intent.setClaimedBy(null);
+        intent.setClaimedUntil(null);
+        paymentIntentRepository.save(intent);
+        retried.increment();
+    }
+
+    // Orders in progress get no stored view, so the first read after this writes a fresh one.
+    private void complete(PaymentIntent intent, String orderStatus) {
+        transactionTemplate.executeWithoutResult(status -> {
+            orderRepository.findById(intent.getOrderId()).ifPresent(order -> {
+                order.setOrderStatus(orderStatus);
+                orderRepository.save(order);
+            });
+            paymentIntentRepository.delete(intent);
+        });
+
+        if (!"PLACED".equals(orderStatus)) {
+            try {
+                productService.releaseReservation(intent.getReservationId());
+            } catch (RuntimeException e) {
+                log.error("Failed to release reservation with id:{}, leaving it to expire", intent.getReservationId(), e);
+            }
+        }
+        orderPlacementPipeline.placement(intent.getOrderId())
+                .ifPresent(placement -> placement.complete(orderStatus));
+    }
+
+    // Each attempt may wait out a claim left by a relay that stopped, as well as its backoff.
+    private Duration retryWindow() {
+        Duration retryWindow = claimTimeout.multipliedBy(maxAttempts);
+        for (int attempts = 1; attempts < maxAttempts; attempts++) {
+            retryWindow = retryWindow.plus(backoff(attempts));
+        }
+        return retryWindow;
+    }
+
+    private Duration backoff(int attempts) {
+        Duration backoff = initialBackoff.multipliedBy(1L << Math.min(attempts - 1, 20));
+        return backoff.compareTo(maxBackoff) > 0 ? maxBackoff : backoff;
+    }
+
+    private static double lagSeconds(AtomicReference<Instant> oldestPending) {
+        Instant oldest = oldestPending.get();
+        return oldest == null ? 0 : Duration.between(oldest, Instant.now()).toMillis() / 1000.0;
+    }
+}
@@ -0,0 +1,8 @@
+package com.dailycodebuffer.orderservice.service;
+
+import com.dailycodebuffer.orderservice.model.OrderResponse;
+import reactor.core.publisher.Mono;
+
+public interface ReactiveOrderService {
+    Mono<OrderResponse> getOrderByOrderId(long orderId);
+}
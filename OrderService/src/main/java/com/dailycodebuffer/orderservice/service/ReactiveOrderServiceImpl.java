@@ -0,0 +1,188 @@
+package com.dailycodebuffer.orderservice.service;
+
+import com.dailycodebuffer.orderservice.config.DownstreamLookupConfig;
+import com.dailycodebuffer.orderservice.config.ReactiveOrderConfig;
+import com.dailycodebuffer.orderservice.entity.Order;
+import com.dailycodebuffer.orderservice.exception.OrderServiceException;
+import com.dailycodebuffer.orderservice.external.response.PaymentResponse;
+import com.dailycodebuffer.orderservice.external.response.ProductResponse;
+import com.dailycodebuffer.orderservice.mapper.OrderMapper;
+import com.dailycodebuffer.orderservice.model.OrderResponse;
+import com.dailycodebuffer.orderservice.repository.OrderRepository;
+import com.dailycodebuffer.orderservice.repository.OrderViewRepository;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Reads orders like {@link OrderServiceImpl#getOrderByOrderId} does, without holding a thread
+ * while waiting: calls to other services go out through the {@link WebClient}, behind the same
+ * "external" circuit breaker as the Feign clients, and the database is read on the JDBC scheduler.
+ * Reads share calls through the same lookups as the blocking ones.
+ *
+ * <p>Only the single order read of GET /order/reactive/{orderId} is served here; every other
+ * endpoint stays on the blocking path.
+ */
+@Service
+@ConditionalOnProperty(name = "order.reactive.enabled", havingValue = "true")
+@Log4j2
+public class ReactiveOrderServiceImpl implements ReactiveOrderService {
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @Autowired
+    private OrderViewRepository orderViewRepository;
+
+    @Autowired
+    private OrderMapper orderMapper;
+
+    @Autowired
+    @Qualifier(ReactiveOrderConfig.DOWNSTREAM_WEB_CLIENT)
+    private WebClient webClient;
+
+    @Autowired
+    @Qualifier(ReactiveOrderConfig.JDBC_SCHEDULER)
+    private Scheduler jdbcScheduler;
+
+    @Autowired
+    private CircuitBreakerRegistry circuitBreakerRegistry;
+
+    @Autowired
+    @Qualifier(DownstreamLookupConfig.PRODUCT_LOOKUPS)
+    private SingleFlight<Long, ProductResponse> productLookups;
+
+    @Autowired
+    @Qualifier(DownstreamLookupConfig.PAYMENT_LOOKUPS)
+    private SingleFlight<Long, PaymentResponse> paymentLookups;
+
+    @Value("${order.downstream.product-timeout:2s}")
+    private Duration productTimeout;
+
+    @Value("${order.downstream.payment-timeout:2s}")
+    private Duration paymentTimeout;
+
+    @Value("${order.view.time-to-live:10m}")
+    private Duration viewTimeToLive;
+
+    @Override
+    public Mono<OrderResponse> getOrderByOrderId(long orderId) {
+        log.info("Fetching order details with id:{}", orderId);
+        return Mono.fromCallable(() -> orderViewRepository.findById(orderId))
+                .subscribeOn(jdbcScheduler)
+                .map(orderView -> orderView.filter(view -> OrderServiceImpl.isFresh(view, viewTimeToLive)))
+                .flatMap(orderView -> orderView.isPresent()
+                        ? Mono.just(orderMapper.toOrderResponse(orderView.get()))
+                        : findOrder(orderId).flatMap(this::fetchOrderResponse))
+                .onErrorMap(RejectedExecutionException.class, e -> new OrderServiceException(
+                        "Too many orders are being read, try again later!", "ORDER_READS_FULL", 503));
+    }
+
+    private Mono<Order> findOrder(long orderId) {
+        log.info("No fresh view of order id:{}, fetching its details", orderId);
+        return Mono.fromCallable(() -> orderRepository.findById(orderId))
+                .subscribeOn(jdbcScheduler)
+                .flatMap(order -> order.map(Mono::just).orElseGet(() -> Mono.error(
+                        new OrderServiceException("No order found with given id!", "ORDER_NOT_FOUND", 404))));
+    }
+
+    private Mono<OrderResponse> fetchOrderResponse(Order order) {
+        List<OrderResponse.DownstreamError> downstreamErrors = new ArrayList<>();
+        Mono<Optional<ProductResponse>> product = fetch(productLookups, order.getProductId(),
+                "http://PRODUCT-SERVICE/product/" + order.getProductId(), ProductResponse.class,
+                "PRODUCT-SERVICE", productTimeout, downstreamErrors);
+        // Only placed orders have a payment to show.
+        Mono<Optional<PaymentResponse>> payment = !"PLACED".equals(order.getOrderStatus())
+                ? Mono.just(Optional.empty())
+                : fetch(paymentLookups, order.getId(),
+                "http://PAYMENT-SERVICE/payment/order/" + order.getId(), PaymentResponse.class,
+                "PAYMENT-SERVICE", paymentTimeout, downstreamErrors);
+
+        return Mono.zip(product, payment).flatMap(details -> {
+            OrderResponse orderResponse = orderMapper.toOrderResponse(
+                    order, details.getT1().orElse(null), details.getT2().orElse(null));
+            if (!downstreamErrors.isEmpty()) {
+                orderResponse.setDownstreamErrors(downstreamErrors);
+                return Mono.just(orderResponse);
+            }
+            if (OrderServiceImpl.IN_PROGRESS.contains(order.getOrderStatus())) {
+                return Mono.just(orderResponse);
+            }
+            return saveOrderView(orderResponse);
+        });
+    }
+
+    // The view only saves calls to other services, so failing to write it fails nothing else.
+    private Mono<OrderResponse> saveOrderView(OrderResponse orderResponse) {
+        return Mono.fromCallable(() -> orderViewRepository.save(orderMapper.toOrderView(orderResponse)))
+                .subscribeOn(jdbcScheduler)
+                .thenReturn(orderResponse)
+                .onErrorResume(e -> {
+                    log.warn("Failed to save view of order id:{}", orderResponse.getOrderId(), e);
+                    return Mono.just(orderResponse);
+                });
+    }
+
+    private <T> Mono<Optional<T>> fetch(SingleFlight<Long, T> lookups, long key, String url, Class<T> type,
+                                        String service, Duration timeout,
+                                        List<OrderResponse.DownstreamError> downstreamErrors) {
+        return Mono.fromFuture(() -> lookups.get(key, () -> webClient.get()
+                        .uri(url)
+                        .retrieve()
+                        .bodyToMono(type)
+                        .transform(this::withCircuitBreaker)
+                        .toFuture()))
+                .timeout(timeout)
+                .map(Optional::of)
+                .defaultIfEmpty(Optional.empty())
+                .onErrorResume(e -> {
+                    OrderResponse.DownstreamError downstreamError;
+                    if (e instanceof TimeoutException) {
+                        downstreamError = new OrderResponse.DownstreamError(service, "TIMEOUT",
+                                "No response within " + timeout.toMillis() + " ms");
+                    } else if (e instanceof WebClientResponseException) {
+                        downstreamError = new OrderResponse.DownstreamError(service,
+                                ((WebClientResponseException) e).getStatusCode().name(), e.getMessage());
+                    } else {
+                        downstreamError = new OrderResponse.DownstreamError(service, "UNAVAILABLE", e.getMessage());
+                    }
+                    log.warn("Failed to fetch details from {}: {}", service, downstreamError.getErrorCode(), e);
+                    // The product and payment calls can fail at the same time on different threads.
+                    synchronized (downstreamErrors) {
+                        downstreamErrors.add(downstreamError);
+                    }
+                    return Mono.just(Optional.empty());
+                });
+    }
+
+    // resilience4j-reactor is not on the classpath, so the breaker is driven by hand, as its operator does.
+    private <T> Mono<T> withCircuitBreaker(Mono<T> call) {
+        CircuitBreaker circuitBreaker = circuitBreakerRegistry.circuitBreaker("external");
+        return Mono.defer(() -> {
+            circuitBreaker.acquirePermission();
+            long startedAt = circuitBreaker.getCurrentTimestamp();
+            return call
+                    .doOnSuccess(result -> circuitBreaker.onSuccess(
+                            circuitBreaker.getCurrentTimestamp() - startedAt, circuitBreaker.getTimestampUnit()))
+                    .doOnError(e -> circuitBreaker.onError(
+                            circuitBreaker.getCurrentTimestamp() - startedAt, circuitBreaker.getTimestampUnit(), e))
+                    .doOnCancel(circuitBreaker::releasePermission);
+        });
+    }
+}
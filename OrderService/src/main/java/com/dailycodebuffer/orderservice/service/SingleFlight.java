@@ -0,0 +1,98 @@
+package com.dailycodebuffer.orderservice.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Supplier;
+
+/**
+ * Shares one call to another service between concurrent lookups of the same key. A lookup that
+ * arrives while the call for its key is in flight gets that call's result instead of making a
+ * call of its own; once the call completes, the next lookup makes a new one.
+ *
+ * <p>When {@code cacheTtl} is positive, results are also kept for that long, so lookups following
+ * closely after a call are answered without one. Failures are never kept.
+ *
+ * <p>Every lookup is counted in {@code order.downstream.lookups} by whether it was {@code called},
+ * {@code coalesced} or {@code cached}, and {@code order.downstream.lookups.coalesced.ratio} is the
+ * share of lookups that did not make a call.
+ */
+public class SingleFlight<K, V> {
+
+    private final ConcurrentMap<K, CompletableFuture<V>> inFlight = new ConcurrentHashMap<>();
+    private final Cache<K, V> recent;
+    private final Counter called;
+    private final Counter coalesced;
+    private final Counter cached;
+
+    public SingleFlight(String service, Duration cacheTtl, long cacheMaximumSize, MeterRegistry meterRegistry) {
+        this.recent = cacheTtl.isZero() || cacheTtl.isNegative()
+                ? null
+                : Caffeine.newBuilder()
+                .maximumSize(cacheMaximumSize)
+                .expireAfterWrite(cacheTtl)
+                .build();
+        this.called = meterRegistry.counter("order.downstream.lookups", "service", service, "result", "called");
+        this.coalesced = meterRegistry.counter("order.downstream.lookups", "service", service, "result", "coalesced");
+        this.cached = meterRegistry.counter("order.downstream.lookups", "service", service, "result", "cached");
+        Gauge.builder("order.downstream.lookups.coalesced.ratio", this, SingleFlight::coalescedRatio)
+                .tag("service", service)
+                .register(meterRegistry);
+    }
+
+    /**
+     * Returns the result of the call in flight for {@code key}, or of a new one made with
+     * {@code call} when there is none. Every lookup gets its own copy of the result, so a caller
+     * timing out or cancelling does not complete it for the others.
+     */
+    public CompletableFuture<V> get(K key, Supplier<CompletableFuture<V>> call) {
+        if (recent != null) {
+            V value = recent.getIfPresent(key);
+            if (value != null) {
+                cached.increment();
+                return CompletableFuture.completedFuture(value);
+            }
+        }
+
+        CompletableFuture<V> lookup = new CompletableFuture<>();
+        CompletableFuture<V> shared = inFlight.putIfAbsent(key, lookup);
+        if (shared != null) {
+            coalesced.increment();
+            return shared.copy();
+        }
+
+        called.increment();
+        CompletableFuture<V> result;
+        try {
+            result = call.get();
+        } catch (RuntimeException e) {
+            result = CompletableFuture.failedFuture(e);
+        }
+        result.whenComplete((value, e) -> {
+            // Cached before it leaves the in-flight map, so a lookup in between finds one or the other.
+            if (e == null && value != null && recent != null) {
+                recent.put(key, value);
+            }
+            inFlight.remove(key, lookup);
+            if (e != null) {
+                lookup.completeExceptionally(e);
+            } else {
+                lookup.complete(value);
+            }
+        });
+        return lookup.copy();
+    }
+
+    private double coalescedRatio() {
+        double saved = coalesced.count() + cached.count();
+        double total = saved + called.count();
+        return total == 0 ? 0 : saved / total;
+    }
+}
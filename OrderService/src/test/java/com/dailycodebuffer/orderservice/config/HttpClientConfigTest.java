@@ -0,0 +1,161 @@
+package com.dailycodebuffer.orderservice.config;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import lombok.extern.log4j.Log4j2;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.logging.LogLevel;
+import org.springframework.boot.logging.LoggingSystem;
+import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
+import org.springframework.web.client.RestTemplate;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@Log4j2
+class HttpClientConfigTest {
+
+    private static final int CALLERS = 32;
+    private static final int REQUESTS_PER_CALLER = 200;
+
+    private final HttpClientConfig httpClientConfig = new HttpClientConfig();
+    private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final AtomicInteger connections = new AtomicInteger();
+
+    private ServerSocket serverSocket;
+    private ExecutorService server;
+
+    // Nothing configures logging outside a Spring Boot test, and DEBUG logging would dominate the timings.
+    @BeforeAll
+    static void setupLogging() {
+        LoggingSystem.get(HttpClientConfigTest.class.getClassLoader()).setLogLevel(LoggingSystem.ROOT_LOGGER_NAME, LogLevel.INFO);
+    }
+
+    @BeforeEach
+    void setup() throws IOException {
+        serverSocket = new ServerSocket(0, 1024);
+        server = Executors.newCachedThreadPool();
+        server.submit(() -> {
+            while (!serverSocket.isClosed()) {
+                Socket socket = serverSocket.accept();
+                connections.incrementAndGet();
+                server.submit(() -> serve(socket));
+            }
+            return null;
+        });
+    }
+
+    @AfterEach
+    void cleanup() throws IOException {
+        serverSocket.close();
+        server.shutdownNow();
+    }
+
+    @Test
+    @DisplayName("HTTP Client - Pooled client reuses connections under load")
+    void loadTestConnectionReuse() throws Exception {
+        // Mocking
+        PoolingHttpClientConnectionManager connectionManager = httpClientConfig.httpClientConnectionManager(
+                meterRegistry, 200, 50, Duration.ofMinutes(5));
+        CloseableHttpClient httpClient = httpClientConfig.httpClient(connectionManager,
+                Duration.ofSeconds(2), Duration.ofSeconds(5), Duration.ofSeconds(1), Duration.ofSeconds(30));
+        RestTemplate pooled = new RestTemplate(new HttpComponentsClientHttpRequestFactory(httpClient));
+        RestTemplate unpooled = new RestTemplate();
+
+        // Actual
+        get(unpooled);
+        get(pooled);
+        connections.set(0);
+        long startedAt = System.nanoTime();
+        get(unpooled);
+        long unpooledMillis = (System.nanoTime() - startedAt) / 1_000_000;
+        int unpooledConnections = connections.getAndSet(0);
+
+        startedAt = System.nanoTime();
+        get(pooled);
+        long pooledMillis = (System.nanoTime() - startedAt) / 1_000_000;
+        int pooledConnections = connections.get();
+
+        log.info("{} callers, {} requests: unpooled {} connections in {} ms, pooled {} connections in {} ms",
+                CALLERS, CALLERS * REQUESTS_PER_CALLER, unpooledConnections, unpooledMillis,
+                pooledConnections, pooledMillis);
+
+        // Assertion
+        assertTrue(pooledConnections <= CALLERS, pooledConnections + " connections");
+        assertTrue(pooledConnections < unpooledConnections);
+        assertEquals(0, meterRegistry.get("httpcomponents.httpclient.pool.total.connections")
+                .tag("httpclient", HttpClientConfig.POOL_NAME)
+                .tag("state", "leased")
+                .gauge().value());
+        assertTrue(meterRegistry.get("httpcomponents.httpclient.pool.total.connections")
+                .tag("httpclient", HttpClientConfig.POOL_NAME)
+                .tag("state", "available")
+                .gauge().value() > 0);
+        assertEquals(0, meterRegistry.get("httpcomponents.httpclient.pool.total.pending")
+                .tag("httpclient", HttpClientConfig.POOL_NAME)
+                .gauge().value());
+        httpClient.close();
+    }
+
+    // Callers send their requests in bursts, as orders fan out to other services, so every
+    // connection goes idle at the same time between bursts.
+    private void get(RestTemplate restTemplate) throws Exception {
+        String url = "http://localhost:" + serverSocket.getLocalPort() + "/product/1";
+        CyclicBarrier burst = new CyclicBarrier(CALLERS);
+        ExecutorService callers = Executors.newFixedThreadPool(CALLERS);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int i = 0; i < CALLERS; i++) {
+            futures.add(callers.submit(() -> {
+                for (int request = 0; request < REQUESTS_PER_CALLER; request++) {
+                    burst.await();
+                    assertEquals("{}", restTemplate.getForObject(url, String.class));
+                }
+                return null;
+            }));
+        }
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        callers.shutdown();
+        assertTrue(callers.awaitTermination(10, TimeUnit.SECONDS));
+    }
+
+    // Answers every request on a connection with an empty JSON object, keeping the connection open.
+    private static Void serve(Socket socket) throws IOException {
+        try (socket) {
+            BufferedReader reader = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.US_ASCII));
+            OutputStream out = socket.getOutputStream();
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.isEmpty()) {
+                    out.write(("HTTP/1.1 200 OK\r\nContent-Type: application/json\r\nContent-Length: 2\r\n\r\n{}")
+                            .getBytes(StandardCharsets.US_ASCII));
+                    out.flush();
+                }
+            }
+        }
+        return null;
+    }
+}
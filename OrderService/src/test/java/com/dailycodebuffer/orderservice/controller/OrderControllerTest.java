@@ -4,9 +4,13 @@ import com.dailycodebuffer.orderservice.OrderServiceConfig;
 import com.dailycodebuffer.orderservice.entity.Order;
 import com.dailycodebuffer.orderservice.model.OrderRequest;
 import com.dailycodebuffer.orderservice.model.OrderResponse;
+import com.dailycodebuffer.orderservice.model.OrderStatusResponse;
 import com.dailycodebuffer.orderservice.model.PaymentMode;
 import com.dailycodebuffer.orderservice.repository.OrderRepository;
+import com.dailycodebuffer.orderservice.repository.OrderViewRepository;
 import com.dailycodebuffer.orderservice.service.OrderService;
+import com.dailycodebuffer.orderservice.service.OrderServiceImpl;
+import com.dailycodebuffer.orderservice.service.PaymentOutboxRelay;
 import com.fasterxml.jackson.databind.DeserializationFeature;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.SerializationFeature;
@@ -26,31 +30,53 @@ import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.test.context.ContextConfiguration;
 import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.ResultActions;
 import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
 import org.springframework.test.web.servlet.result.MockMvcResultMatchers;
 
 import java.io.IOException;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
 import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import static com.github.tomakehurst.wiremock.client.WireMock.*;
 import static java.nio.charset.Charset.defaultCharset;
-import static org.junit.jupiter.api.Assertions.assertEquals;
-import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.*;
 import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.jwt;
 import static org.springframework.util.StreamUtils.copyToString;
 
-@SpringBootTest({"server.port=0"})
+@SpringBootTest({"server.port=0", "order.downstream.payment-timeout=1s", "order.placement.pipeline.capacity=2",
+        "order.payment.outbox.poll-interval-ms=100"})
 @EnableConfigurationProperties
 @AutoConfigureMockMvc
 @ContextConfiguration(classes = {OrderServiceConfig.class})
 class OrderControllerTest {
 
+    private static final int DOWNSTREAM_DELAY_MS = 500;
+    // Fewer than the connections in the pool, which every read holds until it responds.
+    private static final int CONCURRENT_READS = 8;
+
     @Autowired
     private OrderService orderService;
 
+    @Autowired
+    private OrderServiceImpl orderServiceImpl;
+
     @Autowired
     private OrderRepository orderRepository;
 
+    @Autowired
+    private OrderViewRepository orderViewRepository;
+
+    @Autowired
+    private PaymentOutboxRelay paymentOutboxRelay;
+
     @Autowired
     private MockMvc mockMvc;
 
@@ -69,6 +95,7 @@ class OrderControllerTest {
         doPayment();
         getPaymentDetails();
         reduceQuantity();
+        reserveProduct();
     }
 
     private void reduceQuantity() {
@@ -78,6 +105,19 @@ class OrderControllerTest {
                         .withHeader("Content-Type", MediaType.APPLICATION_JSON_VALUE)));
     }
 
+    private void reserveProduct() throws IOException {
+        wireMockServer.stubFor(post(urlEqualTo("/product/reservations"))
+                .willReturn(aResponse()
+                        .withStatus(HttpStatus.CREATED.value())
+                        .withHeader("Content-Type", MediaType.APPLICATION_JSON_VALUE)
+                        .withBody(copyToString(
+                                OrderControllerTest.class
+                                        .getClassLoader()
+                                        .getResourceAsStream("mock/ReserveProduct.json"),
+                                defaultCharset()
+                        ))));
+    }
+
     private void getPaymentDetails() throws IOException {
         wireMockServer.stubFor(get(urlMatching("/payment/.*"))
                 .willReturn(aResponse()
@@ -94,10 +134,11 @@ class OrderControllerTest {
     }
 
     private void doPayment() {
-        wireMockServer.stubFor(post(urlEqualTo("/payment"))
+        wireMockServer.stubFor(post(urlEqualTo("/payment/batch"))
                 .willReturn(aResponse()
                         .withStatus(HttpStatus.OK.value())
-                        .withHeader("Content-Type", MediaType.APPLICATION_JSON_VALUE)));
+                        .withHeader("Content-Type", MediaType.APPLICATION_JSON_VALUE)
+                        .withBody("[1]")));
     }
 
     private void getProductDetailsResponse() throws IOException {
@@ -169,15 +210,209 @@ class OrderControllerTest {
                 .andReturn();
 
         String orderId = mvcResult.getResponse().getContentAsString();
+        String pendingStatus = orderRepository.findById(Long.valueOf(orderId)).orElseThrow().getOrderStatus();
+        paymentOutboxRelay.drain();
 
         Optional<Order> order = orderRepository.findById(Long.valueOf(orderId));
         assertTrue(order.isPresent());
 
         Order o = order.get();
+        // The relay leaves the view to the first read, so nothing stale is stored.
+        boolean viewStored = orderViewRepository.existsById(o.getId());
+        deleteOrder(o.getId());
+
+        assertEquals("PAYMENT_PENDING", pendingStatus);
         assertEquals(Long.parseLong(orderId), o.getId());
         assertEquals("PLACED", o.getOrderStatus());
         assertEquals(orderRequest.getTotalAmount(), o.getAmount());
         assertEquals(orderRequest.getQuantity(), o.getQuantity());
+        assertFalse(viewStored);
+        wireMockServer.verify(postRequestedFor(urlEqualTo("/payment/batch"))
+                .withRequestBody(matchingJsonPath("$[0].orderId", equalTo(orderId))));
+        wireMockServer.verify(putRequestedFor(urlEqualTo("/product/reservations/1/confirm")));
+    }
+
+    @Test
+    @DisplayName("POST /order - Repeated Idempotency-Key returns the first order")
+    void testPlaceOrderIdempotencyKey() throws Exception {
+        String idempotencyKey = UUID.randomUUID().toString();
+
+        List<String> orderIds = new ArrayList<>();
+        for (int i = 0; i < 2; i++) {
+            orderIds.add(mockMvc.perform(MockMvcRequestBuilders.post("/order")
+                            .with(jwt().authorities(new SimpleGrantedAuthority("Customer")))
+                            .header("Idempotency-Key", idempotencyKey)
+                            .contentType(MediaType.APPLICATION_JSON_VALUE)
+                            .content(objectMapper.writeValueAsString(getMockOrderRequest())))
+                    .andExpect(MockMvcResultMatchers.status().isCreated())
+                    .andReturn().getResponse().getContentAsString());
+        }
+        paymentOutboxRelay.drain();
+        deleteOrder(Long.parseLong(orderIds.get(0)));
+
+        assertEquals(orderIds.get(0), orderIds.get(1));
+        wireMockServer.verify(1, postRequestedFor(urlEqualTo("/product/reservations")));
+        wireMockServer.verify(1, postRequestedFor(urlEqualTo("/payment/batch")));
+    }
+
+    @Test
+    @DisplayName("POST /order/batch - Every order gets a result with one reservation call")
+    void testPlaceOrders() throws Exception {
+        // Mocking
+        wireMockServer.stubFor(post(urlEqualTo("/product/reservations/batch"))
+                .willReturn(aResponse()
+                        .withStatus(HttpStatus.OK.value())
+                        .withHeader("Content-Type", MediaType.APPLICATION_JSON_VALUE)
+                        .withBody("[{\"reservation\":{\"reservationId\":1,\"productId\":1,\"quantity\":10,"
+                                + "\"status\":\"RESERVED\"}}]")));
+        OrderRequest invalid = getMockOrderRequest();
+        invalid.setQuantity(0);
+
+        // Actual
+        MvcResult mvcResult = mockMvc.perform(MockMvcRequestBuilders.post("/order/batch")
+                        .with(jwt().authorities(new SimpleGrantedAuthority("Customer")))
+                        .contentType(MediaType.APPLICATION_JSON_VALUE)
+                        .content(objectMapper.writeValueAsString(List.of(getMockOrderRequest(), invalid))))
+                .andExpect(MockMvcResultMatchers.status().isOk())
+                .andExpect(MockMvcResultMatchers.jsonPath("$[0].orderStatus").value("PAYMENT_PENDING"))
+                .andExpect(MockMvcResultMatchers.jsonPath("$[1].error.errorCode").value("INVALID_ORDER"))
+                .andExpect(MockMvcResultMatchers.jsonPath("$[1].orderId").doesNotExist())
+                .andReturn();
+        long orderId = objectMapper.readTree(mvcResult.getResponse().getContentAsString()).get(0).get("orderId").asLong();
+        paymentOutboxRelay.drain();
+        Order order = orderRepository.findById(orderId).orElseThrow();
+        deleteOrder(orderId);
+
+        // Assertion
+        assertEquals("PLACED", order.getOrderStatus());
+        wireMockServer.verify(1, postRequestedFor(urlEqualTo("/product/reservations/batch"))
+                .withRequestBody(matchingJsonPath("$.length()", equalTo("1"))));
+        wireMockServer.verify(0, postRequestedFor(urlEqualTo("/product/reservations")));
+    }
+
+    @Test
+    @DisplayName("POST /order/async - Accepted and placed in the background")
+    void testAcceptOrderPlaced() throws Exception {
+        // Actual
+        MvcResult mvcResult = acceptOrder(getMockOrderRequest())
+                .andExpect(MockMvcResultMatchers.status().isAccepted())
+                .andReturn();
+        long orderId = Long.parseLong(mvcResult.getResponse().getContentAsString());
+        OrderStatusResponse orderStatus = awaitOrderStatus(orderId);
+        Order order = orderRepository.findById(orderId).orElseThrow();
+        deleteOrder(orderId);
+
+        // Assertion
+        assertEquals("/order/" + orderId + "/status", mvcResult.getResponse().getHeader("Location"));
+        assertEquals("PLACED", orderStatus.getOrderStatus());
+        assertEquals("PLACED", order.getOrderStatus());
+        wireMockServer.verify(putRequestedFor(urlEqualTo("/product/reservations/1/confirm")));
+    }
+
+    @Test
+    @DisplayName("POST /order/async - Reservation failure is the final status")
+    void testAcceptOrderReservationFailed() throws Exception {
+        wireMockServer.stubFor(post(urlEqualTo("/product/reservations"))
+                .willReturn(aResponse()
+                        .withStatus(HttpStatus.CONFLICT.value())
+                        .withHeader("Content-Type", MediaType.APPLICATION_JSON_VALUE)
+                        .withBody("{\"errorMessage\":\"Product does not have sufficient quantity!\","
+                                + "\"errorCode\":\"INSUFFICIENT_QUANTITY\"}")));
+
+        MvcResult mvcResult = acceptOrder(getMockOrderRequest())
+                .andExpect(MockMvcResultMatchers.status().isAccepted())
+                .andReturn();
+        long orderId = Long.parseLong(mvcResult.getResponse().getContentAsString());
+        OrderStatusResponse orderStatus = awaitOrderStatus(orderId);
+        deleteOrder(orderId);
+
+        assertEquals("RESERVATION_FAILED", orderStatus.getOrderStatus());
+        wireMockServer.verify(0, postRequestedFor(urlEqualTo("/payment/batch")));
+    }
+
+    @Test
+    @DisplayName("POST /order/async - Turned away while the pipeline is full")
+    void testAcceptOrderPipelineFull() throws Exception {
+        // Mocking
+        wireMockServer.stubFor(post(urlEqualTo("/payment/batch"))
+                .willReturn(aResponse()
+                        .withStatus(HttpStatus.OK.value())
+                        .withHeader("Content-Type", MediaType.APPLICATION_JSON_VALUE)
+                        .withBody("[1]")
+                        .withFixedDelay(1000)));
+
+        // Actual
+        List<Long> orderIds = new ArrayList<>();
+        for (int i = 0; i < 2; i++) {
+            orderIds.add(Long.parseLong(acceptOrder(getMockOrderRequest())
+                    .andExpect(MockMvcResultMatchers.status().isAccepted())
+                    .andReturn().getResponse().getContentAsString()));
+        }
+        acceptOrder(getMockOrderRequest())
+                .andExpect(MockMvcResultMatchers.status().isServiceUnavailable())
+                .andExpect(MockMvcResultMatchers.jsonPath("$.errorCode").value("ORDER_PIPELINE_FULL"));
+
+        // Assertion
+        for (long orderId : orderIds) {
+            assertEquals("PLACED", awaitOrderStatus(orderId).getOrderStatus());
+            deleteOrder(orderId);
+        }
+        acceptOrder(OrderRequest.builder().productId(1).quantity(0).paymentMode(PaymentMode.CASH).build())
+                .andExpect(MockMvcResultMatchers.status().isBadRequest());
+    }
+
+    @Test
+    @DisplayName("POST /order/async - Order left CREATED after its claim ran out is placed again")
+    void testStrandedOrderResumed() throws Exception {
+        // Mocking
+        long strandedOrderId = saveCreatedOrder(Instant.now().minusSeconds(1));
+        long claimedOrderId = saveCreatedOrder(Instant.now().plusSeconds(60));
+
+        // Actual
+        orderServiceImpl.resumeStrandedOrders();
+        OrderStatusResponse orderStatus = awaitOrderStatus(strandedOrderId);
+        Order stranded = orderRepository.findById(strandedOrderId).orElseThrow();
+        Order claimed = orderRepository.findById(claimedOrderId).orElseThrow();
+        deleteOrder(strandedOrderId);
+        deleteOrder(claimedOrderId);
+
+        // Assertion
+        assertEquals("PLACED", orderStatus.getOrderStatus());
+        assertEquals("PLACED", stranded.getOrderStatus());
+        assertTrue(stranded.getClaimedUntil().isAfter(Instant.now()));
+        assertEquals("CREATED", claimed.getOrderStatus());
+    }
+
+    private long saveCreatedOrder(Instant claimedUntil) {
+        return orderRepository.save(Order.builder()
+                        .productId(1)
+                        .quantity(1)
+                        .amount(1000)
+                        .orderStatus("CREATED")
+                        .orderDate(Instant.now())
+                        .paymentMode(PaymentMode.CASH)
+                        .claimedUntil(claimedUntil)
+                        .build())
+                .getId();
+    }
+
+    private ResultActions acceptOrder(OrderRequest orderRequest) throws Exception {
+        return mockMvc.perform(MockMvcRequestBuilders.post("/order/async")
+                .with(jwt().authorities(new SimpleGrantedAuthority("Customer")))
+                .contentType(MediaType.APPLICATION_JSON_VALUE)
+                .content(objectMapper.writeValueAsString(orderRequest)));
+    }
+
+    private OrderStatusResponse awaitOrderStatus(long orderId) throws Exception {
+        MvcResult mvcResult = mockMvc.perform(MockMvcRequestBuilders.get("/order/" + orderId + "/status")
+                        .param("waitSeconds", "10")
+                        .with(jwt().authorities(new SimpleGrantedAuthority("Customer"))))
+                .andExpect(MockMvcResultMatchers.request().asyncStarted())
+                .andReturn();
+        MvcResult result = mockMvc.perform(MockMvcRequestBuilders.asyncDispatch(mvcResult))
+                .andExpect(MockMvcResultMatchers.status().isOk())
+                .andReturn();
+        return objectMapper.readValue(result.getResponse().getContentAsString(), OrderStatusResponse.class);
     }
 
     @Test
@@ -211,6 +446,156 @@ class OrderControllerTest {
 //        assertEquals(expectedResponse,actualResponse);
     }
 
+    @Test
+    @DisplayName("GET /order - Product and payment details are fetched concurrently")
+    void testGetOrderFetchesDetailsConcurrently() throws Exception {
+        // Mocking
+        long orderId = saveOrder();
+        delayProductAndPayment(DOWNSTREAM_DELAY_MS, DOWNSTREAM_DELAY_MS);
+        getOrder(orderId);
+        deleteOrderView(orderId);
+
+        // Actual
+        long startedAt = System.nanoTime();
+        OrderResponse orderResponse = getOrder(orderId);
+        long elapsedMillis = (System.nanoTime() - startedAt) / 1_000_000;
+        deleteOrder(orderId);
+
+        // Assertion
+        assertEquals(orderId, orderResponse.getOrderId());
+        assertEquals("iPhone", orderResponse.getProductDetails().getProductName());
+        assertNotNull(orderResponse.getPaymentDetails());
+        assertNull(orderResponse.getDownstreamErrors());
+        assertTrue(elapsedMillis >= DOWNSTREAM_DELAY_MS, "took " + elapsedMillis + " ms");
+        assertTrue(elapsedMillis < 2 * DOWNSTREAM_DELAY_MS, "took " + elapsedMillis + " ms");
+    }
+
+    @Test
+    @DisplayName("GET /order - Simultaneous reads of orders of one product share one product call")
+    void testGetOrdersShareProductCall() throws Exception {
+        // Mocking
+        List<Long> orderIds = new ArrayList<>();
+        for (int i = 0; i < CONCURRENT_READS; i++) {
+            orderIds.add(saveOrder());
+        }
+        // Long enough for every read to arrive while the first product call is in flight.
+        delayProductAndPayment(3 * DOWNSTREAM_DELAY_MS, 0);
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService readers = Executors.newFixedThreadPool(CONCURRENT_READS);
+
+        // Actual
+        List<Future<OrderResponse>> reads = new ArrayList<>();
+        for (long orderId : orderIds) {
+            reads.add(readers.submit(() -> {
+                start.await();
+                return getOrder(orderId);
+            }));
+        }
+        start.countDown();
+        List<OrderResponse> orderResponses = new ArrayList<>();
+        for (Future<OrderResponse> read : reads) {
+            orderResponses.add(read.get());
+        }
+        readers.shutdown();
+        orderIds.forEach(this::deleteOrder);
+
+        // Verification
+        wireMockServer.verify(1, getRequestedFor(urlEqualTo("/product/1")));
+        wireMockServer.verify(CONCURRENT_READS, getRequestedFor(urlMatching("/payment/order/.*")));
+
+        // Assertion
+        for (OrderResponse orderResponse : orderResponses) {
+            assertEquals("iPhone", orderResponse.getProductDetails().getProductName());
+            assertNull(orderResponse.getDownstreamErrors());
+        }
+    }
+
+    @Test
+    @DisplayName("GET /order - Slow payment service is reported instead of failing the order")
+    void testGetOrderPaymentTimeout() throws Exception {
+        long orderId = saveOrder();
+        delayProductAndPayment(0, 1500);
+
+        OrderResponse orderResponse = getOrder(orderId);
+        deleteOrder(orderId);
+
+        assertEquals("iPhone", orderResponse.getProductDetails().getProductName());
+        assertNull(orderResponse.getPaymentDetails());
+        assertEquals(1, orderResponse.getDownstreamErrors().size());
+        assertEquals("PAYMENT-SERVICE", orderResponse.getDownstreamErrors().get(0).getService());
+        assertEquals("TIMEOUT", orderResponse.getDownstreamErrors().get(0).getErrorCode());
+    }
+
+    @Test
+    @DisplayName("GET /order - Served from the order view once it is written")
+    void testGetOrderFromView() throws Exception {
+        // Mocking
+        long orderId = saveOrder();
+        OrderResponse fetched = getOrder(orderId);
+        wireMockServer.stubFor(get(urlMatching("/(product|payment)/.*"))
+                .willReturn(aResponse().withStatus(HttpStatus.SERVICE_UNAVAILABLE.value())));
+
+        // Actual
+        OrderResponse viewed = getOrder(orderId);
+        deleteOrder(orderId);
+
+        // Verification
+        wireMockServer.verify(1, getRequestedFor(urlEqualTo("/product/1")));
+        wireMockServer.verify(1, getRequestedFor(urlEqualTo("/payment/order/" + orderId)));
+
+        // Assertion
+        assertEquals(objectMapper.writeValueAsString(fetched), objectMapper.writeValueAsString(viewed));
+        assertEquals("iPhone", viewed.getProductDetails().getProductName());
+    }
+
+    private void deleteOrder(long orderId) {
+        deleteOrderView(orderId);
+        orderRepository.deleteById(orderId);
+    }
+
+    private void deleteOrderView(long orderId) {
+        orderViewRepository.findById(orderId).ifPresent(orderViewRepository::delete);
+    }
+
+    private long saveOrder() {
+        return orderRepository.save(Order.builder()
+                        .productId(1)
+                        .quantity(10)
+                        .amount(200)
+                        .orderStatus("PLACED")
+                        .orderDate(Instant.now())
+                        .build())
+                .getId();
+    }
+
+    private void delayProductAndPayment(int productDelayMs, int paymentDelayMs) throws IOException {
+        wireMockServer.stubFor(get("/product/1")
+                .willReturn(aResponse()
+                        .withStatus(HttpStatus.OK.value())
+                        .withHeader("Content-Type", MediaType.APPLICATION_JSON_VALUE)
+                        .withBody(copyToString(
+                                OrderControllerTest.class.getClassLoader().getResourceAsStream("mock/GetProduct.json"),
+                                defaultCharset()))
+                        .withFixedDelay(productDelayMs)));
+        wireMockServer.stubFor(get(urlMatching("/payment/.*"))
+                .willReturn(aResponse()
+                        .withStatus(HttpStatus.OK.value())
+                        .withHeader("Content-Type", MediaType.APPLICATION_JSON_VALUE)
+                        .withBody(copyToString(
+                                OrderControllerTest.class.getClassLoader().getResourceAsStream("mock/GetPayment.json"),
+                                defaultCharset()))
+                        .withFixedDelay(paymentDelayMs)));
+    }
+
+    private OrderResponse getOrder(long orderId) throws Exception {
+        MvcResult mvcResult = mockMvc.perform(MockMvcRequestBuilders.get("/order/" + orderId)
+                        .with(jwt().authorities(new SimpleGrantedAuthority("Customer")))
+                        .contentType(MediaType.APPLICATION_JSON_VALUE))
+                .andExpect(MockMvcResultMatchers.status().isOk())
+                .andReturn();
+        return objectMapper.readValue(mvcResult.getResponse().getContentAsString(), OrderResponse.class);
+    }
+
     @Test
     @DisplayName("GET /order - Not Found Scenario")
     void testGetOrderFailure() throws Exception {
@@ -0,0 +1,228 @@
+package com.dailycodebuffer.orderservice.controller;
+
+import com.dailycodebuffer.orderservice.OrderServiceConfig;
+import com.dailycodebuffer.orderservice.entity.Order;
+import com.dailycodebuffer.orderservice.model.OrderResponse;
+import com.dailycodebuffer.orderservice.repository.OrderRepository;
+import com.dailycodebuffer.orderservice.repository.OrderViewRepository;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.tomakehurst.wiremock.core.WireMockConfiguration;
+import com.github.tomakehurst.wiremock.junit5.WireMockExtension;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.ResultMatcher;
+import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
+import org.springframework.test.web.servlet.result.MockMvcResultMatchers;
+
+import java.io.IOException;
+import java.time.Instant;
+
+import static com.github.tomakehurst.wiremock.client.WireMock.*;
+import static java.nio.charset.Charset.defaultCharset;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.jwt;
+import static org.springframework.util.StreamUtils.copyToString;
+
+@SpringBootTest({"server.port=0", "order.reactive.enabled=true", "order.downstream.payment-timeout=1s",
+        "spring.datasource.url=jdbc:h2:mem:order-reactive"})
+@AutoConfigureMockMvc
+@ContextConfiguration(classes = {OrderServiceConfig.class})
+class ReactiveOrderControllerTest {
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @Autowired
+    private OrderViewRepository orderViewRepository;
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private CircuitBreakerRegistry circuitBreakerRegistry;
+
+    @RegisterExtension
+    static WireMockExtension wireMockServer = WireMockExtension.newInstance()
+            .options(WireMockConfiguration.wireMockConfig().port(8080))
+            .build();
+
+    private final ObjectMapper objectMapper = new ObjectMapper().findAndRegisterModules()
+            .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+
+    @BeforeEach
+    void setup() throws IOException {
+        delayProductAndPayment(0);
+    }
+
+    @Test
+    @DisplayName("GET /order/reactive - Success Scenario")
+    void testGetOrderSuccess() throws Exception {
+        // Mocking
+        long orderId = saveOrder();
+
+        // Actual
+        OrderResponse orderResponse = getOrder(orderId);
+        boolean viewWritten = orderViewRepository.existsById(orderId);
+        deleteOrder(orderId);
+
+        // Verification
+        wireMockServer.verify(1, getRequestedFor(urlEqualTo("/product/1")));
+        wireMockServer.verify(1, getRequestedFor(urlEqualTo("/payment/order/" + orderId)));
+
+        // Assertion
+        assertEquals(orderId, orderResponse.getOrderId());
+        assertEquals("iPhone", orderResponse.getProductDetails().getProductName());
+        assertEquals("SUCCESS", orderResponse.getPaymentDetails().getStatus());
+        assertNull(orderResponse.getDownstreamErrors());
+        assertTrue(viewWritten);
+    }
+
+    @Test
+    @DisplayName("GET /order/reactive - Served from the order view once it is written")
+    void testGetOrderFromView() throws Exception {
+        // Mocking
+        long orderId = saveOrder();
+        OrderResponse fetched = getOrder(orderId);
+        wireMockServer.stubFor(get(urlMatching("/(product|payment)/.*"))
+                .willReturn(aResponse().withStatus(HttpStatus.SERVICE_UNAVAILABLE.value())));
+
+        // Actual
+        OrderResponse viewed = getOrder(orderId);
+        deleteOrder(orderId);
+
+        // Verification
+        wireMockServer.verify(1, getRequestedFor(urlEqualTo("/product/1")));
+
+        // Assertion
+        assertEquals(objectMapper.writeValueAsString(fetched), objectMapper.writeValueAsString(viewed));
+    }
+
+    @Test
+    @DisplayName("GET /order/reactive - Slow payment service is reported instead of failing the order")
+    void testGetOrderPaymentTimeout() throws Exception {
+        // Mocking
+        long orderId = saveOrder();
+        delayProductAndPayment(1500);
+
+        // Actual
+        OrderResponse orderResponse = getOrder(orderId);
+        boolean viewWritten = orderViewRepository.existsById(orderId);
+        deleteOrder(orderId);
+
+        // Assertion
+        assertEquals("iPhone", orderResponse.getProductDetails().getProductName());
+        assertNull(orderResponse.getPaymentDetails());
+        assertEquals(1, orderResponse.getDownstreamErrors().size());
+        assertEquals("PAYMENT-SERVICE", orderResponse.getDownstreamErrors().get(0).getService());
+        assertEquals("TIMEOUT", orderResponse.getDownstreamErrors().get(0).getErrorCode());
+        assertFalse(viewWritten);
+    }
+
+    @Test
+    @DisplayName("GET /order/reactive - Open circuit breaker is reported without calling other services")
+    void testGetOrderCircuitOpen() throws Exception {
+        // Mocking
+        long orderId = saveOrder();
+        CircuitBreaker circuitBreaker = circuitBreakerRegistry.circuitBreaker("external");
+        circuitBreaker.transitionToForcedOpenState();
+
+        // Actual
+        OrderResponse orderResponse;
+        try {
+            orderResponse = getOrder(orderId);
+        } finally {
+            circuitBreaker.reset();
+        }
+        deleteOrder(orderId);
+
+        // Assertion
+        assertNull(orderResponse.getProductDetails());
+        assertEquals(2, orderResponse.getDownstreamErrors().size());
+        assertTrue(orderResponse.getDownstreamErrors().stream()
+                .allMatch(downstreamError -> "UNAVAILABLE".equals(downstreamError.getErrorCode())));
+
+        // Verification
+        wireMockServer.verify(0, getRequestedFor(urlMatching("/(product|payment)/.*")));
+    }
+
+    @Test
+    @DisplayName("GET /order/reactive - Not Found Scenario")
+    void testGetOrderFailure() throws Exception {
+        MvcResult mvcResult = dispatch(-1, MockMvcResultMatchers.status().isNotFound());
+
+        assertTrue(mvcResult.getResponse().getContentAsString().contains("ORDER_NOT_FOUND"));
+    }
+
+    @Test
+    @DisplayName("GET /order/reactive - Wrong Access Scenario")
+    void testGetOrderWithWrongAccess() throws Exception {
+        mockMvc.perform(MockMvcRequestBuilders.get("/order/reactive/1")
+                        .with(jwt())
+                        .contentType(MediaType.APPLICATION_JSON_VALUE))
+                .andExpect(MockMvcResultMatchers.status().isForbidden());
+    }
+
+    private OrderResponse getOrder(long orderId) throws Exception {
+        MvcResult mvcResult = dispatch(orderId, MockMvcResultMatchers.status().isOk());
+        return objectMapper.readValue(mvcResult.getResponse().getContentAsString(), OrderResponse.class);
+    }
+
+    private MvcResult dispatch(long orderId, ResultMatcher status) throws Exception {
+        MvcResult mvcResult = mockMvc.perform(MockMvcRequestBuilders.get("/order/reactive/" + orderId)
+                        .with(jwt().authorities(new SimpleGrantedAuthority("Customer")))
+                        .contentType(MediaType.APPLICATION_JSON_VALUE))
+                .andExpect(MockMvcResultMatchers.request().asyncStarted())
+                .andReturn();
+        return mockMvc.perform(MockMvcRequestBuilders.asyncDispatch(mvcResult))
+                .andExpect(status)
+                .andReturn();
+    }
+
+    private long saveOrder() {
+        return orderRepository.save(Order.builder()
+                        .productId(1)
+                        .quantity(10)
+                        .amount(200)
+                        .orderStatus("PLACED")
+                        .orderDate(Instant.now())
+                        .build())
+                .getId();
+    }
+
+    private void deleteOrder(long orderId) {
+        orderViewRepository.findById(orderId).ifPresent(orderViewRepository::delete);
+        orderRepository.deleteById(orderId);
+    }
+
+    private void delayProductAndPayment(int paymentDelayMs) throws IOException {
+        wireMockServer.stubFor(get("/product/1")
+                .willReturn(aResponse()
+                        .withStatus(HttpStatus.OK.value())
+                        .withHeader("Content-Type", MediaType.APPLICATION_JSON_VALUE)
+                        .withBody(copyToString(
+                                ReactiveOrderControllerTest.class.getClassLoader().getResourceAsStream("mock/GetProduct.json"),
+                                defaultCharset()))));
+        wireMockServer.stubFor(get(urlMatching("/payment/.*"))
+                .willReturn(aResponse()
+                        .withStatus(HttpStatus.OK.value())
+                        .withHeader("Content-Type", MediaType.APPLICATION_JSON_VALUE)
+                        .withBody(copyToString(
+                                ReactiveOrderControllerTest.class.getClassLoader().getResourceAsStream("mock/GetPayment.json"),
+                                defaultCharset()))
+                        .withFixedDelay(paymentDelayMs)));
+    }
+}
@@ -0,0 +1,320 @@
+package com.dailycodebuffer.orderservice.controller;
+
+import com.dailycodebuffer.orderservice.OrderServiceConfig;
+import com.dailycodebuffer.orderservice.entity.Order;
+import com.dailycodebuffer.orderservice.external.intercept.AccessTokenProvider;
+import com.dailycodebuffer.orderservice.repository.OrderRepository;
+import lombok.extern.log4j.Log4j2;
+import org.apache.tomcat.util.threads.ThreadPoolExecutor;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.boot.web.embedded.tomcat.TomcatWebServer;
+import org.springframework.boot.web.servlet.context.ServletWebServerApplicationContext;
+import org.springframework.context.annotation.Bean;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.security.oauth2.jwt.JwtDecoder;
+import org.springframework.security.oauth2.server.resource.authentication.JwtAuthenticationConverter;
+import org.springframework.security.oauth2.server.resource.authentication.JwtGrantedAuthoritiesConverter;
+import org.springframework.test.context.ContextConfiguration;
+import reactor.core.publisher.Mono;
+import reactor.netty.DisposableServer;
+import reactor.netty.http.server.HttpServer;
+
+import java.io.BufferedReader;
+import java.io.InputStreamReader;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.when;
+
+/**
+ * Reads orders with 1k and 10k connections open at once, through the blocking and the reactive
+ * endpoint, and compares how many reads each answers per second and what the service uses for it.
+ * The connections are opened by a separate JVM, since one process may not hold both ends of 10k
+ * connections here.
+ */
+@Tag("benchmark")
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = {
+        "order.reactive.enabled=true",
+        "spring.sleuth.reactor.instrumentation-type=decorate_queues",
+        "spring.datasource.url=jdbc:h2:mem:order-reactive-load",
+        // Reads are answered as fast as the service can, rather than cut short, on however few CPUs it gets here.
+        "order.downstream.product-timeout=5m",
+        "order.http.connection-request-timeout=5m",
+        "order.http.read-timeout=5m",
+        "order.reactive.jdbc-queue-capacity=10000",
+        "spring.mvc.async.request-timeout=5m",
+        // Blocking reads that wait this long for a connection fail, so they cannot queue up for minutes.
+        "spring.datasource.hikari.connection-timeout=1000",
+        "server.tomcat.max-connections=12000",
+        "server.tomcat.accept-count=10000",
+        "logging.level.com.dailycodebuffer.orderservice=WARN",
+        "logging.level.org.springframework.web.servlet.mvc.method.annotation=ERROR",
+        "logging.level.org.hibernate.engine.jdbc.spi.SqlExceptionHelper=OFF",
+        "logging.level.com.zaxxer.hikari=ERROR"
+})
+@ContextConfiguration(classes = {OrderServiceConfig.class, ReactiveOrderLoadTest.GroupsConfig.class})
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+@Log4j2
+class ReactiveOrderLoadTest {
+
+    // A slow ProductService, which every read waits for: where a thread held per read costs the most.
+    private static final long PRODUCT_LATENCY_MS = 500;
+    private static final int ORDERS = 10_000;
+
+    @LocalServerPort
+    private int port;
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @Autowired
+    private ServletWebServerApplicationContext webServerApplicationContext;
+
+    @MockBean
+    private JwtDecoder jwtDecoder;
+
+    @MockBean
+    private AccessTokenProvider accessTokenProvider;
+
+    private DisposableServer productService;
+
+    private final List<Long> orderIds = new ArrayList<>();
+
+    @BeforeAll
+    void setup() {
+        productService = HttpServer.create()
+                .port(8080)
+                .route(routes -> routes.get("/product/{productId}", (request, response) -> response
+                        .header("Content-Type", "application/json")
+                        .sendString(Mono.delay(Duration.ofMillis(PRODUCT_LATENCY_MS))
+                                .thenReturn("{\"productId\":" + request.param("productId") + ",\"productName\":\"iPhone\"}"))))
+                .bindNow();
+
+        // Orders still being placed, so no read writes a view the next one would be served from.
+        List<Order> orders = new ArrayList<>(ORDERS);
+        for (int i = 0; i < ORDERS; i++) {
+            orders.add(Order.builder()
+                    .productId(i + 1)
+                    .quantity(1)
+                    .amount(100)
+                    .orderStatus("PAYMENT_PENDING")
+                    .orderDate(Instant.now())
+                    .build());
+        }
+        orderRepository.saveAll(orders).forEach(order -> orderIds.add(order.getId()));
+    }
+
+    @AfterAll
+    void tearDown() {
+        productService.disposeNow();
+    }
+
+    // Grants the groups of the token, as Okta sends them, so that real requests can be authorized.
+    @TestConfiguration
+    static class GroupsConfig {
+
+        @Bean
+        JwtAuthenticationConverter jwtAuthenticationConverter() {
+            JwtGrantedAuthoritiesConverter grantedAuthoritiesConverter = new JwtGrantedAuthoritiesConverter();
+            grantedAuthoritiesConverter.setAuthoritiesClaimName("groups");
+            grantedAuthoritiesConverter.setAuthorityPrefix("");
+            JwtAuthenticationConverter jwtAuthenticationConverter = new JwtAuthenticationConverter();
+            jwtAuthenticationConverter.setJwtGrantedAuthoritiesConverter(grantedAuthoritiesConverter);
+            return jwtAuthenticationConverter;
+        }
+    }
+
+    @Test
+    @DisplayName("GET /order/reactive - Reads per second against GET /order at 1k and 10k connections")
+    void benchmarkReactiveAgainstBlocking() throws Exception {
+        // Mocking
+        when(jwtDecoder.decode(anyString())).thenReturn(Jwt.withTokenValue("token")
+                .header("alg", "none")
+                .subject("customer")
+                .claim("groups", List.of("Customer"))
+                .build());
+        when(accessTokenProvider.authorizationHeader()).thenReturn("Bearer token");
+        load("/order/", 200);
+        load("/order/reactive/", 200);
+
+        // Actual
+        Result blocking1k = load("/order/", 1_000);
+        Result reactive1k = load("/order/reactive/", 1_000);
+        Result blocking10k = load("/order/", 10_000);
+        Result reactive10k = load("/order/reactive/", 10_000);
+        for (Result result : List.of(blocking1k, reactive1k, blocking10k, reactive10k)) {
+            log.warn("{}", result);
+        }
+
+        // Assertion
+        assertEquals(10_000, reactive10k.answered);
+    }
+
+    /**
+     * Opens {@code connections} connections from a new JVM and reads a different order on each,
+     * all at once, while sampling the heap of this one and how many of its request threads are busy.
+     */
+    private Result load(String path, int connections) throws Exception {
+        MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+        ThreadPoolExecutor requestThreads = (ThreadPoolExecutor) ((TomcatWebServer) webServerApplicationContext.getWebServer())
+                .getTomcat().getConnector().getProtocolHandler().getExecutor();
+        System.gc();
+        AtomicLong peakHeap = new AtomicLong();
+        AtomicInteger peakBusyThreads = new AtomicInteger();
+        ScheduledExecutorService sampler = Executors.newSingleThreadScheduledExecutor();
+        sampler.scheduleAtFixedRate(() -> {
+            peakHeap.accumulateAndGet(memory.getHeapMemoryUsage().getUsed(), Math::max);
+            peakBusyThreads.accumulateAndGet(requestThreads.getActiveCount(), Math::max);
+        }, 0, 20, TimeUnit.MILLISECONDS);
+
+        Process client = new ProcessBuilder(
+                Paths.get(System.getProperty("java.home"), "bin", "java").toString(),
+                "-Xmx512m",
+                "-cp", System.getProperty("java.class.path"),
+                LoadClient.class.getName(),
+                "http://localhost:" + port + path,
+                String.valueOf(connections),
+                orderIds.get(0) + "," + orderIds.get(orderIds.size() - 1))
+                .redirectErrorStream(true)
+                .start();
+        String summary = null;
+        try (BufferedReader output = new BufferedReader(new InputStreamReader(client.getInputStream()))) {
+            String line;
+            while ((line = output.readLine()) != null) {
+                if (line.startsWith(LoadClient.SUMMARY)) {
+                    summary = line.substring(LoadClient.SUMMARY.length());
+                } else {
+                    log.warn("Load client: {}", line);
+                }
+            }
+        }
+        assertTrue(client.waitFor(5, TimeUnit.MINUTES));
+        sampler.shutdown();
+        assertNotNull(summary, "No summary from the load client");
+
+        String[] counts = summary.split(",");
+        return new Result(path, connections, Integer.parseInt(counts[0]), Integer.parseInt(counts[1]),
+                Long.parseLong(counts[2]), peakHeap.get(), peakBusyThreads.get());
+    }
+
+    private static class Result {
+        private final String path;
+        private final int connections;
+        private final int answered;
+        private final int complete;
+        private final long millis;
+        private final long peakHeap;
+        private final int peakBusyThreads;
+
+        private Result(String path, int connections, int answered, int complete, long millis, long peakHeap,
+                       int peakBusyThreads) {
+            this.path = path;
+            this.connections = connections;
+            this.answered = answered;
+            this.complete = complete;
+            this.millis = millis;
+            this.peakHeap = peakHeap;
+            this.peakBusyThreads = peakBusyThreads;
+        }
+
+        // Reads answered with all of their details; errors and degraded answers do not count.
+        private long readsPerSecond() {
+            return complete * 1000L / Math.max(1, millis);
+        }
+
+        @Override
+        public String toString() {
+            return String.format("GET %s{orderId} with %d connections: %d answered, %d complete in %d ms,"
+                            + " %d complete reads/s, peak heap %d MB, peak busy request threads %d",
+                    path, connections, answered, complete, millis, readsPerSecond(), peakHeap >> 20, peakBusyThreads);
+        }
+    }
+
+    /**
+     * Sends one read per connection, all at once, and prints how many were answered with 200, how
+     * many of those had all their details, and how long it took until the last one was answered.
+     */
+    static class LoadClient {
+
+        static final String SUMMARY = "SUMMARY ";
+
+        public static void main(String[] args) throws Exception {
+            String url = args[0];
+            int connections = Integer.parseInt(args[1]);
+            String[] orderIds = args[2].split(",");
+            long firstOrderId = Long.parseLong(orderIds[0]);
+            long orders = Long.parseLong(orderIds[1]) - firstOrderId + 1;
+
+            HttpClient httpClient = HttpClient.newBuilder()
+                    .version(HttpClient.Version.HTTP_1_1)
+                    .executor(Executors.newFixedThreadPool(4))
+                    .connectTimeout(Duration.ofSeconds(30))
+                    .build();
+            AtomicInteger answered = new AtomicInteger();
+            AtomicInteger complete = new AtomicInteger();
+            Map<String, AtomicInteger> failures = new ConcurrentHashMap<>();
+            List<CompletableFuture<?>> reads = new ArrayList<>(connections);
+            long startedAt = System.nanoTime();
+            for (int i = 0; i < connections; i++) {
+                HttpRequest request = HttpRequest.newBuilder(URI.create(url + (firstOrderId + i % orders)))
+                        .header("Authorization", "Bearer token")
+                        .timeout(Duration.ofMinutes(2))
+                        .build();
+                reads.add(httpClient.sendAsync(request, HttpResponse.BodyHandlers.ofString())
+                        .thenAccept(response -> {
+                            if (response.statusCode() == 200) {
+                                answered.incrementAndGet();
+                                if (!response.body().contains("downstreamErrors")) {
+                                    complete.incrementAndGet();
+                                }
+                            } else {
+                                failures.computeIfAbsent(String.valueOf(response.statusCode()), status -> new AtomicInteger())
+                                        .incrementAndGet();
+                            }
+                        })
+                        .exceptionally(e -> {
+                            failures.computeIfAbsent(e.getCause().getClass().getSimpleName(), error -> new AtomicInteger())
+                                    .incrementAndGet();
+                            return null;
+                        }));
+            }
+            CompletableFuture.allOf(reads.toArray(new CompletableFuture[0])).join();
+            long millis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startedAt);
+
+            if (!failures.isEmpty()) {
+                System.out.println("Failed reads: " + failures);
+            }
+            System.out.println(SUMMARY + answered.get() + "," + complete.get() + "," + millis);
+            System.exit(0);
+        }
+    }
+}
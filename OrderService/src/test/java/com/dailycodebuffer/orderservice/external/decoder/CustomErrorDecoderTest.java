@@ -0,0 +1,198 @@
+package com.dailycodebuffer.orderservice.external.decoder;
+
+import com.dailycodebuffer.orderservice.exception.OrderServiceException;
+import com.dailycodebuffer.orderservice.exception.RestResponseEntityExceptionHandler;
+import com.dailycodebuffer.orderservice.external.response.ErrorResponse;
+import com.dailycodebuffer.orderservice.external.response.ProductResponse;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import feign.Request;
+import feign.Response;
+import feign.codec.ErrorDecoder;
+import lombok.extern.log4j.Log4j2;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.logging.LogLevel;
+import org.springframework.boot.logging.LoggingSystem;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@Log4j2
+class CustomErrorDecoderTest {
+
+    private static final int CALLERS = 16;
+    private static final int CALLS = 20_000;
+
+    private static final Request REQUEST = Request.create(Request.HttpMethod.GET, "http://PRODUCT-SERVICE/product/1",
+            Map.of("Authorization", List.of("Bearer token"), "Accept", List.of("application/json")),
+            null, StandardCharsets.UTF_8, null);
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final CustomErrorDecoder customErrorDecoder = new CustomErrorDecoder(objectMapper, Duration.ofSeconds(1));
+    private final RestResponseEntityExceptionHandler exceptionHandler = new RestResponseEntityExceptionHandler();
+
+    // Nothing configures logging outside a Spring Boot test, and DEBUG logging would dominate the timings.
+    @BeforeAll
+    static void setupLogging() {
+        LoggingSystem.get(CustomErrorDecoderTest.class.getClassLoader()).setLogLevel(LoggingSystem.ROOT_LOGGER_NAME, LogLevel.INFO);
+    }
+
+    @Test
+    @DisplayName("Error Decoder - Client error response is decoded into a stackless exception")
+    void testDecode() {
+        Exception exception = customErrorDecoder.decode("ProductService#reserve",
+                response(404, "{\"errorMessage\":\"Product with given id not found!\",\"errorCode\":\"PRODUCT_NOT_FOUND\"}"));
+
+        OrderServiceException orderServiceException = assertInstanceOf(OrderServiceException.class, exception);
+        assertEquals("Product with given id not found!", orderServiceException.getMessage());
+        assertEquals("PRODUCT_NOT_FOUND", orderServiceException.getErrorCode());
+        assertEquals(404, orderServiceException.getStatus());
+        assertEquals(0, orderServiceException.getStackTrace().length);
+    }
+
+    @Test
+    @DisplayName("Error Decoder - Server error response keeps its stack trace")
+    void testDecodeServerError() {
+        OrderServiceException exception = assertInstanceOf(OrderServiceException.class,
+                customErrorDecoder.decode("ProductService#reserve",
+                        response(503, "{\"errorMessage\":\"Product service is offline!\",\"errorCode\":\"PRODUCT_SERVICE_OFFLINE\"}")));
+
+        assertEquals("PRODUCT_SERVICE_OFFLINE", exception.getErrorCode());
+        assertEquals(503, exception.getStatus());
+        assertTrue(exception.getStackTrace().length > 0);
+    }
+
+    @Test
+    @DisplayName("Error Decoder - Response without an error body is an internal server error")
+    void testDecodeUnreadableBody() {
+        for (Response response : List.of(response(502, "<html>Bad Gateway</html>"), response(503, null))) {
+            OrderServiceException exception = assertInstanceOf(OrderServiceException.class,
+                    customErrorDecoder.decode("ProductService#reserve", response));
+
+            assertEquals("INTERNAL_SERVER_ERROR", exception.getErrorCode());
+            assertEquals(500, exception.getStatus());
+            assertTrue(exception.getStackTrace().length > 0);
+            if (response.body() != null) {
+                assertInstanceOf(IOException.class, exception.getCause());
+            }
+        }
+    }
+
+    @Test
+    @Tag("benchmark")
+    @DisplayName("Error Decoder - Throughput when half of the calls fail, before and after")
+    void benchmarkFailurePath() throws Exception {
+        // The decoder and exception as they were: a new ObjectMapper per error, the request headers
+        // logged and a stack trace captured for every exception.
+        ErrorDecoder previousDecoder = (methodKey, response) -> {
+            log.info("::{}", response.request().url());
+            log.info("::{}", response.request().headers());
+            try {
+                ErrorResponse errorResponse = new ObjectMapper().readValue(response.body().asInputStream(), ErrorResponse.class);
+                return new StackTraceException(errorResponse.getErrorMessage(), errorResponse.getErrorCode(), response.status());
+            } catch (Exception e) {
+                throw new StackTraceException("Internal server error!", "INTERNAL_SERVER_ERROR", 500);
+            }
+        };
+        Function<Exception, ResponseEntity<ErrorResponse>> previousHandler = exception -> {
+            StackTraceException stackTraceException = (StackTraceException) exception;
+            ErrorResponse errorResponse = ErrorResponse.builder()
+                    .errorMessage(stackTraceException.getMessage())
+                    .errorCode(stackTraceException.errorCode)
+                    .build();
+            return new ResponseEntity<>(errorResponse, HttpStatus.valueOf(stackTraceException.status));
+        };
+        Function<Exception, ResponseEntity<ErrorResponse>> handler
+                = exception -> exceptionHandler.handleProductServiceException((OrderServiceException) exception);
+
+        for (int i = 0; i < 2; i++) {
+            call(previousDecoder, previousHandler);
+            call(customErrorDecoder, handler);
+        }
+        long previousNanos = call(previousDecoder, previousHandler);
+        long nanos = call(customErrorDecoder, handler);
+
+        log.info("{} callers, {} calls with half failing: before {} calls/s, after {} calls/s",
+                CALLERS, CALLS, CALLS * 1_000_000_000L / previousNanos, CALLS * 1_000_000_000L / nanos);
+    }
+
+    // Every other call fails, alternating between a 404 and a 503 from the other service. Failed
+    // calls are decoded and mapped to the response OrderService sends back, the others are read.
+    private long call(ErrorDecoder errorDecoder, Function<Exception, ResponseEntity<ErrorResponse>> handler) throws Exception {
+        ObjectReader productReader = objectMapper.readerFor(ProductResponse.class);
+        List<Response> responses = List.of(
+                response(200, "{\"productId\":1,\"productName\":\"iPhone\",\"price\":1000,\"quantity\":10}"),
+                response(404, "{\"errorMessage\":\"Product with given id not found!\",\"errorCode\":\"PRODUCT_NOT_FOUND\"}"),
+                response(200, "{\"productId\":2,\"productName\":\"iPad\",\"price\":800,\"quantity\":5}"),
+                response(503, "{\"errorMessage\":\"Product service is offline!\",\"errorCode\":\"PRODUCT_SERVICE_OFFLINE\"}"));
+
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(CALLERS);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int i = 0; i < CALLERS; i++) {
+            futures.add(executor.submit(() -> {
+                start.await();
+                for (int call = 0; call < CALLS / CALLERS; call++) {
+                    Response response = responses.get(call % responses.size());
+                    if (response.status() == 200) {
+                        ProductResponse productResponse = productReader.readValue(response.body().asInputStream());
+                        assertTrue(productResponse.getProductId() > 0);
+                    } else {
+                        ResponseEntity<ErrorResponse> errorResponse = handler.apply(errorDecoder.decode("ProductService#getProductDetails", response));
+                        assertEquals(response.status(), errorResponse.getStatusCodeValue());
+                    }
+                }
+                return null;
+            }));
+        }
+
+        long startedAt = System.nanoTime();
+        start.countDown();
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        long elapsedNanos = System.nanoTime() - startedAt;
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+        return elapsedNanos;
+    }
+
+    private static Response response(int status, String body) {
+        return Response.builder()
+                .status(status)
+                .reason(status == 200 ? "OK" : "Error")
+                .request(REQUEST)
+                .headers(Map.<String, Collection<String>>of("Content-Type", List.of("application/json")))
+                .body(body == null ? null : body.getBytes(StandardCharsets.UTF_8))
+                .build();
+    }
+
+    private static class StackTraceException extends RuntimeException {
+        private final String errorCode;
+        private final int status;
+
+        private StackTraceException(String message, String errorCode, int status) {
+            super(message);
+            this.errorCode = errorCode;
+            this.status = status;
+        }
+    }
+}
@@ -0,0 +1,206 @@
+package com.dailycodebuffer.orderservice.external.intercept;
+
+import feign.RequestInterceptor;
+import feign.RequestTemplate;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import lombok.extern.log4j.Log4j2;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.authentication.TestingAuthenticationToken;
+import org.springframework.security.oauth2.client.AuthorizedClientServiceOAuth2AuthorizedClientManager;
+import org.springframework.security.oauth2.client.InMemoryOAuth2AuthorizedClientService;
+import org.springframework.security.oauth2.client.OAuth2AuthorizeRequest;
+import org.springframework.security.oauth2.client.OAuth2AuthorizedClient;
+import org.springframework.security.oauth2.client.OAuth2AuthorizedClientManager;
+import org.springframework.security.oauth2.client.OAuth2AuthorizedClientProviderBuilder;
+import org.springframework.security.oauth2.client.registration.ClientRegistration;
+import org.springframework.security.oauth2.client.registration.InMemoryClientRegistrationRepository;
+import org.springframework.security.oauth2.core.AuthorizationGrantType;
+import org.springframework.security.oauth2.core.OAuth2AccessToken;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@Log4j2
+class AccessTokenProviderTest {
+
+    private static final int CALLERS = 16;
+    private static final int REQUESTS = 200_000;
+
+    private final ClientRegistration clientRegistration = ClientRegistration
+            .withRegistrationId(AccessTokenProvider.CLIENT_REGISTRATION_ID)
+            .clientId("client")
+            .clientSecret("secret")
+            .authorizationGrantType(AuthorizationGrantType.CLIENT_CREDENTIALS)
+            .tokenUri("http://localhost:9999/token")
+            .build();
+
+    private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private OAuth2AuthorizedClientManager oAuth2AuthorizedClientManager;
+
+    @BeforeEach
+    void setup() {
+        oAuth2AuthorizedClientManager = mock(OAuth2AuthorizedClientManager.class);
+    }
+
+    @Test
+    @DisplayName("Access Token - Concurrent requests share one token fetch")
+    void testAuthorizationHeaderSingleFlight() throws Exception {
+        // Mocking
+        when(oAuth2AuthorizedClientManager.authorize(any(OAuth2AuthorizeRequest.class))).thenAnswer(invocation -> {
+            TimeUnit.MILLISECONDS.sleep(200);
+            return authorizedClient("first", Duration.ofHours(1));
+        });
+        AccessTokenProvider accessTokenProvider = accessTokenProvider(oAuth2AuthorizedClientManager);
+
+        // Actual
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(CALLERS);
+        List<Future<String>> headers = new ArrayList<>();
+        for (int i = 0; i < CALLERS; i++) {
+            headers.add(executor.submit(() -> {
+                start.await();
+                return accessTokenProvider.authorizationHeader();
+            }));
+        }
+        start.countDown();
+
+        // Assertion
+        for (Future<String> header : headers) {
+            assertEquals("Bearer first", header.get());
+        }
+        executor.shutdown();
+        verify(oAuth2AuthorizedClientManager, times(1)).authorize(any(OAuth2AuthorizeRequest.class));
+        assertEquals(1, meterRegistry.get("order.oauth.token.refresh").timer().count());
+    }
+
+    @Test
+    @DisplayName("Access Token - Replaced in the background before it expires")
+    void testRefreshAhead() {
+        // Mocking
+        when(oAuth2AuthorizedClientManager.authorize(any(OAuth2AuthorizeRequest.class)))
+                .thenReturn(authorizedClient("expiring", Duration.ofSeconds(30)))
+                .thenReturn(authorizedClient("fresh", Duration.ofHours(1)));
+        AccessTokenProvider accessTokenProvider = accessTokenProvider(oAuth2AuthorizedClientManager);
+
+        // Actual/Assertion
+        assertEquals("Bearer expiring", accessTokenProvider.authorizationHeader());
+        accessTokenProvider.refreshAhead();
+        assertEquals("Bearer fresh", accessTokenProvider.authorizationHeader());
+        accessTokenProvider.refreshAhead();
+
+        // Verification
+        verify(oAuth2AuthorizedClientManager, times(2)).authorize(any(OAuth2AuthorizeRequest.class));
+    }
+
+    @Test
+    @DisplayName("Access Token - Failed refresh keeps the current token")
+    void testRefreshAheadFailure() {
+        when(oAuth2AuthorizedClientManager.authorize(any(OAuth2AuthorizeRequest.class)))
+                .thenReturn(authorizedClient("expiring", Duration.ofSeconds(30)))
+                .thenThrow(new IllegalStateException("Token endpoint is down"));
+        AccessTokenProvider accessTokenProvider = accessTokenProvider(oAuth2AuthorizedClientManager);
+
+        assertEquals("Bearer expiring", accessTokenProvider.authorizationHeader());
+        accessTokenProvider.refreshAhead();
+
+        assertEquals("Bearer expiring", accessTokenProvider.authorizationHeader());
+        assertEquals(1, meterRegistry.get("order.oauth.token.refresh.failures").counter().count());
+    }
+
+    @Test
+    @Tag("benchmark")
+    @DisplayName("Access Token - Interceptor overhead of authorizing per request and of the cached header")
+    void benchmarkInterceptorOverhead() throws Exception {
+        // Both go through a real client manager that already holds a valid token, as in production.
+        InMemoryClientRegistrationRepository clientRegistrationRepository
+                = new InMemoryClientRegistrationRepository(clientRegistration);
+        InMemoryOAuth2AuthorizedClientService authorizedClientService
+                = new InMemoryOAuth2AuthorizedClientService(clientRegistrationRepository);
+        authorizedClientService.saveAuthorizedClient(authorizedClient("cached", Duration.ofHours(1)),
+                new TestingAuthenticationToken("internal", null));
+        AuthorizedClientServiceOAuth2AuthorizedClientManager clientManager
+                = new AuthorizedClientServiceOAuth2AuthorizedClientManager(clientRegistrationRepository, authorizedClientService);
+        clientManager.setAuthorizedClientProvider(OAuth2AuthorizedClientProviderBuilder.builder()
+                .clientCredentials(clientCredentials -> clientCredentials.clockSkew(Duration.ofSeconds(60)))
+                .build());
+
+        OAuthRequestInterceptor cachedInterceptor = new OAuthRequestInterceptor();
+        ReflectionTestUtils.setField(cachedInterceptor, "accessTokenProvider", accessTokenProvider(clientManager));
+        RequestInterceptor authorizingInterceptor = requestTemplate -> requestTemplate.header("Authorization",
+                "Bearer " + clientManager.authorize(OAuth2AuthorizeRequest
+                                .withClientRegistrationId(AccessTokenProvider.CLIENT_REGISTRATION_ID)
+                                .principal("internal")
+                                .build())
+                        .getAccessToken()
+                        .getTokenValue());
+
+        for (int i = 0; i < 2; i++) {
+            apply(authorizingInterceptor);
+            apply(cachedInterceptor);
+        }
+        long authorizingNanos = apply(authorizingInterceptor);
+        long cachedNanos = apply(cachedInterceptor);
+
+        log.info("{} callers, {} requests: authorizing per request {} ns/request, cached header {} ns/request",
+                CALLERS, REQUESTS, authorizingNanos / REQUESTS, cachedNanos / REQUESTS);
+    }
+
+    private long apply(RequestInterceptor interceptor) throws Exception {
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(CALLERS);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int i = 0; i < CALLERS; i++) {
+            futures.add(executor.submit(() -> {
+                start.await();
+                for (int request = 0; request < REQUESTS / CALLERS; request++) {
+                    RequestTemplate requestTemplate = new RequestTemplate();
+                    interceptor.apply(requestTemplate);
+                    assertEquals(1, requestTemplate.headers().get("Authorization").size());
+                }
+                return null;
+            }));
+        }
+
+        long startedAt = System.nanoTime();
+        start.countDown();
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        long elapsedNanos = System.nanoTime() - startedAt;
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+        return elapsedNanos;
+    }
+
+    private AccessTokenProvider accessTokenProvider(OAuth2AuthorizedClientManager clientManager) {
+        AccessTokenProvider accessTokenProvider = new AccessTokenProvider();
+        ReflectionTestUtils.setField(accessTokenProvider, "oAuth2AuthorizedClientManager", clientManager);
+        ReflectionTestUtils.setField(accessTokenProvider, "meterRegistry", meterRegistry);
+        ReflectionTestUtils.setField(accessTokenProvider, "refreshBeforeExpiry", Duration.ofSeconds(60));
+        accessTokenProvider.init();
+        return accessTokenProvider;
+    }
+
+    private OAuth2AuthorizedClient authorizedClient(String tokenValue, Duration lifetime) {
+        Instant issuedAt = Instant.now();
+        return new OAuth2AuthorizedClient(clientRegistration, "internal", new OAuth2AccessToken(
+                OAuth2AccessToken.TokenType.BEARER, tokenValue, issuedAt, issuedAt.plus(lifetime)));
+    }
+}
@@ -0,0 +1,249 @@
+package com.dailycodebuffer.orderservice.external.loadbalancer;
+
+import com.dailycodebuffer.orderservice.OrderServiceConfig;
+import com.dailycodebuffer.orderservice.config.LoadBalancerConfig;
+import lombok.extern.log4j.Log4j2;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.autoconfigure.AutoConfigurations;
+import org.springframework.boot.test.context.runner.ApplicationContextRunner;
+import org.springframework.cloud.client.DefaultServiceInstance;
+import org.springframework.cloud.client.ServiceInstance;
+import org.springframework.cloud.client.loadbalancer.CompletionContext;
+import org.springframework.cloud.client.loadbalancer.DefaultRequest;
+import org.springframework.cloud.client.loadbalancer.DefaultResponse;
+import org.springframework.cloud.client.loadbalancer.LoadBalancerLifecycle;
+import org.springframework.cloud.client.loadbalancer.Request;
+import org.springframework.cloud.client.loadbalancer.RequestData;
+import org.springframework.cloud.client.loadbalancer.RequestDataContext;
+import org.springframework.cloud.client.loadbalancer.Response;
+import org.springframework.cloud.client.loadbalancer.reactive.ReactiveLoadBalancer;
+import org.springframework.cloud.loadbalancer.config.LoadBalancerAutoConfiguration;
+import org.springframework.cloud.loadbalancer.core.ReactorServiceInstanceLoadBalancer;
+import org.springframework.cloud.loadbalancer.core.RoundRobinLoadBalancer;
+import org.springframework.cloud.loadbalancer.support.LoadBalancerClientFactory;
+import org.springframework.cloud.loadbalancer.support.ServiceInstanceListSuppliers;
+import org.springframework.cloud.loadbalancer.support.SimpleObjectProvider;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+
+import java.net.URI;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@Log4j2
+class LatencyAwareLoadBalancerTest {
+
+    private static final String SERVICE_ID = "PRODUCT-SERVICE";
+
+    private static final int CALLERS = 8;
+    private static final int CALLS_PER_CALLER = 250;
+
+    // Stand-in instances of ProductService, and how long each takes to answer.
+    private static final Map<Integer, Long> MILLIS_BY_PORT = Map.of(8081, 5L, 8082, 5L, 8083, 10L, 8084, 100L);
+
+    private final ServiceInstance fast = instance(8081);
+    private final ServiceInstance slow = instance(8084);
+
+    private final LatencyAwareLoadBalancer loadBalancer = loadBalancer(fast, slow);
+
+    @Test
+    @DisplayName("Load Balancer - Latency aware for ProductService and PaymentService only")
+    void testConfiguration() {
+        ApplicationContextRunner contextRunner = new ApplicationContextRunner()
+                .withConfiguration(AutoConfigurations.of(LoadBalancerAutoConfiguration.class))
+                .withUserConfiguration(LoadBalancerConfig.class, OrderServiceConfig.class);
+
+        contextRunner.run(context -> {
+            LoadBalancerClientFactory loadBalancerClientFactory = context.getBean(LoadBalancerClientFactory.class);
+            ReactiveLoadBalancer<ServiceInstance> product = loadBalancerClientFactory.getInstance("PRODUCT-SERVICE");
+            ReactiveLoadBalancer<ServiceInstance> payment = loadBalancerClientFactory.getInstance("PAYMENT-SERVICE");
+
+            assertInstanceOf(LatencyAwareLoadBalancer.class, product);
+            assertInstanceOf(LatencyAwareLoadBalancer.class, payment);
+            assertNotSame(product, payment);
+            assertTrue(loadBalancerClientFactory.getInstances("PRODUCT-SERVICE", LoadBalancerLifecycle.class)
+                    .containsValue(product));
+            assertInstanceOf(RoundRobinLoadBalancer.class, loadBalancerClientFactory.getInstance("ORDER-SERVICE"));
+        });
+        contextRunner.withPropertyValues("order.load-balancer.latency-aware=false").run(context ->
+                assertInstanceOf(RoundRobinLoadBalancer.class,
+                        context.getBean(LoadBalancerClientFactory.class).getInstance("PRODUCT-SERVICE")));
+    }
+
+    @Test
+    @DisplayName("Load Balancer - Slow instance is avoided")
+    void testSlowInstanceAvoided() {
+        // Mocking
+        complete(fast, 5, CompletionContext.Status.SUCCESS);
+        complete(slow, 100, CompletionContext.Status.SUCCESS);
+
+        // Assertion
+        for (int i = 0; i < 100; i++) {
+            assertEquals(fast, choose(loadBalancer));
+        }
+    }
+
+    @Test
+    @DisplayName("Load Balancer - Instance failing fast is avoided")
+    void testFailingInstanceAvoided() {
+        // Mocking
+        complete(fast, 50, CompletionContext.Status.SUCCESS);
+        complete(slow, 1, CompletionContext.Status.FAILED);
+
+        // Assertion
+        assertEquals(fast, choose(loadBalancer));
+    }
+
+    @Test
+    @DisplayName("Load Balancer - Instance with fewer requests in flight is preferred")
+    void testFewerRequestsInFlightPreferred() {
+        // Mocking
+        complete(fast, 10, CompletionContext.Status.SUCCESS);
+        complete(slow, 10, CompletionContext.Status.SUCCESS);
+        for (int i = 0; i < 3; i++) {
+            loadBalancer.onStartRequest(new DefaultRequest<>(new RequestDataContext()), response(fast));
+        }
+
+        // Assertion
+        assertEquals(slow, choose(loadBalancer));
+    }
+
+    @Test
+    @DisplayName("Load Balancer - Untried instance gets a single request until it answers")
+    void testUntriedInstanceProbed() {
+        // Mocking
+        complete(fast, 5, CompletionContext.Status.SUCCESS);
+        Request<Object> probe = new DefaultRequest<>(new RequestDataContext());
+        assertEquals(slow, choose(loadBalancer));
+        loadBalancer.onStartRequest(probe, response(slow));
+
+        // Assertion
+        assertEquals(fast, choose(loadBalancer));
+    }
+
+    @Test
+    @DisplayName("Load Balancer - Hedge goes to another instance than the call it hedges")
+    void testHedgeToAnotherInstance() {
+        // Mocking
+        LatencyAwareLoadBalancer loadBalancer = loadBalancer(instance(8081), instance(8082), instance(8083));
+
+        for (int i = 0; i < 50; i++) {
+            // Actual
+            Request<Object> call = hedgedRequest("hedge-" + i);
+            Response<ServiceInstance> first = loadBalancer.choose(call).block();
+            loadBalancer.onStartRequest(call, first);
+            Request<Object> hedge = hedgedRequest("hedge-" + i);
+            Response<ServiceInstance> second = loadBalancer.choose(hedge).block();
+            loadBalancer.onStartRequest(hedge, second);
+            loadBalancer.onComplete(new CompletionContext<>(CompletionContext.Status.SUCCESS, hedge, second));
+            loadBalancer.onComplete(new CompletionContext<>(CompletionContext.Status.SUCCESS, call, first));
+
+            // Assertion
+            assertNotEquals(first.getServer().getPort(), second.getServer().getPort());
+        }
+    }
+
+    @Test
+    @Tag("benchmark")
+    @DisplayName("Load Balancer - Tail latency against round-robin with one slow instance")
+    void loadTestTailLatency() throws Exception {
+        // Mocking
+        ServiceInstance[] instances = MILLIS_BY_PORT.keySet().stream().sorted()
+                .map(LatencyAwareLoadBalancerTest::instance).toArray(ServiceInstance[]::new);
+        RoundRobinLoadBalancer roundRobin = new RoundRobinLoadBalancer(
+                new SimpleObjectProvider<>(ServiceInstanceListSuppliers.from(SERVICE_ID, instances)), SERVICE_ID);
+
+        // Actual
+        List<Long> roundRobinMillis = call(roundRobin, null);
+        LatencyAwareLoadBalancer latencyAware = loadBalancer(instances);
+        List<Long> latencyAwareMillis = call(latencyAware, latencyAware);
+
+        log.info("{} calls to instances answering in {} ms: round-robin p50 {} ms, p99 {} ms; latency-aware p50 {} ms, p99 {} ms",
+                roundRobinMillis.size(), MILLIS_BY_PORT.values().stream().sorted().collect(Collectors.toList()),
+                percentile(roundRobinMillis, 50), percentile(roundRobinMillis, 99),
+                percentile(latencyAwareMillis, 50), percentile(latencyAwareMillis, 99));
+    }
+
+    // Calls the stand-in instances the way Feign clients and RestTemplates do: choose, start, answer, complete.
+    private static List<Long> call(ReactorServiceInstanceLoadBalancer balancer,
+                                   LoadBalancerLifecycle<Object, Object, ServiceInstance> lifecycle) throws Exception {
+        ExecutorService callers = Executors.newFixedThreadPool(CALLERS);
+        List<Future<List<Long>>> futures = new ArrayList<>();
+        for (int caller = 0; caller < CALLERS; caller++) {
+            futures.add(callers.submit(() -> {
+                List<Long> millis = new ArrayList<>();
+                for (int call = 0; call < CALLS_PER_CALLER; call++) {
+                    long startedAt = System.nanoTime();
+                    Request<Object> request = new DefaultRequest<>(new RequestDataContext());
+                    Response<ServiceInstance> response = balancer.choose(request).block();
+                    if (lifecycle != null) {
+                        lifecycle.onStartRequest(request, response);
+                    }
+                    Thread.sleep(MILLIS_BY_PORT.get(response.getServer().getPort()));
+                    if (lifecycle != null) {
+                        lifecycle.onComplete(new CompletionContext<>(CompletionContext.Status.SUCCESS, request, response));
+                    }
+                    millis.add((System.nanoTime() - startedAt) / 1_000_000);
+                }
+                return millis;
+            }));
+        }
+        List<Long> millis = new ArrayList<>();
+        for (Future<List<Long>> future : futures) {
+            millis.addAll(future.get());
+        }
+        callers.shutdown();
+        assertTrue(callers.awaitTermination(10, TimeUnit.SECONDS));
+        Collections.sort(millis);
+        return millis;
+    }
+
+    private static long percentile(List<Long> sortedMillis, int percentile) {
+        return sortedMillis.get(sortedMillis.size() * percentile / 100 - 1);
+    }
+
+    private void complete(ServiceInstance serviceInstance, long millis, CompletionContext.Status status) {
+        RequestDataContext context = new RequestDataContext();
+        Request<Object> request = new DefaultRequest<>(context);
+        loadBalancer.onStartRequest(request, response(serviceInstance));
+        context.setRequestStartTime(System.nanoTime() - TimeUnit.MILLISECONDS.toNanos(millis));
+        loadBalancer.onComplete(new CompletionContext<>(status, request, response(serviceInstance)));
+    }
+
+    private static Request<Object> hedgedRequest(String hedgeId) {
+        HttpHeaders headers = new HttpHeaders();
+        headers.add(LatencyAwareLoadBalancer.HEDGE_ID_HEADER, hedgeId);
+        return new DefaultRequest<>(new RequestDataContext(new RequestData(HttpMethod.GET,
+                URI.create("http://PRODUCT-SERVICE/product/1"), headers, new HttpHeaders(), Map.of())));
+    }
+
+    private static ServiceInstance choose(LatencyAwareLoadBalancer balancer) {
+        return balancer.choose(new DefaultRequest<>(new RequestDataContext())).block().getServer();
+    }
+
+    private static Response<ServiceInstance> response(ServiceInstance serviceInstance) {
+        return new DefaultResponse(serviceInstance);
+    }
+
+    private static LatencyAwareLoadBalancer loadBalancer(ServiceInstance... instances) {
+        return new LatencyAwareLoadBalancer(
+                new SimpleObjectProvider<>(ServiceInstanceListSuppliers.from(SERVICE_ID, instances)),
+                Duration.ofSeconds(10), Duration.ofSeconds(1));
+    }
+
+    private static ServiceInstance instance(int port) {
+        return new DefaultServiceInstance(SERVICE_ID + "-" + port, SERVICE_ID, "localhost", port, false);
+    }
+}
@@ -0,0 +1,258 @@
+package com.dailycodebuffer.orderservice.service;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import lombok.extern.log4j.Log4j2;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@Log4j2
+class HedgerTest {
+
+    private static final long FAST_MILLIS = 10;
+    private static final long SLOW_MILLIS = 100;
+
+    private static final int CALLERS = 8;
+    private static final int CALLS_PER_CALLER = 150;
+
+    private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final ExecutorService instances = Executors.newCachedThreadPool();
+
+    @AfterEach
+    void cleanup() {
+        instances.shutdownNow();
+    }
+
+    @Test
+    @DisplayName("Hedging - Disabled makes a single call without a hedge id")
+    void testDisabled() {
+        Hedger<String> hedger = new Hedger<>("PRODUCT-SERVICE", false, 0.95, 0.1, instances, meterRegistry);
+        List<String> hedgeIds = new ArrayList<>();
+
+        assertEquals("iPhone", hedger.call(hedgeId -> {
+            hedgeIds.add(hedgeId);
+            return CompletableFuture.completedFuture("iPhone");
+        }).join());
+
+        assertEquals(Collections.singletonList(null), hedgeIds);
+        assertEquals(0, count("fired"));
+    }
+
+    @Test
+    @DisplayName("Hedging - Slow call is hedged after the tracked percentile and the hedge wins")
+    void testSlowCallHedged() throws Exception {
+        // Mocking
+        Hedger<String> hedger = warmedUp();
+        List<String> hedgeIds = Collections.synchronizedList(new ArrayList<>());
+
+        // Actual
+        String result = hedger.call(hedgeId -> {
+            hedgeIds.add(hedgeId);
+            return hedgeIds.size() == 1 ? new CompletableFuture<>() : CompletableFuture.completedFuture("iPhone");
+        }).get(5, TimeUnit.SECONDS);
+
+        // Assertion
+        assertEquals("iPhone", result);
+        assertEquals(2, hedgeIds.size());
+        assertNotNull(hedgeIds.get(0));
+        assertEquals(hedgeIds.get(0), hedgeIds.get(1));
+        assertEquals(1, count("fired"));
+        assertEquals(1, awaitCount("won", 1));
+        assertTrue(meterRegistry.get("order.downstream.hedge.delay").gauge().value() > 0);
+    }
+
+    @Test
+    @DisplayName("Hedging - Hedge the executor has no room for is dropped")
+    void testHedgeRejected() throws Exception {
+        // Mocking
+        Hedger<String> hedger = new Hedger<>("PAYMENT-SERVICE", true, 0.95, 0.1, command -> {
+            throw new RejectedExecutionException("Too many calls in flight");
+        }, meterRegistry);
+        for (int i = 0; i < Hedger.MIN_SAMPLES; i++) {
+            hedger.call(hedgeId -> answer("iPhone", FAST_MILLIS)).join();
+        }
+
+        // Actual
+        String result = hedger.call(hedgeId -> answer("iPhone", SLOW_MILLIS)).get(5, TimeUnit.SECONDS);
+
+        // Assertion
+        assertEquals("iPhone", result);
+        assertEquals(0, meterRegistry.get("order.downstream.hedges").tag("service", "PAYMENT-SERVICE")
+                .tag("result", "fired").counter().count());
+        assertEquals(1, meterRegistry.get("order.downstream.hedges").tag("service", "PAYMENT-SERVICE")
+                .tag("result", "rejected").counter().count());
+    }
+
+    @Test
+    @DisplayName("Hedging - Fast call is not hedged")
+    void testFastCallNotHedged() throws Exception {
+        // Mocking
+        Hedger<String> hedger = warmedUp();
+
+        // Actual
+        for (int i = 0; i < 10; i++) {
+            assertEquals("iPhone", hedger.call(hedgeId -> CompletableFuture.completedFuture("iPhone"))
+                    .get(5, TimeUnit.SECONDS));
+        }
+        Thread.sleep(5 * FAST_MILLIS);
+
+        // Assertion
+        assertEquals(0, count("fired"));
+        assertEquals(0, count("exhausted"));
+    }
+
+    @Test
+    @DisplayName("Hedging - Hedges are capped by the budget")
+    void testBudget() throws Exception {
+        // Mocking
+        Hedger<String> hedger = warmedUp();
+
+        // Actual
+        for (int i = 0; i < 30; i++) {
+            assertEquals("iPhone", hedger.call(hedgeId -> answer("iPhone", SLOW_MILLIS)).get(5, TimeUnit.SECONDS));
+        }
+
+        // Assertion: 50 calls at 0.1 of a hedge each
+        assertEquals(5, count("fired"));
+        assertEquals(25, count("exhausted"));
+    }
+
+    @Test
+    @DisplayName("Hedging - Failed call leaves the answer to the hedge")
+    void testFailedCallHedged() throws Exception {
+        // Mocking
+        Hedger<String> hedger = warmedUp();
+        List<String> hedgeIds = Collections.synchronizedList(new ArrayList<>());
+        Function<String, CompletableFuture<String>> call = hedgeId -> {
+            hedgeIds.add(hedgeId);
+            return hedgeIds.size() == 1 ? failure(5 * FAST_MILLIS) : answer("iPhone", SLOW_MILLIS);
+        };
+
+        // Actual
+        String result = hedger.call(call).get(5, TimeUnit.SECONDS);
+
+        // Assertion
+        assertEquals("iPhone", result);
+        assertEquals(1, awaitCount("won", 1));
+    }
+
+    @Test
+    @DisplayName("Hedging - Fails when both calls fail")
+    void testBothCallsFail() throws Exception {
+        // Mocking
+        Hedger<String> hedger = warmedUp();
+
+        // Actual
+        CompletableFuture<String> result = hedger.call(hedgeId -> failure(5 * FAST_MILLIS));
+
+        // Assertion
+        ExecutionException exception = assertThrows(ExecutionException.class, () -> result.get(5, TimeUnit.SECONDS));
+        assertInstanceOf(IllegalStateException.class, exception.getCause());
+        assertEquals(1, count("fired"));
+        assertEquals(0, count("won"));
+    }
+
+    // One call in 30 hits an instance in a long GC pause.
+    @Test
+    @Tag("benchmark")
+    @DisplayName("Hedging - Tail latency with a slow instance, with and without hedging")
+    void loadTestTailLatency() throws Exception {
+        // Actual
+        List<Long> unhedged = call(new Hedger<>("PRODUCT-SERVICE", false, 0.95, 0.1, instances, meterRegistry));
+        List<Long> hedged = call(new Hedger<>("PAYMENT-SERVICE", true, 0.95, 0.1, instances, meterRegistry));
+        double fired = meterRegistry.get("order.downstream.hedges").tag("service", "PAYMENT-SERVICE")
+                .tag("result", "fired").counter().count();
+
+        log.info("{} calls: unhedged p50 {} ms, p99 {} ms; hedged p50 {} ms, p99 {} ms with {} hedges", unhedged.size(),
+                percentile(unhedged, 50), percentile(unhedged, 99), percentile(hedged, 50), percentile(hedged, 99),
+                (long) fired);
+
+        // Assertion
+        assertTrue(fired <= hedged.size() * 0.1 + Hedger.MAX_BUDGET);
+    }
+
+    private List<Long> call(Hedger<String> hedger) throws Exception {
+        ExecutorService callers = Executors.newFixedThreadPool(CALLERS);
+        List<Future<List<Long>>> futures = new ArrayList<>();
+        for (int caller = 0; caller < CALLERS; caller++) {
+            futures.add(callers.submit(() -> {
+                List<Long> millis = new ArrayList<>();
+                for (int call = 0; call < CALLS_PER_CALLER; call++) {
+                    long startedAt = System.nanoTime();
+                    hedger.call(hedgeId -> answer("iPhone",
+                            ThreadLocalRandom.current().nextInt(30) == 0 ? SLOW_MILLIS : FAST_MILLIS)).get();
+                    millis.add((System.nanoTime() - startedAt) / 1_000_000);
+                }
+                return millis;
+            }));
+        }
+        List<Long> millis = new ArrayList<>();
+        for (Future<List<Long>> future : futures) {
+            millis.addAll(future.get());
+        }
+        callers.shutdown();
+        assertTrue(callers.awaitTermination(10, TimeUnit.SECONDS));
+        Collections.sort(millis);
+        return millis;
+    }
+
+    private static long percentile(List<Long> sortedMillis, int percentile) {
+        return sortedMillis.get(sortedMillis.size() * percentile / 100 - 1);
+    }
+
+    // Enough calls answering in FAST_MILLIS for the hedger to start hedging.
+    private Hedger<String> warmedUp() {
+        Hedger<String> hedger = new Hedger<>("PRODUCT-SERVICE", true, 0.95, 0.1, instances, meterRegistry);
+        for (int i = 0; i < Hedger.MIN_SAMPLES; i++) {
+            hedger.call(hedgeId -> answer("iPhone", FAST_MILLIS)).join();
+        }
+        return hedger;
+    }
+
+    private CompletableFuture<String> answer(String value, long millis) {
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                Thread.sleep(millis);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return value;
+        }, instances);
+    }
+
+    private CompletableFuture<String> failure(long millis) {
+        return answer(null, millis).thenApply(value -> {
+            throw new IllegalStateException("Connection reset");
+        });
+    }
+
+    // The hedge that won is counted just after its answer is handed over.
+    private double awaitCount(String result, double expected) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (count(result) < expected && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        return count(result);
+    }
+
+    private double count(String result) {
+        return meterRegistry.get("order.downstream.hedges").tag("result", result).counter().count();
+    }
+}
@@ -0,0 +1,229 @@
+package com.dailycodebuffer.orderservice.service;
+
+import com.dailycodebuffer.orderservice.entity.IdempotencyKey;
+import com.dailycodebuffer.orderservice.exception.OrderServiceException;
+import com.dailycodebuffer.orderservice.model.OrderRequest;
+import com.dailycodebuffer.orderservice.model.PaymentMode;
+import com.dailycodebuffer.orderservice.repository.IdempotencyKeyRepository;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+class IdempotencyKeysTest {
+
+    private static final int DUPLICATES = 16;
+
+    @Autowired
+    private IdempotencyKeys idempotencyKeys;
+
+    @Autowired
+    private IdempotencyKeyRepository idempotencyKeyRepository;
+
+    @Test
+    @DisplayName("Idempotency Key - Concurrent duplicates place the order once")
+    void testConcurrentDuplicatesPlaceOnce() throws Exception {
+        // Mocking
+        String key = UUID.randomUUID().toString();
+        AtomicInteger placements = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(DUPLICATES);
+
+        // Actual
+        List<Future<Long>> results = new ArrayList<>();
+        for (int i = 0; i < DUPLICATES; i++) {
+            results.add(executor.submit(() -> {
+                start.await();
+                return idempotencyKeys.placeOnce("customer", key, getMockOrderRequest(), orderRequest -> {
+                    placements.incrementAndGet();
+                    sleep(200);
+                    return 42L;
+                });
+            }));
+        }
+        start.countDown();
+        Set<Long> orderIds = new HashSet<>();
+        for (Future<Long> result : results) {
+            orderIds.add(result.get());
+        }
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+
+        // Assertion
+        assertEquals(1, placements.get());
+        assertEquals(Set.of(42L), orderIds);
+        assertEquals(42L, idempotencyKeyRepository.findById("customer:" + key).orElseThrow().getOrderId());
+    }
+
+    @Test
+    @DisplayName("Idempotency Key - Repeat waiting longer than the claim timeout is told the order is in progress")
+    void testRepeatStopsWaiting() throws Exception {
+        // Mocking
+        String key = UUID.randomUUID().toString();
+        IdempotencyKeys instance = anotherInstance();
+        ReflectionTestUtils.setField(instance, "claimTimeout", Duration.ofMillis(200));
+        CountDownLatch placing = new CountDownLatch(1);
+        CountDownLatch repeated = new CountDownLatch(1);
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        Future<Long> first = executor.submit(() -> instance.placeOnce("customer", key, getMockOrderRequest(),
+                orderRequest -> {
+                    placing.countDown();
+                    await(repeated);
+                    return 7L;
+                }));
+        assertTrue(placing.await(10, TimeUnit.SECONDS));
+
+        // Actual
+        OrderServiceException exception = assertThrows(OrderServiceException.class,
+                () -> instance.placeOnce("customer", key, getMockOrderRequest(), orderRequest -> 8L));
+        repeated.countDown();
+
+        // Assertion
+        assertEquals("IDEMPOTENCY_KEY_IN_PROGRESS", exception.getErrorCode());
+        assertEquals(409, exception.getStatus());
+        assertEquals(7L, first.get(10, TimeUnit.SECONDS));
+        executor.shutdown();
+    }
+
+    @Test
+    @DisplayName("Idempotency Key - Repeat reaching another instance is answered from the table")
+    void testRepeatOnAnotherInstance() {
+        String key = UUID.randomUUID().toString();
+        idempotencyKeys.placeOnce("customer", key, getMockOrderRequest(), orderRequest -> 7L);
+
+        long orderId = anotherInstance().placeOnce("customer", key, getMockOrderRequest(), orderRequest -> {
+            throw new AssertionError("placed twice");
+        });
+
+        assertEquals(7L, orderId);
+    }
+
+    @Test
+    @DisplayName("Idempotency Key - Same key for a different order or client")
+    void testKeyReusedForDifferentOrder() {
+        String key = UUID.randomUUID().toString();
+        idempotencyKeys.placeOnce("customer", key, getMockOrderRequest(), orderRequest -> 7L);
+        OrderRequest different = getMockOrderRequest();
+        different.setQuantity(2);
+
+        OrderServiceException exception = assertThrows(OrderServiceException.class,
+                () -> idempotencyKeys.placeOnce("customer", key, different, orderRequest -> 8L));
+        assertEquals("IDEMPOTENCY_KEY_REUSED", exception.getErrorCode());
+        assertEquals(422, exception.getStatus());
+        assertEquals(9L, idempotencyKeys.placeOnce("another customer", key, different, orderRequest -> 9L));
+    }
+
+    @Test
+    @DisplayName("Idempotency Key - Failed placement can be retried with the same key")
+    void testFailedPlacementReleasesKey() {
+        String key = UUID.randomUUID().toString();
+
+        assertThrows(OrderServiceException.class, () -> idempotencyKeys.placeOnce("customer", key, getMockOrderRequest(),
+                orderRequest -> {
+                    throw new OrderServiceException("Product service is offline!", "PRODUCT_SERVICE_OFFLINE", 500);
+                }));
+
+        assertFalse(idempotencyKeyRepository.existsById("customer:" + key));
+        assertEquals(7L, idempotencyKeys.placeOnce("customer", key, getMockOrderRequest(), orderRequest -> 7L));
+    }
+
+    @Test
+    @DisplayName("Idempotency Key - Key left unfinished is taken over once its claim runs out")
+    void testAbandonedClaimTakenOver() {
+        // Mocking
+        String abandoned = UUID.randomUUID().toString();
+        String inProgress = UUID.randomUUID().toString();
+        saveUnfinishedKey("customer:" + abandoned, Instant.now().minusSeconds(1));
+        saveUnfinishedKey("customer:" + inProgress, Instant.now().plusSeconds(60));
+
+        // Actual
+        long orderId = idempotencyKeys.placeOnce("customer", abandoned, getMockOrderRequest(), orderRequest -> 7L);
+        OrderServiceException exception = assertThrows(OrderServiceException.class,
+                () -> idempotencyKeys.placeOnce("customer", inProgress, getMockOrderRequest(), orderRequest -> 8L));
+
+        // Assertion
+        assertEquals(7L, orderId);
+        IdempotencyKey idempotencyKey = idempotencyKeyRepository.findById("customer:" + abandoned).orElseThrow();
+        assertEquals(7L, idempotencyKey.getOrderId());
+        assertNull(idempotencyKey.getClaimedUntil());
+        assertEquals("IDEMPOTENCY_KEY_IN_PROGRESS", exception.getErrorCode());
+        assertEquals(409, exception.getStatus());
+    }
+
+    @Test
+    @DisplayName("Idempotency Key - Expired keys are deleted")
+    void testDeleteExpired() {
+        String key = "customer:" + UUID.randomUUID();
+        idempotencyKeyRepository.save(IdempotencyKey.builder()
+                .key(key)
+                .requestFingerprint("1:1:100:CASH")
+                .expiresAt(Instant.now().minusSeconds(1))
+                .build());
+
+        idempotencyKeys.deleteExpired();
+
+        assertFalse(idempotencyKeyRepository.existsById(key));
+    }
+
+    private void saveUnfinishedKey(String key, Instant claimedUntil) {
+        idempotencyKeyRepository.save(IdempotencyKey.builder()
+                .key(key)
+                .requestFingerprint("1:1:100:CASH")
+                .expiresAt(Instant.now().plusSeconds(3600))
+                .claimedUntil(claimedUntil)
+                .build());
+    }
+
+    private IdempotencyKeys anotherInstance() {
+        IdempotencyKeys instance = new IdempotencyKeys();
+        ReflectionTestUtils.setField(instance, "idempotencyKeyRepository", idempotencyKeyRepository);
+        ReflectionTestUtils.setField(instance, "timeToLive", Duration.ofHours(1));
+        ReflectionTestUtils.setField(instance, "maximumSize", 10L);
+        ReflectionTestUtils.setField(instance, "claimTimeout", Duration.ofMinutes(1));
+        instance.init();
+        return instance;
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static OrderRequest getMockOrderRequest() {
+        return OrderRequest.builder()
+                .productId(1)
+                .quantity(1)
+                .totalAmount(100)
+                .paymentMode(PaymentMode.CASH)
+                .build();
+    }
+}
@@ -0,0 +1,174 @@
+package com.dailycodebuffer.orderservice.service;
+
+import com.dailycodebuffer.orderservice.external.client.ProductService;
+import com.dailycodebuffer.orderservice.external.request.ReservationRequest;
+import com.dailycodebuffer.orderservice.external.response.ReservationResponse;
+import com.dailycodebuffer.orderservice.external.response.ReservationResult;
+import com.dailycodebuffer.orderservice.model.OrderRequest;
+import com.dailycodebuffer.orderservice.model.OrderResult;
+import com.dailycodebuffer.orderservice.model.PaymentMode;
+import com.dailycodebuffer.orderservice.repository.OrderRepository;
+import com.dailycodebuffer.orderservice.repository.PaymentIntentRepository;
+import lombok.extern.log4j.Log4j2;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+
+import javax.persistence.EntityManagerFactory;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@SpringBootTest({
+        "spring.datasource.url=jdbc:h2:mem:order-batch",
+        "spring.jpa.properties.hibernate.generate_statistics=true",
+        "logging.level.com.dailycodebuffer.orderservice.service.OrderServiceImpl=WARN",
+        "logging.level.org.hibernate.engine.internal.StatisticalLoggingSessionEventListener=WARN"
+})
+@Log4j2
+class OrderBatchTest {
+
+    // Round trip of a call to ProductService, which dominates placing an order.
+    private static final long RESERVE_LATENCY_MS = 5;
+    private static final int ORDERS = 500;
+
+    @Autowired
+    private OrderService orderService;
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @Autowired
+    private PaymentIntentRepository paymentIntentRepository;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @MockBean
+    private ProductService productService;
+
+    // Statements are counted across the session factory, so the relay must not drain while they are.
+    @MockBean
+    private PaymentOutboxRelay paymentOutboxRelay;
+
+    private final AtomicLong reservationIds = new AtomicLong();
+
+    @BeforeEach
+    void setup() {
+        when(productService.reserve(any(ReservationRequest.class))).thenAnswer(invocation -> {
+            TimeUnit.MILLISECONDS.sleep(RESERVE_LATENCY_MS);
+            return new ResponseEntity<>(reservation(invocation.getArgument(0)), HttpStatus.CREATED);
+        });
+        when(productService.reserveAll(anyList())).thenAnswer(invocation -> {
+            TimeUnit.MILLISECONDS.sleep(RESERVE_LATENCY_MS);
+            List<ReservationRequest> reservationRequests = invocation.getArgument(0);
+            return new ResponseEntity<>(reservationRequests.stream()
+                    .map(reservationRequest -> ReservationResult.builder().reservation(reservation(reservationRequest)).build())
+                    .collect(Collectors.toList()), HttpStatus.OK);
+        });
+    }
+
+    @Test
+    @DisplayName("Place Orders - Orders and payment intents are inserted in JDBC batches")
+    void testPlaceOrdersBatchesInserts() {
+        // Mocking
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        long orders = orderRepository.count();
+        long paymentIntents = paymentIntentRepository.count();
+
+        // Actual
+        statistics.clear();
+        List<OrderResult> results = orderService.placeOrders(orderRequests(100));
+        long statements = statistics.getPrepareStatementCount();
+
+        // Assertion
+        assertEquals(100, results.stream().map(OrderResult::getOrderId).distinct().count());
+        assertTrue(results.stream().allMatch(result -> "PAYMENT_PENDING".equals(result.getOrderStatus())));
+        assertEquals(orders + 100, orderRepository.count());
+        assertEquals(paymentIntents + 100, paymentIntentRepository.count());
+        // Two inserts, plus one sequence call per 50 ids of each table.
+        assertTrue(statements <= 6, statements + " statements");
+    }
+
+    @Test
+    @Tag("benchmark")
+    @DisplayName("Place Orders - Throughput by batch size, against one order per request")
+    void benchmarkBatchAgainstSingleOrders() {
+        for (int i = 0; i < 2; i++) {
+            placeOneByOne(50);
+            placeInBatches(50, 50);
+        }
+
+        long singleNanos = placeOneByOne(ORDERS);
+        List<Integer> batchSizes = List.of(10, 100, 500);
+        List<Long> batchNanos = new ArrayList<>();
+        for (int batchSize : batchSizes) {
+            batchNanos.add(placeInBatches(ORDERS, batchSize));
+        }
+
+        log.info("{} orders with {} ms per call to ProductService: one by one {} orders/s, in batches of {}: {} orders/s",
+                ORDERS, RESERVE_LATENCY_MS, ordersPerSecond(singleNanos), batchSizes,
+                batchNanos.stream().map(OrderBatchTest::ordersPerSecond).collect(Collectors.toList()));
+    }
+
+    private long placeOneByOne(int orders) {
+        List<OrderRequest> orderRequests = orderRequests(orders);
+        long startedAt = System.nanoTime();
+        for (OrderRequest orderRequest : orderRequests) {
+            orderService.placeOrder(orderRequest);
+        }
+        return System.nanoTime() - startedAt;
+    }
+
+    private long placeInBatches(int orders, int batchSize) {
+        List<OrderRequest> orderRequests = orderRequests(orders);
+        long startedAt = System.nanoTime();
+        for (int from = 0; from < orders; from += batchSize) {
+            List<OrderResult> results = orderService.placeOrders(orderRequests.subList(from, Math.min(orders, from + batchSize)));
+            assertNull(results.get(0).getError());
+        }
+        return System.nanoTime() - startedAt;
+    }
+
+    private static long ordersPerSecond(long nanos) {
+        return ORDERS * 1_000_000_000L / nanos;
+    }
+
+    private static List<OrderRequest> orderRequests(int orders) {
+        List<OrderRequest> orderRequests = new ArrayList<>(orders);
+        for (int i = 0; i < orders; i++) {
+            orderRequests.add(OrderRequest.builder()
+                    .productId(1 + i % 10)
+                    .quantity(1)
+                    .totalAmount(100)
+                    .paymentMode(PaymentMode.CASH)
+                    .build());
+        }
+        return orderRequests;
+    }
+
+    private ReservationResponse reservation(ReservationRequest reservationRequest) {
+        return ReservationResponse.builder()
+                .reservationId(reservationIds.incrementAndGet())
+                .productId(reservationRequest.getProductId())
+                .quantity(reservationRequest.getQuantity())
+                .status("RESERVED")
+                .expiresAt(Instant.now().plusSeconds(300))
+                .build();
+    }
+}
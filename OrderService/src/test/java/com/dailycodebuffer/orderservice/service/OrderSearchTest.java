@@ -0,0 +1,212 @@
+package com.dailycodebuffer.orderservice.service;
+
+import com.dailycodebuffer.orderservice.entity.Order;
+import com.dailycodebuffer.orderservice.exception.OrderServiceException;
+import com.dailycodebuffer.orderservice.model.OrderPage;
+import com.dailycodebuffer.orderservice.model.OrderSearchRequest;
+import com.dailycodebuffer.orderservice.model.OrderSummary;
+import com.dailycodebuffer.orderservice.repository.OrderRepository;
+import lombok.extern.log4j.Log4j2;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.IntFunction;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Kept on disk rather than in memory, since the benchmark rows would not fit in the test heap.
+@SpringBootTest({
+        "spring.datasource.url=jdbc:h2:file:./target/h2/order-history;DB_CLOSE_ON_EXIT=FALSE",
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "logging.level.com.dailycodebuffer.orderservice.service.OrderServiceImpl=WARN"
+})
+@Log4j2
+class OrderSearchTest {
+
+    private static final long BENCHMARK_FIRST_ID = 100_000_001;
+    private static final int BENCHMARK_ROWS = 2_000_000;
+    private static final Instant BENCHMARK_FIRST_DATE = Instant.parse("2020-01-01T00:00:00Z");
+    private static final int PAGE_SIZE = 100;
+    private static final int WARMUP_SAMPLES = 20;
+    private static final int SAMPLES = 25;
+
+    @Autowired
+    private OrderService orderService;
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    @DisplayName("Search Orders - Pages through the orders of a product newest first without gaps")
+    void testGetOrdersPagesByProduct() {
+        // Mocking
+        long productId = uniqueProductId();
+        Instant orderDate = Instant.parse("2026-03-01T10:00:00Z");
+        List<Long> orderIds = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            orderIds.add(saveOrder(productId, "PLACED", orderDate.plusSeconds(i)));
+        }
+        // Orders placed at the same time are still paged in a stable order.
+        orderIds.add(saveOrder(productId, "PLACED", orderDate.plusSeconds(2)));
+        saveOrder(productId + 1, "PLACED", orderDate);
+
+        // Actual
+        List<Long> found = new ArrayList<>();
+        OrderSearchRequest request = OrderSearchRequest.builder().productId(productId).size(3).build();
+        int pages = 0;
+        OrderPage page;
+        do {
+            page = orderService.getOrders(request);
+            page.getOrders().forEach(order -> found.add(order.getOrderId()));
+            request.setAfterOrderDate(page.getNextAfterOrderDate());
+            request.setAfterOrderId(page.getNextAfterOrderId());
+            pages++;
+        } while (page.getNextAfterOrderId() != null);
+
+        // Assertion
+        assertEquals(List.of(orderIds.get(3), orderIds.get(2), orderIds.get(1), orderIds.get(0)), found);
+        assertEquals(2, pages);
+    }
+
+    @Test
+    @DisplayName("Search Orders - Status and date range filters")
+    void testGetOrdersFilters() {
+        // Mocking
+        long productId = uniqueProductId();
+        Instant from = Instant.parse("2026-04-01T00:00:00Z");
+        saveOrder(productId, "PLACED", from.minusSeconds(1));
+        long placed = saveOrder(productId, "PLACED", from);
+        long failed = saveOrder(productId, "PAYMENT_FAILED", from.plus(Duration.ofHours(1)));
+        saveOrder(productId, "PLACED", from.plus(Duration.ofDays(1)));
+
+        // Actual
+        OrderPage inRange = orderService.getOrders(OrderSearchRequest.builder()
+                .productId(productId).from(from).to(from.plus(Duration.ofDays(1))).build());
+        OrderPage failedInRange = orderService.getOrders(OrderSearchRequest.builder()
+                .status("PAYMENT_FAILED").from(from).to(from.plus(Duration.ofDays(1))).build());
+
+        // Assertion
+        assertEquals(List.of(failed, placed), ids(inRange));
+        assertNull(inRange.getNextAfterOrderId());
+        assertEquals(List.of(failed), ids(failedInRange));
+    }
+
+    @Test
+    @DisplayName("Search Orders - Next page needs both the order date and id")
+    void testGetOrdersIncompletePage() {
+        OrderServiceException exception = assertThrows(OrderServiceException.class,
+                () -> orderService.getOrders(OrderSearchRequest.builder().afterOrderId(1L).build()));
+
+        assertEquals("INVALID_PAGE", exception.getErrorCode());
+        assertEquals(400, exception.getStatus());
+    }
+
+    @Test
+    @Tag("benchmark")
+    @DisplayName("Search Orders - Keyset and offset pages near the end of 2M orders against page 1")
+    void benchmarkKeysetAgainstOffset() {
+        // Orders are one second apart, every fifth one failed, and spread over 1000 products. They are
+        // older than the orders the other tests save and belong to other products, so they are left to
+        // be dropped with the schema, which is much faster than deleting them.
+        jdbcTemplate.update("insert into order_details (id, product_id, quantity, order_date, status, total_amount) "
+                        + "select x, mod(x, 1000), 1, dateadd(second, x - ?, cast(? as timestamp)), "
+                        + "case when mod(x, 5) = 0 then 'PAYMENT_FAILED' else 'PLACED' end, 100 "
+                        + "from system_range(?, ?)",
+                BENCHMARK_FIRST_ID, Timestamp.from(BENCHMARK_FIRST_DATE),
+                BENCHMARK_FIRST_ID, BENCHMARK_FIRST_ID + BENCHMARK_ROWS - 1);
+        long lastId = BENCHMARK_FIRST_ID + BENCHMARK_ROWS - 1;
+        long deepId = BENCHMARK_FIRST_ID + PAGE_SIZE + WARMUP_SAMPLES + SAMPLES + 1;
+
+        // Each sample reads a slightly different page so that no query result can be reused.
+        long keysetFirst = medianNanos(sample -> keysetPage(null, lastId - sample));
+        long keysetLast = medianNanos(sample -> keysetPage(null, deepId + sample));
+        long offsetFirst = medianNanos(sample -> offsetPage(null, sample));
+        long offsetLast = medianNanos(sample -> offsetPage(null, (int) (lastId - deepId + 1 - sample)));
+        long failedKeysetLast = medianNanos(sample -> keysetPage("PAYMENT_FAILED", deepId + 5L * sample));
+        long failedOffsetLast = medianNanos(sample -> offsetPage("PAYMENT_FAILED", failedAfter(deepId + 5L * sample)));
+
+        log.info("{} orders, {} per page: keyset page 1 {} us, last pages {} us; offset page 1 {} us, last pages {} us; "
+                        + "PAYMENT_FAILED last pages keyset {} us, offset {} us",
+                BENCHMARK_ROWS, PAGE_SIZE, keysetFirst / 1000, keysetLast / 1000, offsetFirst / 1000,
+                offsetLast / 1000, failedKeysetLast / 1000, failedOffsetLast / 1000);
+
+        assertEquals(offsetPage(null, (int) (lastId - deepId + 1)), keysetPage(null, deepId));
+        assertEquals(offsetPage("PAYMENT_FAILED", failedAfter(deepId)), keysetPage("PAYMENT_FAILED", deepId));
+    }
+
+    // Reads the page after the benchmark order with the given id, which is also its position in time.
+    private List<Long> keysetPage(String status, long afterId) {
+        return ids(orderService.getOrders(OrderSearchRequest.builder()
+                .status(status)
+                .afterOrderDate(BENCHMARK_FIRST_DATE.plusSeconds(afterId - BENCHMARK_FIRST_ID))
+                .afterOrderId(afterId)
+                .size(PAGE_SIZE)
+                .build()));
+    }
+
+    // Uses the same indexes as the keyset query, only skipping to the page instead of seeking to it.
+    // Orders saved by the other tests are newer than the benchmark ones, so they are left out.
+    private List<Long> offsetPage(String status, int skippedRows) {
+        Timestamp lastDate = Timestamp.from(BENCHMARK_FIRST_DATE.plusSeconds(BENCHMARK_ROWS - 1));
+        return status == null
+                ? jdbcTemplate.queryForList("select id from order_details where order_date <= ? "
+                        + "order by order_date desc, id desc limit ? offset ?",
+                Long.class, lastDate, PAGE_SIZE, skippedRows)
+                : jdbcTemplate.queryForList("select id from order_details where status = ? and order_date <= ? "
+                        + "order by status, order_date desc, id desc limit ? offset ?",
+                Long.class, status, lastDate, PAGE_SIZE, skippedRows);
+    }
+
+    // Number of failed benchmark orders from the one with the given id on.
+    private static int failedAfter(long id) {
+        return (int) ((BENCHMARK_FIRST_ID + BENCHMARK_ROWS - 1) / 5 - (id - 1) / 5);
+    }
+
+    private static long medianNanos(IntFunction<?> query) {
+        for (int i = 0; i < WARMUP_SAMPLES; i++) {
+            query.apply(SAMPLES + i);
+        }
+        long[] samples = new long[SAMPLES];
+        for (int i = 0; i < SAMPLES; i++) {
+            long startedAt = System.nanoTime();
+            query.apply(i);
+            samples[i] = System.nanoTime() - startedAt;
+        }
+        Arrays.sort(samples);
+        return samples[SAMPLES / 2];
+    }
+
+    private static List<Long> ids(OrderPage page) {
+        return page.getOrders().stream().map(OrderSummary::getOrderId).collect(Collectors.toList());
+    }
+
+    private static long uniqueProductId() {
+        return ThreadLocalRandom.current().nextLong(1_000_000, Long.MAX_VALUE / 2);
+    }
+
+    private long saveOrder(long productId, String orderStatus, Instant orderDate) {
+        return orderRepository.save(Order.builder()
+                        .productId(productId)
+                        .quantity(1)
+                        .amount(100)
+                        .orderStatus(orderStatus)
+                        .orderDate(orderDate)
+                        .build())
+                .getId();
+    }
+}
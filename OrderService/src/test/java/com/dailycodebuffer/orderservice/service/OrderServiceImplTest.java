@@ -1,27 +1,53 @@
 package com.dailycodebuffer.orderservice.service;
 
 import com.dailycodebuffer.orderservice.entity.Order;
+import com.dailycodebuffer.orderservice.entity.OrderView;
+import com.dailycodebuffer.orderservice.entity.PaymentIntent;
 import com.dailycodebuffer.orderservice.exception.OrderServiceException;
 import com.dailycodebuffer.orderservice.external.client.PaymentService;
 import com.dailycodebuffer.orderservice.external.client.ProductService;
-import com.dailycodebuffer.orderservice.external.request.PaymentRequest;
+import com.dailycodebuffer.orderservice.external.loadbalancer.LatencyAwareLoadBalancer;
+import com.dailycodebuffer.orderservice.external.request.ReservationRequest;
+import com.dailycodebuffer.orderservice.external.response.ErrorResponse;
 import com.dailycodebuffer.orderservice.external.response.PaymentResponse;
 import com.dailycodebuffer.orderservice.external.response.ProductResponse;
+import com.dailycodebuffer.orderservice.external.response.ReservationResponse;
+import com.dailycodebuffer.orderservice.external.response.ReservationResult;
+import com.dailycodebuffer.orderservice.mapper.OrderMapper;
 import com.dailycodebuffer.orderservice.model.OrderRequest;
 import com.dailycodebuffer.orderservice.model.OrderResponse;
+import com.dailycodebuffer.orderservice.model.OrderResult;
 import com.dailycodebuffer.orderservice.model.PaymentMode;
 import com.dailycodebuffer.orderservice.repository.OrderRepository;
+import com.dailycodebuffer.orderservice.repository.OrderViewRepository;
+import com.dailycodebuffer.orderservice.repository.PaymentIntentRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
+import org.mapstruct.factory.Mappers;
+import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.dao.QueryTimeoutException;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.RequestEntity;
+import org.springframework.core.task.SyncTaskExecutor;
 import org.springframework.http.ResponseEntity;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.client.HttpClientErrorException;
 import org.springframework.web.client.RestTemplate;
 
+import java.time.Duration;
 import java.time.Instant;
+import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.Executor;
+import java.util.stream.Collectors;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.*;
@@ -33,6 +59,9 @@ class OrderServiceImplTest {
     @Mock
     private OrderRepository orderRepository;
 
+    @Mock
+    private OrderViewRepository orderViewRepository;
+
     @Mock
     private ProductService productService;
 
@@ -42,9 +71,50 @@ class OrderServiceImplTest {
     @Mock
     private RestTemplate restTemplate;
 
+    @Spy
+    private OrderMapper orderMapper = Mappers.getMapper(OrderMapper.class);
+
+    @Mock
+    private PaymentIntentRepository paymentIntentRepository;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    @Spy
+    private TransactionTemplate transactionTemplate = new TransactionTemplate();
+
+    @Spy
+    private Executor downstreamExecutor = new SyncTaskExecutor();
+
+    @Spy
+    private SingleFlight<Long, ProductResponse> productLookups
+            = new SingleFlight<>("PRODUCT-SERVICE", Duration.ZERO, 100, new SimpleMeterRegistry());
+
+    @Spy
+    private SingleFlight<Long, PaymentResponse> paymentLookups
+            = new SingleFlight<>("PAYMENT-SERVICE", Duration.ZERO, 100, new SimpleMeterRegistry());
+
+    @Spy
+    private Hedger<ProductResponse> productHedger
+            = new Hedger<>("PRODUCT-SERVICE", false, 0.95, 0.1, downstreamExecutor, new SimpleMeterRegistry());
+
+    @Spy
+    private Hedger<PaymentResponse> paymentHedger
+            = new Hedger<>("PAYMENT-SERVICE", false, 0.95, 0.1, downstreamExecutor, new SimpleMeterRegistry());
+
     @InjectMocks
     OrderService orderService = new OrderServiceImpl();
 
+    @BeforeEach
+    void setup() {
+        transactionTemplate.setTransactionManager(transactionManager);
+        ReflectionTestUtils.setField(orderService, "productTimeout", Duration.ofSeconds(2));
+        ReflectionTestUtils.setField(orderService, "paymentTimeout", Duration.ofSeconds(2));
+        ReflectionTestUtils.setField(orderService, "maxBatchSize", 500);
+        ReflectionTestUtils.setField(orderService, "viewTimeToLive", Duration.ofMinutes(10));
+        ReflectionTestUtils.setField(orderService, "reservationTtl", Duration.ofMinutes(30));
+    }
+
     @Test
     @DisplayName("Get Order - Success Scenario")
     void testGetOrderSuccess() {
@@ -69,6 +139,112 @@ class OrderServiceImplTest {
         // Assertion
         assertNotNull(orderResponse);
         assertEquals(order.getId(), orderResponse.getOrderId());
+        verify(orderViewRepository, times(1)).save(any(OrderView.class));
+    }
+
+    @Test
+    @DisplayName("Get Order - Hedged reads send their hedge id")
+    @SuppressWarnings("unchecked")
+    void testGetOrderHedged() {
+        // Mocking
+        Order order = getMockOrder();
+        ReflectionTestUtils.setField(orderService, "productHedger",
+                new Hedger<ProductResponse>("PRODUCT-SERVICE", true, 0.95, 0.1, downstreamExecutor, new SimpleMeterRegistry()));
+        ReflectionTestUtils.setField(orderService, "paymentHedger",
+                new Hedger<PaymentResponse>("PAYMENT-SERVICE", true, 0.95, 0.1, downstreamExecutor, new SimpleMeterRegistry()));
+        when(orderRepository.findById(anyLong())).thenReturn(Optional.of(order));
+        when(restTemplate.exchange(any(RequestEntity.class), eq(ProductResponse.class)))
+                .thenReturn(ResponseEntity.ok(getMockProductResponse()));
+        when(restTemplate.exchange(any(RequestEntity.class), eq(PaymentResponse.class)))
+                .thenReturn(ResponseEntity.ok(getMockPaymentResponse()));
+
+        // Actual
+        OrderResponse orderResponse = orderService.getOrderByOrderId(1);
+
+        // Verification
+        ArgumentCaptor<RequestEntity<Void>> requests = ArgumentCaptor.forClass(RequestEntity.class);
+        verify(restTemplate, times(1)).exchange(requests.capture(), eq(ProductResponse.class));
+        verify(restTemplate, times(1)).exchange(requests.capture(), eq(PaymentResponse.class));
+        verify(restTemplate, never()).getForObject(anyString(), any());
+
+        // Assertion
+        assertEquals("http://PRODUCT-SERVICE/product/" + order.getProductId(), requests.getAllValues().get(0).getUrl().toString());
+        assertEquals("http://PAYMENT-SERVICE/payment/order/" + order.getId(), requests.getAllValues().get(1).getUrl().toString());
+        assertTrue(requests.getAllValues().stream()
+                .allMatch(request -> request.getHeaders().containsKey(LatencyAwareLoadBalancer.HEDGE_ID_HEADER)));
+        assertNotNull(orderResponse.getProductDetails());
+        assertNotNull(orderResponse.getPaymentDetails());
+    }
+
+    @Test
+    @DisplayName("Get Order - Served from the order view")
+    void testGetOrderFromView() {
+        // Mocking
+        OrderView orderView = orderMapper.toOrderView(orderMapper.toOrderResponse(
+                getMockOrder(), getMockProductResponse(), getMockPaymentResponse()));
+        when(orderViewRepository.findById(anyLong())).thenReturn(Optional.of(orderView));
+
+        // Actual
+        OrderResponse orderResponse = orderService.getOrderByOrderId(1);
+
+        // Verification
+        verify(orderRepository, never()).findById(anyLong());
+        verifyNoInteractions(restTemplate);
+
+        // Assertion
+        assertEquals("iPhone", orderResponse.getProductDetails().getProductName());
+        assertEquals("ACCEPTED", orderResponse.getPaymentDetails().getStatus());
+    }
+
+    @Test
+    @DisplayName("Get Order - View older than its time to live is rebuilt")
+    void testGetOrderFromStaleView() {
+        // Mocking
+        Order order = getMockOrder();
+        OrderView orderView = orderMapper.toOrderView(orderMapper.toOrderResponse(
+                order, getMockProductResponse(), getMockPaymentResponse()));
+        orderView.setProductName("iPhone 14");
+        orderView.setRefreshedAt(Instant.now().minus(Duration.ofMinutes(11)));
+        when(orderViewRepository.findById(anyLong())).thenReturn(Optional.of(orderView));
+        when(orderRepository.findById(anyLong())).thenReturn(Optional.of(order));
+        when(restTemplate.getForObject("http://PRODUCT-SERVICE/product/" + order.getProductId(),
+                ProductResponse.class)).thenReturn(getMockProductResponse());
+        when(restTemplate.getForObject("http://PAYMENT-SERVICE/payment/order/" + order.getId(),
+                PaymentResponse.class)).thenReturn(getMockPaymentResponse());
+
+        // Actual
+        OrderResponse orderResponse = orderService.getOrderByOrderId(1);
+
+        // Verification
+        verify(orderRepository, times(1)).findById(anyLong());
+        verify(orderViewRepository, times(1)).save(any(OrderView.class));
+
+        // Assertion
+        assertEquals("iPhone", orderResponse.getProductDetails().getProductName());
+    }
+
+    @Test
+    @DisplayName("Get Order - Payment details missing")
+    void testGetOrderPaymentNotFound() {
+        // Mocking
+        Order order = getMockOrder();
+        when(orderRepository.findById(anyLong())).thenReturn(Optional.of(order));
+        when(restTemplate.getForObject("http://PRODUCT-SERVICE/product/" + order.getProductId(),
+                ProductResponse.class)).thenReturn(getMockProductResponse());
+        when(restTemplate.getForObject("http://PAYMENT-SERVICE/payment/order/" + order.getId(),
+                PaymentResponse.class)).thenThrow(new HttpClientErrorException(HttpStatus.NOT_FOUND));
+
+        // Actual
+        OrderResponse orderResponse = orderService.getOrderByOrderId(1);
+
+        // Assertion
+        assertEquals("iPhone", orderResponse.getProductDetails().getProductName());
+        assertNull(orderResponse.getPaymentDetails());
+        assertEquals(List.of("PAYMENT-SERVICE"), orderResponse.getDownstreamErrors().stream()
+                .map(OrderResponse.DownstreamError::getService)
+                .collect(Collectors.toList()));
+        assertEquals("NOT_FOUND", orderResponse.getDownstreamErrors().get(0).getErrorCode());
+        verify(orderViewRepository, never()).save(any(OrderView.class));
     }
 
     @Test
@@ -92,43 +268,114 @@ class OrderServiceImplTest {
         // Mocking
         Order order = getMockOrder();
         OrderRequest orderRequest = getMockOrderRequest();
-        when(productService.reduceQuantity(anyLong(), anyLong())).thenReturn(new ResponseEntity<>(HttpStatus.OK));
+        when(productService.reserve(any(ReservationRequest.class)))
+                .thenReturn(new ResponseEntity<>(getMockReservationResponse(), HttpStatus.CREATED));
         when(orderRepository.save(any(Order.class))).thenReturn(order);
-        when(paymentService.doPayment(any(PaymentRequest.class))).thenReturn(new ResponseEntity<>(1L, HttpStatus.OK));
 
         // Actual
         long orderId = orderService.placeOrder(orderRequest);
 
         // Verification
-        verify(productService, times(1)).reduceQuantity(anyLong(), anyLong());
-        verify(orderRepository, times(2)).save(any(Order.class));
-        verify(paymentService, times(1)).doPayment(any(PaymentRequest.class));
+        ArgumentCaptor<Order> savedOrder = ArgumentCaptor.forClass(Order.class);
+        ArgumentCaptor<PaymentIntent> paymentIntent = ArgumentCaptor.forClass(PaymentIntent.class);
+        verify(productService, times(1)).reserve(any(ReservationRequest.class));
+        verify(orderRepository, times(1)).save(savedOrder.capture());
+        verify(paymentIntentRepository, times(1)).save(paymentIntent.capture());
+        verify(transactionManager, times(1)).commit(any());
+        verifyNoInteractions(paymentService);
+        verify(productService, never()).confirmReservation(anyLong());
 
         // Assertion
         assertEquals(order.getId(), orderId);
+        assertEquals("PAYMENT_PENDING", savedOrder.getValue().getOrderStatus());
+        assertEquals(1, paymentIntent.getValue().getReservationId());
+        assertEquals(orderRequest.getTotalAmount(), paymentIntent.getValue().getAmount());
+        assertEquals(PaymentMode.CASH, paymentIntent.getValue().getPaymentMode());
     }
 
     @Test
-    @DisplayName("Place Order - Payment Failure")
-    void testPlaceOrderPaymentFailure() {
+    @DisplayName("Place Order - Reservation Failure")
+    void testPlaceOrderReservationFailure() {
         // Mocking
-        Order order = getMockOrder();
-        OrderRequest orderRequest = getMockOrderRequest();
-        when(productService.reduceQuantity(anyLong(), anyLong())).thenReturn(new ResponseEntity<>(HttpStatus.OK));
-        when(orderRepository.save(any(Order.class))).thenReturn(order);
-        when(paymentService.doPayment(any(PaymentRequest.class)))
-                .thenThrow(new OrderServiceException("Payment service is offline!", "PAYMENT_SERVICE_OFFLINE", 500));
+        when(productService.reserve(any(ReservationRequest.class)))
+                .thenThrow(new OrderServiceException("Product does not have sufficient quantity!", "INSUFFICIENT_QUANTITY", 409));
 
         // Actual
-        long orderId = orderService.placeOrder(orderRequest);
+        OrderServiceException exception = assertThrows(OrderServiceException.class,
+                () -> orderService.placeOrder(getMockOrderRequest()));
 
         // Verification
-        verify(productService, times(1)).reduceQuantity(anyLong(), anyLong());
-        verify(orderRepository, times(2)).save(any(Order.class));
-        verify(paymentService, times(1)).doPayment(any(PaymentRequest.class));
+        verifyNoInteractions(orderRepository, paymentIntentRepository, paymentService);
 
         // Assertion
-        assertEquals(order.getId(), orderId);
+        assertEquals("INSUFFICIENT_QUANTITY", exception.getErrorCode());
+    }
+
+    @Test
+    @DisplayName("Place Order - Reservation is released when the order cannot be saved")
+    void testPlaceOrderSaveFailure() {
+        // Mocking
+        when(productService.reserve(any(ReservationRequest.class)))
+                .thenReturn(new ResponseEntity<>(getMockReservationResponse(), HttpStatus.CREATED));
+        when(orderRepository.save(any(Order.class))).thenThrow(new QueryTimeoutException("Lock wait timeout exceeded"));
+
+        // Actual
+        assertThrows(QueryTimeoutException.class, () -> orderService.placeOrder(getMockOrderRequest()));
+
+        // Verification
+        verify(productService, times(1)).releaseReservation(1);
+        verify(paymentIntentRepository, never()).save(any(PaymentIntent.class));
+    }
+
+    @Test
+    @DisplayName("Place Orders - Invalid and unreserved orders are left out of the batch")
+    @SuppressWarnings("unchecked")
+    void testPlaceOrders() {
+        // Mocking
+        OrderRequest invalid = getMockOrderRequest();
+        invalid.setQuantity(0);
+        when(productService.reserveAll(anyList())).thenReturn(new ResponseEntity<>(List.of(
+                ReservationResult.builder().reservation(getMockReservationResponse()).build(),
+                ReservationResult.builder()
+                        .error(new ErrorResponse("Product doesn't have sufficient quantity!", "INSUFFICIENT_QUANTITY"))
+                        .build()), HttpStatus.OK));
+
+        // Actual
+        List<OrderResult> results = orderService.placeOrders(List.of(getMockOrderRequest(), invalid, getMockOrderRequest()));
+
+        // Verification
+        ArgumentCaptor<List<ReservationRequest>> reservationRequests = ArgumentCaptor.forClass(List.class);
+        ArgumentCaptor<List<Order>> savedOrders = ArgumentCaptor.forClass(List.class);
+        ArgumentCaptor<List<PaymentIntent>> paymentIntents = ArgumentCaptor.forClass(List.class);
+        verify(productService, times(1)).reserveAll(reservationRequests.capture());
+        verify(productService, never()).reserve(any(ReservationRequest.class));
+        verify(orderRepository, times(1)).saveAll(savedOrders.capture());
+        verify(paymentIntentRepository, times(1)).saveAll(paymentIntents.capture());
+        verify(transactionManager, times(1)).commit(any());
+
+        // Assertion
+        assertEquals(2, reservationRequests.getValue().size());
+        assertEquals("PAYMENT_PENDING", results.get(0).getOrderStatus());
+        assertNull(results.get(0).getError());
+        assertEquals("INVALID_ORDER", results.get(1).getError().getErrorCode());
+        assertNull(results.get(1).getOrderId());
+        assertEquals("INSUFFICIENT_QUANTITY", results.get(2).getError().getErrorCode());
+        assertEquals(1, savedOrders.getValue().size());
+        assertEquals(1, paymentIntents.getValue().get(0).getReservationId());
+        assertEquals(PaymentMode.CASH, paymentIntents.getValue().get(0).getPaymentMode());
+    }
+
+    @Test
+    @DisplayName("Place Orders - Batch too large")
+    void testPlaceOrdersTooMany() {
+        ReflectionTestUtils.setField(orderService, "maxBatchSize", 1);
+
+        OrderServiceException exception = assertThrows(OrderServiceException.class,
+                () -> orderService.placeOrders(List.of(getMockOrderRequest(), getMockOrderRequest())));
+        assertEquals("BATCH_TOO_LARGE", exception.getErrorCode());
+        assertEquals(400, exception.getStatus());
+
+        verifyNoInteractions(orderRepository, productService);
     }
 
     private OrderRequest getMockOrderRequest() {
@@ -140,6 +387,29 @@ class OrderServiceImplTest {
                 .build();
     }
 
+    @Test
+    @DisplayName("Accept Order - Invalid Request")
+    void testAcceptOrderInvalid() {
+        OrderRequest orderRequest = getMockOrderRequest();
+        orderRequest.setQuantity(0);
+
+        OrderServiceException exception = assertThrows(OrderServiceException.class, () -> orderService.acceptOrder(orderRequest));
+        assertEquals("INVALID_ORDER", exception.getErrorCode());
+        assertEquals(400, exception.getStatus());
+
+        verifyNoInteractions(orderRepository, productService, paymentService);
+    }
+
+    private ReservationResponse getMockReservationResponse() {
+        return ReservationResponse.builder()
+                .reservationId(1)
+                .productId(1)
+                .quantity(10)
+                .status("RESERVED")
+                .expiresAt(Instant.now().plusSeconds(300))
+                .build();
+    }
+
     private PaymentResponse getMockPaymentResponse() {
         return PaymentResponse.builder()
                 .paymentId(1)
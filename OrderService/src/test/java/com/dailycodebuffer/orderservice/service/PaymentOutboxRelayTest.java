@@ -0,0 +1,245 @@
+package com.dailycodebuffer.orderservice.service;
+
+import com.dailycodebuffer.orderservice.entity.Order;
+import com.dailycodebuffer.orderservice.entity.PaymentIntent;
+import com.dailycodebuffer.orderservice.exception.OrderServiceException;
+import com.dailycodebuffer.orderservice.external.client.PaymentService;
+import com.dailycodebuffer.orderservice.external.client.ProductService;
+import com.dailycodebuffer.orderservice.external.request.PaymentRequest;
+import com.dailycodebuffer.orderservice.mapper.OrderMapper;
+import com.dailycodebuffer.orderservice.model.PaymentMode;
+import com.dailycodebuffer.orderservice.repository.OrderRepository;
+import com.dailycodebuffer.orderservice.repository.PaymentIntentRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.http.ResponseEntity;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@SpringBootTest({
+        "spring.datasource.url=jdbc:h2:mem:outbox",
+        "order.payment.outbox.batch-size=2",
+        "order.payment.outbox.parallelism=2",
+        "order.payment.outbox.max-attempts=2",
+        "order.payment.outbox.initial-backoff=300ms"
+})
+class PaymentOutboxRelayTest {
+
+    private static final long BACKOFF_MS = 300;
+
+    @Autowired
+    private PaymentOutboxRelay paymentOutboxRelay;
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @Autowired
+    private PaymentIntentRepository paymentIntentRepository;
+
+    @Autowired
+    private OrderMapper orderMapper;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @MockBean
+    private PaymentService paymentService;
+
+    @MockBean
+    private ProductService productService;
+
+    @MockBean
+    private OrderService orderService;
+
+    @AfterEach
+    void cleanup() {
+        paymentIntentRepository.deleteAll();
+        orderRepository.deleteAll();
+    }
+
+    @Test
+    @DisplayName("Relay - Intents are sent oldest first in parallel batches")
+    void testDrainSendsBatches() {
+        // Mocking
+        List<Long> orderIds = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            orderIds.add(enqueuePayment(i + 1));
+        }
+        when(paymentService.doPayments(anyList())).thenReturn(ResponseEntity.ok(List.of()));
+        double placedBefore = placedCount();
+
+        // Actual
+        paymentOutboxRelay.drain();
+
+        // Verification
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<List<PaymentRequest>> batches = ArgumentCaptor.forClass(List.class);
+        verify(paymentService, times(3)).doPayments(batches.capture());
+        verify(productService, times(5)).confirmReservation(anyLong());
+        verify(productService, never()).releaseReservation(anyLong());
+
+        // Assertion
+        List<List<Long>> sentOrderIds = batches.getAllValues().stream()
+                .map(batch -> batch.stream().map(PaymentRequest::getOrderId).collect(Collectors.toList()))
+                .sorted(Comparator.comparing(batch -> batch.get(0)))
+                .collect(Collectors.toList());
+        assertEquals(List.of(orderIds.subList(0, 2), orderIds.subList(2, 4), orderIds.subList(4, 5)), sentOrderIds);
+        assertEquals(0, paymentIntentRepository.count());
+        orderIds.forEach(orderId -> assertEquals("PLACED", orderStatus(orderId)));
+        assertEquals(5, placedCount() - placedBefore);
+        assertEquals(0, meterRegistry.get("order.payment.outbox.lag").gauge().value());
+    }
+
+    @Test
+    @DisplayName("Relay - Failed batch is retried after a backoff and fails the order after max attempts")
+    void testDrainRetriesThenFails() throws Exception {
+        // Mocking
+        long orderId = enqueuePayment(7);
+        when(paymentService.doPayments(anyList()))
+                .thenThrow(new OrderServiceException("Payment service is offline!", "PAYMENT_SERVICE_OFFLINE", 500));
+
+        // Actual/Assertion
+        paymentOutboxRelay.drain();
+        paymentOutboxRelay.drain();
+        PaymentIntent retried = paymentIntentRepository.findAll().get(0);
+        assertEquals(1, retried.getAttempts());
+        assertTrue(retried.getNextAttemptAt().isAfter(Instant.now()));
+        assertEquals("PAYMENT_PENDING", orderStatus(orderId));
+        assertTrue(meterRegistry.get("order.payment.outbox.lag").gauge().value() >= 0);
+        verify(paymentService, times(1)).doPayments(anyList());
+
+        TimeUnit.MILLISECONDS.sleep(BACKOFF_MS + 50);
+        paymentOutboxRelay.drain();
+
+        // Verification
+        verify(paymentService, times(2)).doPayments(anyList());
+        verify(productService, times(1)).releaseReservation(7);
+        verify(productService, never()).confirmReservation(anyLong());
+
+        // Assertion
+        assertEquals("PAYMENT_FAILED", orderStatus(orderId));
+        assertEquals(0, paymentIntentRepository.count());
+    }
+
+    @Test
+    @DisplayName("Relay - Reservation not confirmed sends the payment again")
+    void testDrainRetriesConfirmation() throws Exception {
+        long orderId = enqueuePayment(9);
+        when(paymentService.doPayments(anyList())).thenReturn(ResponseEntity.ok(List.of(1L)));
+        when(productService.confirmReservation(9))
+                .thenThrow(new OrderServiceException("Product service is offline!", "PRODUCT_SERVICE_OFFLINE", 500))
+                .thenReturn(ResponseEntity.ok().build());
+
+        paymentOutboxRelay.drain();
+        assertEquals("PAYMENT_PENDING", orderStatus(orderId));
+        TimeUnit.MILLISECONDS.sleep(BACKOFF_MS + 50);
+        paymentOutboxRelay.drain();
+
+        verify(paymentService, times(2)).doPayments(anyList());
+        verify(productService, times(2)).confirmReservation(9);
+        verify(productService, never()).releaseReservation(anyLong());
+        assertEquals("PLACED", orderStatus(orderId));
+        assertEquals(0, paymentIntentRepository.count());
+    }
+
+    @Test
+    @DisplayName("Relay - Reservation never confirmed is retried past max attempts, not placed")
+    void testDrainKeepsRetryingUnconfirmedReservation() throws Exception {
+        // Mocking
+        long orderId = enqueuePayment(10);
+        when(paymentService.doPayments(anyList())).thenReturn(ResponseEntity.ok(List.of(1L)));
+        when(productService.confirmReservation(10))
+                .thenThrow(new OrderServiceException("Product service is offline!", "PRODUCT_SERVICE_OFFLINE", 500))
+                .thenThrow(new OrderServiceException("Product service is offline!", "PRODUCT_SERVICE_OFFLINE", 500))
+                .thenThrow(new OrderServiceException("Reservation is already expired!", "RESERVATION_EXPIRED", 409));
+
+        // Actual/Assertion
+        paymentOutboxRelay.drain();
+        TimeUnit.MILLISECONDS.sleep(BACKOFF_MS + 50);
+        paymentOutboxRelay.drain();
+        assertEquals("PAYMENT_PENDING", orderStatus(orderId));
+        assertEquals(2, paymentIntentRepository.findAll().get(0).getAttempts());
+
+        TimeUnit.MILLISECONDS.sleep(2 * BACKOFF_MS + 50);
+        paymentOutboxRelay.drain();
+
+        // Verification
+        verify(productService, times(3)).confirmReservation(10);
+        verify(paymentService, times(1)).refundPayment(orderId);
+
+        // Assertion
+        assertEquals("RESERVATION_FAILED", orderStatus(orderId));
+        assertEquals(0, paymentIntentRepository.count());
+    }
+
+    @Test
+    @DisplayName("Relay - Payment of an order whose reservation expired is refunded")
+    void testDrainRefundsLapsedReservation() {
+        // Mocking
+        long orderId = enqueuePayment(11);
+        when(paymentService.doPayments(anyList())).thenReturn(ResponseEntity.ok(List.of(1L)));
+        when(productService.confirmReservation(11))
+                .thenThrow(new OrderServiceException("Reservation is already expired!", "RESERVATION_EXPIRED", 409));
+
+        // Actual
+        paymentOutboxRelay.drain();
+
+        // Verification
+        verify(paymentService, times(1)).refundPayment(orderId);
+
+        // Assertion
+        assertEquals("RESERVATION_FAILED", orderStatus(orderId));
+        assertEquals(0, paymentIntentRepository.count());
+    }
+
+    @Test
+    @DisplayName("Relay - Reservation time to live shorter than the retries fails startup")
+    void testReservationTtlShorterThanRetries() {
+        PaymentOutboxRelay relay = new PaymentOutboxRelay();
+        ReflectionTestUtils.setField(relay, "claimTimeout", Duration.ofMinutes(1));
+        ReflectionTestUtils.setField(relay, "maxAttempts", 10);
+        ReflectionTestUtils.setField(relay, "initialBackoff", Duration.ofSeconds(1));
+        ReflectionTestUtils.setField(relay, "maxBackoff", Duration.ofMinutes(5));
+        ReflectionTestUtils.setField(relay, "reservationTtl", Duration.ofMinutes(5));
+
+        IllegalStateException exception = assertThrows(IllegalStateException.class, relay::start);
+        assertTrue(exception.getMessage().contains("order.reservation.ttl"));
+    }
+
+    private long enqueuePayment(long reservationId) {
+        Order order = orderRepository.save(Order.builder()
+                .productId(1)
+                .quantity(1)
+                .amount(100)
+                .orderStatus("PAYMENT_PENDING")
+                .orderDate(Instant.now())
+                .build());
+        paymentIntentRepository.save(orderMapper.toPaymentIntent(order, reservationId, PaymentMode.CASH));
+        return order.getId();
+    }
+
+    private String orderStatus(long orderId) {
+        return orderRepository.findById(orderId).orElseThrow().getOrderStatus();
+    }
+
+    private double placedCount() {
+        return meterRegistry.get("order.payment.outbox.intents").tag("outcome", "placed").counter().count();
+    }
+}
@@ -0,0 +1,131 @@
+package com.dailycodebuffer.orderservice.service;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SingleFlightTest {
+
+    private static final int CALLERS = 64;
+
+    private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final AtomicInteger calls = new AtomicInteger();
+
+    @Test
+    @DisplayName("Single Flight - Simultaneous lookups of one key make one call")
+    void testConcurrentLookupsShareOneCall() throws Exception {
+        // Mocking
+        SingleFlight<Long, String> singleFlight = new SingleFlight<>("PRODUCT-SERVICE", Duration.ZERO, 100, meterRegistry);
+        CompletableFuture<String> response = new CompletableFuture<>();
+        CountDownLatch start = new CountDownLatch(1);
+        CountDownLatch looking = new CountDownLatch(CALLERS);
+        ExecutorService callers = Executors.newFixedThreadPool(CALLERS);
+
+        // Actual
+        List<Future<CompletableFuture<String>>> lookups = new ArrayList<>();
+        for (int i = 0; i < CALLERS; i++) {
+            lookups.add(callers.submit(() -> {
+                start.await();
+                CompletableFuture<String> lookup = singleFlight.get(1L, () -> {
+                    calls.incrementAndGet();
+                    return response;
+                });
+                looking.countDown();
+                return lookup;
+            }));
+        }
+        start.countDown();
+        assertTrue(looking.await(10, TimeUnit.SECONDS));
+        response.complete("iPhone");
+        List<String> results = new ArrayList<>();
+        for (Future<CompletableFuture<String>> lookup : lookups) {
+            results.add(lookup.get().get(10, TimeUnit.SECONDS));
+        }
+        callers.shutdown();
+
+        // Assertion
+        assertEquals(1, calls.get());
+        assertTrue(results.stream().allMatch("iPhone"::equals));
+        assertEquals(1, count("called"));
+        assertEquals(CALLERS - 1, count("coalesced"));
+        assertEquals((CALLERS - 1) / (double) CALLERS, ratio(), 1e-9);
+    }
+
+    @Test
+    @DisplayName("Single Flight - Next lookup after a call completes makes a new call")
+    void testCompletedCallIsNotShared() {
+        SingleFlight<Long, String> singleFlight = new SingleFlight<>("PRODUCT-SERVICE", Duration.ZERO, 100, meterRegistry);
+
+        assertEquals("iPhone", singleFlight.get(1L, this::call).join());
+        assertEquals("iPhone", singleFlight.get(1L, this::call).join());
+        assertEquals("iPhone", singleFlight.get(2L, this::call).join());
+
+        assertEquals(3, calls.get());
+        assertEquals(0, count("coalesced"));
+    }
+
+    @Test
+    @DisplayName("Single Flight - Micro-cache answers lookups until its entries expire")
+    void testMicroCache() throws Exception {
+        SingleFlight<Long, String> singleFlight = new SingleFlight<>("PRODUCT-SERVICE", Duration.ofMillis(200), 100, meterRegistry);
+
+        singleFlight.get(1L, this::call).join();
+        singleFlight.get(1L, this::call).join();
+        TimeUnit.MILLISECONDS.sleep(400);
+        singleFlight.get(1L, this::call).join();
+
+        assertEquals(2, calls.get());
+        assertEquals(1, count("cached"));
+    }
+
+    @Test
+    @DisplayName("Single Flight - Failures are shared but never kept, and callers time out on their own")
+    void testFailuresAndTimeouts() {
+        SingleFlight<Long, String> singleFlight = new SingleFlight<>("PRODUCT-SERVICE", Duration.ofMinutes(1), 100, meterRegistry);
+        CompletableFuture<String> response = new CompletableFuture<>();
+
+        CompletableFuture<String> first = singleFlight.get(1L, () -> response);
+        CompletableFuture<String> second = singleFlight.get(1L, this::call);
+        first.orTimeout(10, TimeUnit.MILLISECONDS);
+        CompletionException timeout = assertThrows(CompletionException.class, first::join);
+        response.completeExceptionally(new IllegalStateException("Product service is offline!"));
+        CompletionException failure = assertThrows(CompletionException.class, second::join);
+
+        assertInstanceOf(TimeoutException.class, timeout.getCause());
+        assertInstanceOf(IllegalStateException.class, failure.getCause());
+        assertEquals("iPhone", singleFlight.get(1L, this::call).join());
+        assertEquals(1, calls.get());
+    }
+
+    private CompletableFuture<String> call() {
+        calls.incrementAndGet();
+        return CompletableFuture.completedFuture("iPhone");
+    }
+
+    private double count(String result) {
+        return meterRegistry.get("order.downstream.lookups")
+                .tag("service", "PRODUCT-SERVICE")
+                .tag("result", result)
+                .counter().count();
+    }
+
+    private double ratio() {
+        return meterRegistry.get("order.downstream.lookups.coalesced.ratio").gauge().value();
+    }
+}
@@ -8,6 +8,8 @@ import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.util.List;
+
 @RestController
 @RequestMapping("/payment")
 public class PaymentController {
@@ -21,9 +23,21 @@ public class PaymentController {
         return new ResponseEntity<>(paymentId, HttpStatus.OK);
     }
 
+    @PostMapping("/batch")
+    public ResponseEntity<List<Long>> doPayments(@RequestBody List<PaymentRequest> paymentRequests) {
+        List<Long> paymentIds = paymentService.doPayments(paymentRequests);
+        return new ResponseEntity<>(paymentIds, HttpStatus.OK);
+    }
+
     @GetMapping("/order/{orderId}")
     public ResponseEntity<PaymentResponse> getPaymentDetailsByOrderId(@PathVariable long orderId) {
         PaymentResponse paymentResponse = paymentService.getPaymentDetailsByOrderId(orderId);
         return new ResponseEntity<>(paymentResponse, HttpStatus.OK);
     }
+
+    @PutMapping("/order/{orderId}/refund")
+    public ResponseEntity<Void> refundPayment(@PathVariable long orderId) {
+        paymentService.refundPayment(orderId);
+        return new ResponseEntity<>(HttpStatus.OK);
+    }
 }
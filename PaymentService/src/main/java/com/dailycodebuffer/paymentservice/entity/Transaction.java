@@ -10,7 +10,10 @@ import javax.persistence.*;
 import java.time.Instant;
 
 @Entity
-@Table(name = "TRANSACTION_DETAILS")
+// An order is paid once, however often its payment is sent.
+@Table(name = "TRANSACTION_DETAILS", uniqueConstraints = {
+        @UniqueConstraint(name = "UK_TRANSACTION_ORDER_ID", columnNames = "ORDER_ID")
+})
 @Data
 @AllArgsConstructor
 @NoArgsConstructor
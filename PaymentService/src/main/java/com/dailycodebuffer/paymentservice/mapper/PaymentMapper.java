@@ -0,0 +1,22 @@
+package com.dailycodebuffer.paymentservice.mapper;
+
+import com.dailycodebuffer.paymentservice.entity.Transaction;
+import com.dailycodebuffer.paymentservice.model.PaymentRequest;
+import com.dailycodebuffer.paymentservice.model.PaymentResponse;
+import org.mapstruct.Mapper;
+import org.mapstruct.Mapping;
+
+import java.time.Instant;
+
+@Mapper(componentModel = "spring", imports = Instant.class)
+public interface PaymentMapper {
+
+    @Mapping(target = "id", ignore = true)
+    @Mapping(target = "paymentDate", expression = "java(Instant.now())")
+    @Mapping(target = "paymentStatus", constant = "SUCCESS")
+    Transaction toTransaction(PaymentRequest paymentRequest);
+
+    @Mapping(target = "paymentId", source = "id")
+    @Mapping(target = "status", source = "paymentStatus")
+    PaymentResponse toPaymentResponse(Transaction transaction);
+}
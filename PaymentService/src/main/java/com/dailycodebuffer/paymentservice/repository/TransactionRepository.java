@@ -4,8 +4,13 @@ import com.dailycodebuffer.paymentservice.entity.Transaction;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
+import java.util.List;
+
 @Repository
 public interface TransactionRepository extends JpaRepository<Transaction, Long> {
 
     Transaction findByOrderId(long orderId);
+
+    List<Transaction> findByOrderIdIn(Collection<Long> orderIds);
 }
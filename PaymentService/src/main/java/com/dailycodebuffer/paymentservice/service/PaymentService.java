@@ -3,8 +3,14 @@ package com.dailycodebuffer.paymentservice.service;
 import com.dailycodebuffer.paymentservice.model.PaymentRequest;
 import com.dailycodebuffer.paymentservice.model.PaymentResponse;
 
+import java.util.List;
+
 public interface PaymentService {
     long doPayment(PaymentRequest paymentRequest);
 
+    List<Long> doPayments(List<PaymentRequest> paymentRequests);
+
     PaymentResponse getPaymentDetailsByOrderId(long orderId);
+
+    void refundPayment(long orderId);
 }
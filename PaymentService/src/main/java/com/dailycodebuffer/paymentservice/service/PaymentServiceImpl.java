@@ -1,15 +1,23 @@
 package com.dailycodebuffer.paymentservice.service;
 
 import com.dailycodebuffer.paymentservice.entity.Transaction;
-import com.dailycodebuffer.paymentservice.model.PaymentMode;
+import com.dailycodebuffer.paymentservice.mapper.PaymentMapper;
 import com.dailycodebuffer.paymentservice.model.PaymentRequest;
 import com.dailycodebuffer.paymentservice.model.PaymentResponse;
 import com.dailycodebuffer.paymentservice.repository.TransactionRepository;
 import lombok.extern.log4j.Log4j2;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
-import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
 
 @Service
 @Log4j2
@@ -18,35 +26,93 @@ public class PaymentServiceImpl implements PaymentService {
     @Autowired
     private TransactionRepository transactionRepository;
 
+    @Autowired
+    private PaymentMapper paymentMapper;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
     @Override
     public long doPayment(PaymentRequest paymentRequest) {
         log.info("Recording payment request: {}", paymentRequest);
-        Transaction transaction = Transaction.builder()
-                .paymentMode(paymentRequest.getPaymentMode().name())
-                .amount(paymentRequest.getAmount())
-                .paymentDate(Instant.now())
-                .paymentStatus("SUCCESS")
-                .referenceNumber(paymentRequest.getReferenceNumber())
-                .orderId(paymentRequest.getOrderId())
-                .build();
+        Transaction transaction = paymentMapper.toTransaction(paymentRequest);
 
-        transactionRepository.save(transaction);
+        try {
+            transactionRepository.saveAndFlush(transaction);
+        } catch (DataIntegrityViolationException e) {
+            Transaction existing = transactionRepository.findByOrderId(paymentRequest.getOrderId());
+            if (existing == null) {
+                throw e;
+            }
+            log.info("Order id:{} already has payment with id:{}", paymentRequest.getOrderId(), existing.getId());
+            return existing.getId();
+        }
         log.info("Payment successful with id:{}", transaction.getId());
         return transaction.getId();
     }
 
+    /**
+     * Records the payments of a batch in one transaction and returns their ids in request order.
+     * Orders are sent again when a batch is retried, so an order that already has a payment gets
+     * the id of that payment instead of a second one. When another batch records one of the
+     * orders at the same time, the batch is recorded again and finds that payment.
+     */
+    @Override
+    public List<Long> doPayments(List<PaymentRequest> paymentRequests) {
+        try {
+            return transactionTemplate.execute(status -> recordPayments(paymentRequests));
+        } catch (DataIntegrityViolationException e) {
+            log.info("Payment of an order in the batch was recorded concurrently, recording the batch again");
+            return transactionTemplate.execute(status -> recordPayments(paymentRequests));
+        }
+    }
+
+    private List<Long> recordPayments(List<PaymentRequest> paymentRequests) {
+        log.info("Recording batch of {} payment requests", paymentRequests.size());
+        Map<Long, Long> paymentIds = new HashMap<>();
+        Set<Long> orderIds = paymentRequests.stream().map(PaymentRequest::getOrderId).collect(Collectors.toSet());
+        transactionRepository.findByOrderIdIn(orderIds)
+                .forEach(transaction -> paymentIds.put(transaction.getOrderId(), transaction.getId()));
+
+        List<Transaction> transactions = new ArrayList<>();
+        for (PaymentRequest paymentRequest : paymentRequests) {
+            if (!paymentIds.containsKey(paymentRequest.getOrderId())) {
+                Transaction transaction = paymentMapper.toTransaction(paymentRequest);
+                transactions.add(transaction);
+                paymentIds.put(transaction.getOrderId(), 0L);
+            }
+        }
+        transactionRepository.saveAllAndFlush(transactions)
+                .forEach(transaction -> paymentIds.put(transaction.getOrderId(), transaction.getId()));
+        log.info("Batch recorded {} new payments", transactions.size());
+
+        return paymentRequests.stream()
+                .map(paymentRequest -> paymentIds.get(paymentRequest.getOrderId()))
+                .collect(Collectors.toList());
+    }
+
     @Override
     public PaymentResponse getPaymentDetailsByOrderId(long orderId) {
         log.info("Fetching payment details with order id:{}", orderId);
         Transaction transaction = transactionRepository.findByOrderId(orderId);
 
-        return PaymentResponse.builder()
-                .paymentMode(PaymentMode.valueOf(transaction.getPaymentMode()))
-                .paymentDate(transaction.getPaymentDate())
-                .orderId(transaction.getOrderId())
-                .paymentId(transaction.getId())
-                .amount(transaction.getAmount())
-                .status(transaction.getPaymentStatus())
-                .build();
+        return paymentMapper.toPaymentResponse(transaction);
+    }
+
+    /**
+     * Marks the payment of the order as refunded. Refunding an order that has no payment, or
+     * refunding it again, does nothing.
+     */
+    @Override
+    @Transactional
+    public void refundPayment(long orderId) {
+        log.info("Refunding payment of order id:{}", orderId);
+        Transaction transaction = transactionRepository.findByOrderId(orderId);
+        if (transaction == null || "REFUNDED".equals(transaction.getPaymentStatus())) {
+            return;
+        }
+        transaction.setPaymentStatus("REFUNDED");
+        transactionRepository.save(transaction);
+        log.info("Payment refunded with id:{}", transaction.getId());
     }
 }
@@ -0,0 +1,153 @@
+package com.dailycodebuffer.paymentservice.service;
+
+import com.dailycodebuffer.paymentservice.entity.Transaction;
+import com.dailycodebuffer.paymentservice.mapper.PaymentMapper;
+import com.dailycodebuffer.paymentservice.mapper.PaymentMapperImpl;
+import com.dailycodebuffer.paymentservice.model.PaymentMode;
+import com.dailycodebuffer.paymentservice.model.PaymentRequest;
+import com.dailycodebuffer.paymentservice.repository.TransactionRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.mock.mockito.SpyBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Instant;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@DataJpaTest(showSql = false)
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import({PaymentServiceImpl.class, PaymentMapperImpl.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class PaymentServiceImplTest {
+
+    @Autowired
+    private PaymentService paymentService;
+
+    @Autowired
+    private TransactionRepository transactionRepository;
+
+    @SpyBean
+    private PaymentMapper paymentMapper;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @AfterEach
+    void cleanup() {
+        transactionRepository.deleteAll();
+    }
+
+    @Test
+    @DisplayName("Do Payments - Batch is inserted once per order and ids come back in request order")
+    void testDoPayments() {
+        // Mocking
+        long existingId = savePayment(2);
+
+        // Actual
+        List<Long> paymentIds = paymentService.doPayments(List.of(
+                paymentRequest(1), paymentRequest(2), paymentRequest(3), paymentRequest(1)));
+
+        // Assertion
+        assertEquals(4, paymentIds.size());
+        assertEquals(transactionRepository.findByOrderId(1).getId(), paymentIds.get(0));
+        assertEquals(existingId, paymentIds.get(1));
+        assertEquals(transactionRepository.findByOrderId(3).getId(), paymentIds.get(2));
+        assertEquals(paymentIds.get(0), paymentIds.get(3));
+        assertEquals(3, transactionRepository.count());
+    }
+
+    @Test
+    @DisplayName("Do Payments - Order paid by another batch meanwhile is recorded again and gets that payment")
+    void testDoPaymentsConcurrentDuplicate() {
+        // Mocking: the other batch commits order 5 after this one looked for it, before this one inserts it
+        TransactionTemplate otherBatch = new TransactionTemplate(transactionManager);
+        otherBatch.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        long[] concurrentId = new long[1];
+        doAnswer(invocation -> {
+            if (concurrentId[0] == 0) {
+                concurrentId[0] = otherBatch.execute(status -> savePayment(5));
+            }
+            return invocation.callRealMethod();
+        }).when(paymentMapper).toTransaction(argThat(paymentRequest -> paymentRequest.getOrderId() == 5));
+
+        // Actual
+        List<Long> paymentIds = paymentService.doPayments(List.of(paymentRequest(4), paymentRequest(5)));
+
+        // Verification: recorded twice, the second time without building a payment for order 5
+        verify(paymentMapper, times(3)).toTransaction(any(PaymentRequest.class));
+
+        // Assertion
+        assertEquals(concurrentId[0], paymentIds.get(1));
+        assertEquals(transactionRepository.findByOrderId(4).getId(), paymentIds.get(0));
+        assertEquals(2, transactionRepository.count());
+    }
+
+    @Test
+    @DisplayName("Do Payment - Order already paid gets the id of its payment")
+    void testDoPaymentDuplicate() {
+        long existingId = savePayment(6);
+
+        long paymentId = paymentService.doPayment(paymentRequest(6));
+
+        assertEquals(existingId, paymentId);
+        assertEquals(1, transactionRepository.count());
+    }
+
+    @Test
+    @DisplayName("Transaction - Second payment of an order is rejected by the database")
+    void testOrderIdUnique() {
+        savePayment(7);
+
+        assertThrows(DataIntegrityViolationException.class, () -> savePayment(7));
+    }
+
+    @Test
+    @DisplayName("Refund Payment - Payment is refunded once, and unknown orders are left alone")
+    void testRefundPayment() {
+        // Mocking
+        savePayment(8);
+
+        // Actual
+        paymentService.refundPayment(8);
+        paymentService.refundPayment(8);
+        paymentService.refundPayment(-1);
+
+        // Assertion
+        assertEquals("REFUNDED", transactionRepository.findByOrderId(8).getPaymentStatus());
+        assertNull(transactionRepository.findByOrderId(-1));
+        assertEquals(1, transactionRepository.count());
+    }
+
+    private long savePayment(long orderId) {
+        return transactionRepository.saveAndFlush(Transaction.builder()
+                        .orderId(orderId)
+                        .paymentMode(PaymentMode.CASH.name())
+                        .paymentDate(Instant.now())
+                        .paymentStatus("SUCCESS")
+                        .amount(100)
+                        .build())
+                .getId();
+    }
+
+    private static PaymentRequest paymentRequest(long orderId) {
+        return PaymentRequest.builder()
+                .orderId(orderId)
+                .amount(100)
+                .paymentMode(PaymentMode.CASH)
+                .build();
+    }
+}
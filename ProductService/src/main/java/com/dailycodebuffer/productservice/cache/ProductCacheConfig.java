@@ -0,0 +1,80 @@
+package com.dailycodebuffer.productservice.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.annotation.EnableCaching;
+import org.springframework.cache.support.SimpleCacheManager;
+import org.springframework.cache.transaction.TransactionAwareCacheManagerProxy;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.data.redis.serializer.GenericJackson2JsonRedisSerializer;
+import org.springframework.data.redis.serializer.StringRedisSerializer;
+
+import java.time.Duration;
+import java.util.List;
+
+@Configuration
+@EnableCaching
+@ConditionalOnProperty(name = "product.cache.enabled", havingValue = "true")
+public class ProductCacheConfig {
+
+    public static final String PRODUCTS = "products";
+
+    @Bean
+    public RedisTemplate<String, Object> productCacheRedisTemplate(RedisConnectionFactory redisConnectionFactory) {
+        RedisTemplate<String, Object> redisTemplate = new RedisTemplate<>();
+        redisTemplate.setConnectionFactory(redisConnectionFactory);
+        redisTemplate.setKeySerializer(new StringRedisSerializer());
+        redisTemplate.setValueSerializer(new GenericJackson2JsonRedisSerializer());
+        return redisTemplate;
+    }
+
+    @Bean
+    public TwoLevelCache productsCache(
+            RedisTemplate<String, Object> productCacheRedisTemplate,
+            MeterRegistry meterRegistry,
+            @Value("${product.cache.local.maximum-size:10000}") long maximumSize,
+            @Value("${product.cache.local.expire-after-write:30s}") Duration localTimeToLive,
+            @Value("${product.cache.remote.time-to-live:10m}") Duration remoteTimeToLive) {
+        Cache<String, Object> localCache = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(localTimeToLive)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, localCache, PRODUCTS);
+
+        return new TwoLevelCache(PRODUCTS, localCache, productCacheRedisTemplate, remoteTimeToLive, meterRegistry);
+    }
+
+    @Bean
+    public CacheManager cacheManager(TwoLevelCache productsCache) {
+        SimpleCacheManager cacheManager = new SimpleCacheManager();
+        cacheManager.setCaches(List.of(productsCache));
+        cacheManager.initializeCaches();
+        // Evictions made inside a transaction only happen once it commits.
+        return new TransactionAwareCacheManagerProxy(cacheManager);
+    }
+
+    @Bean
+    public RedisMessageListenerContainer productCacheInvalidationListener(
+            RedisConnectionFactory redisConnectionFactory,
+            RedisTemplate<String, Object> productCacheRedisTemplate,
+            TwoLevelCache productsCache) {
+        RedisMessageListenerContainer container = new RedisMessageListenerContainer();
+        container.setConnectionFactory(redisConnectionFactory);
+        container.addMessageListener(
+                (message, pattern) -> productsCache.evictLocal(
+                        (String) productCacheRedisTemplate.getValueSerializer().deserialize(message.getBody())),
+                new ChannelTopic(productsCache.getInvalidationChannel()));
+        return container;
+    }
+}
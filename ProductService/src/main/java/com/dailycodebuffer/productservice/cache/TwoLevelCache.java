@@ -0,0 +1,182 @@
+package com.dailycodebuffer.productservice.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.cache.support.AbstractValueAdaptingCache;
+import org.springframework.data.redis.core.Cursor;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.ScanOptions;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+
+/**
+ * Read-through cache backed by a bounded in-process Caffeine cache (L1) in front of a
+ * Redis cache shared by all instances (L2).
+ *
+ * <p>Evictions remove the entry from both levels and are published on a Redis channel so
+ * that the other instances drop it from their L1 as well. Redis failures are logged and
+ * treated as misses so that reads keep working off the database.
+ */
+@Log4j2
+public class TwoLevelCache extends AbstractValueAdaptingCache {
+
+    private static final String CLEAR_ALL = "*";
+
+    private final String name;
+    private final Cache<String, Object> localCache;
+    private final RedisTemplate<String, Object> redisTemplate;
+    private final Duration timeToLive;
+    private final String invalidationChannel;
+    private final Counter remoteHits;
+    private final Counter remoteMisses;
+    private final Counter remoteErrors;
+
+    public TwoLevelCache(String name,
+                         Cache<String, Object> localCache,
+                         RedisTemplate<String, Object> redisTemplate,
+                         Duration timeToLive,
+                         MeterRegistry meterRegistry) {
+        super(false);
+        this.name = name;
+        this.localCache = localCache;
+        this.redisTemplate = redisTemplate;
+        this.timeToLive = timeToLive;
+        this.invalidationChannel = name + "::invalidations";
+        this.remoteHits = remoteCounter(meterRegistry, "hit");
+        this.remoteMisses = remoteCounter(meterRegistry, "miss");
+        this.remoteErrors = remoteCounter(meterRegistry, "error");
+    }
+
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public Object getNativeCache() {
+        return localCache;
+    }
+
+    public String getInvalidationChannel() {
+        return invalidationChannel;
+    }
+
+    @Override
+    protected Object lookup(Object key) {
+        String cacheKey = String.valueOf(key);
+        Object value = localCache.getIfPresent(cacheKey);
+        if (value == null) {
+            value = getRemote(cacheKey);
+            if (value != null) {
+                localCache.put(cacheKey, value);
+            }
+        }
+        return value;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> T get(Object key, Callable<T> valueLoader) {
+        // Caffeine runs the loader once per key, so concurrent misses share one database read.
+        return (T) fromStoreValue(localCache.get(String.valueOf(key), cacheKey -> {
+            Object value = getRemote(cacheKey);
+            if (value == null) {
+                try {
+                    value = toStoreValue(valueLoader.call());
+                } catch (Exception e) {
+                    throw new ValueRetrievalException(key, valueLoader, e);
+                }
+                putRemote(cacheKey, value);
+            }
+            return value;
+        }));
+    }
+
+    @Override
+    public void put(Object key, Object value) {
+        String cacheKey = String.valueOf(key);
+        Object storeValue = toStoreValue(value);
+        localCache.put(cacheKey, storeValue);
+        putRemote(cacheKey, storeValue);
+    }
+
+    @Override
+    public void evict(Object key) {
+        String cacheKey = String.valueOf(key);
+        localCache.invalidate(cacheKey);
+        try {
+            redisTemplate.delete(remoteKey(cacheKey));
+            redisTemplate.convertAndSend(invalidationChannel, cacheKey);
+        } catch (RuntimeException e) {
+            remoteErrors.increment();
+            log.warn("Failed to evict {} from remote cache {}", cacheKey, name, e);
+        }
+    }
+
+    @Override
+    public void clear() {
+        localCache.invalidateAll();
+        try {
+            List<String> keys = new ArrayList<>();
+            try (Cursor<String> cursor = redisTemplate.scan(ScanOptions.scanOptions()
+                    .match(remoteKey(CLEAR_ALL))
+                    .count(1000)
+                    .build())) {
+                cursor.forEachRemaining(keys::add);
+            }
+            redisTemplate.delete(keys);
+            redisTemplate.convertAndSend(invalidationChannel, CLEAR_ALL);
+        } catch (RuntimeException e) {
+            remoteErrors.increment();
+            log.warn("Failed to clear remote cache {}", name, e);
+        }
+    }
+
+    /**
+     * Drops an entry from this instance's L1 after another instance published its eviction.
+     */
+    public void evictLocal(String cacheKey) {
+        if (CLEAR_ALL.equals(cacheKey)) {
+            localCache.invalidateAll();
+        } else {
+            localCache.invalidate(cacheKey);
+        }
+    }
+
+    private Object getRemote(String cacheKey) {
+        try {
+            Object value = redisTemplate.opsForValue().get(remoteKey(cacheKey));
+            (value == null ? remoteMisses : remoteHits).increment();
+            return value;
+        } catch (RuntimeException e) {
+            remoteErrors.increment();
+            log.warn("Failed to read {} from remote cache {}", cacheKey, name, e);
+            return null;
+        }
+    }
+
+    private void putRemote(String cacheKey, Object value) {
+        try {
+            redisTemplate.opsForValue().set(remoteKey(cacheKey), value, timeToLive);
+        } catch (RuntimeException e) {
+            remoteErrors.increment();
+            log.warn("Failed to write {} to remote cache {}", cacheKey, name, e);
+        }
+    }
+
+    private String remoteKey(String cacheKey) {
+        return name + "::" + cacheKey;
+    }
+
+    private Counter remoteCounter(MeterRegistry meterRegistry, String result) {
+        return Counter.builder("cache.remote.gets")
+                .tag("cache", name)
+                .tag("result", result)
+                .register(meterRegistry);
+    }
+}
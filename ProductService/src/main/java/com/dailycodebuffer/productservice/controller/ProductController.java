@@ -1,13 +1,34 @@
 package com.dailycodebuffer.productservice.controller;
 
+import com.dailycodebuffer.productservice.model.ProductImportEvent;
+import com.dailycodebuffer.productservice.model.ProductPage;
 import com.dailycodebuffer.productservice.model.ProductRequest;
 import com.dailycodebuffer.productservice.model.ProductResponse;
+import com.dailycodebuffer.productservice.model.ProductSearchRequest;
+import com.dailycodebuffer.productservice.model.ReduceQuantityRequest;
+import com.dailycodebuffer.productservice.model.ReservationRequest;
+import com.dailycodebuffer.productservice.model.ReservationResponse;
+import com.dailycodebuffer.productservice.model.ReservationResult;
+import com.dailycodebuffer.productservice.service.ProductImporter;
 import com.dailycodebuffer.productservice.service.ProductService;
+import com.dailycodebuffer.productservice.service.ReservationService;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.util.Iterator;
+import java.util.List;
+import java.util.stream.Stream;
 
 @RestController
 @RequestMapping("/product")
@@ -16,6 +37,15 @@ public class ProductController {
     @Autowired
     private ProductService productService;
 
+    @Autowired
+    private ProductImporter productImporter;
+
+    @Autowired
+    private ReservationService reservationService;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
     @PreAuthorize("hasAuthority('Admin')")
     @PostMapping
     public ResponseEntity<Long> addProduct(@RequestBody ProductRequest productRequest) {
@@ -23,6 +53,28 @@ public class ProductController {
         return new ResponseEntity<>(productId, HttpStatus.CREATED);
     }
 
+    /**
+     * Imports a CSV or NDJSON body row by row and streams back the progress and the rejected
+     * rows as newline-delimited JSON while the body is still being read.
+     */
+    @PreAuthorize("hasAuthority('Admin')")
+    @PostMapping(value = "/import",
+            consumes = {"text/csv", MediaType.APPLICATION_NDJSON_VALUE},
+            produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> importProducts(@RequestHeader(HttpHeaders.CONTENT_TYPE) MediaType contentType,
+                                                                InputStream inputStream) {
+        StreamingResponseBody body = outputStream -> {
+            try (JsonGenerator generator = objectMapper.getFactory().createGenerator(outputStream)) {
+                generator.setRootValueSeparator(null);
+                productImporter.importProducts(inputStream, contentType, event ->
+                        writeLine(generator, event, event.getType() != ProductImportEvent.Type.ERROR));
+            }
+        };
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .body(body);
+    }
+
     @PreAuthorize("hasAuthority('Admin') || hasAuthority('Customer') || hasAuthority('SCOPE_internal')")
     @GetMapping("/{id}")
     public ResponseEntity<ProductResponse> getProductById(@PathVariable("id") long productId) {
@@ -30,10 +82,119 @@ public class ProductController {
         return new ResponseEntity<>(productResponse, HttpStatus.OK);
     }
 
+    /**
+     * Writes the products as a JSON array while they are being read, so large id sets are
+     * never held in memory as a whole. Ids that do not exist are left out of the response.
+     */
+    @PreAuthorize("hasAuthority('Admin') || hasAuthority('Customer') || hasAuthority('SCOPE_internal')")
+    @GetMapping(params = "ids")
+    public ResponseEntity<StreamingResponseBody> getProductsByIds(@RequestParam("ids") List<Long> productIds) {
+        StreamingResponseBody body = outputStream -> {
+            try (Stream<ProductResponse> products = productService.getProductsByIds(productIds);
+                 JsonGenerator generator = objectMapper.getFactory().createGenerator(outputStream)) {
+                generator.writeStartArray();
+                for (Iterator<ProductResponse> it = products.iterator(); it.hasNext(); ) {
+                    generator.writeObject(it.next());
+                }
+                generator.writeEndArray();
+            }
+        };
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(body);
+    }
+
+    /**
+     * Returns products by name when searching by name prefix, else by price when filtering by
+     * price, else by product id. The next page is requested by passing the returned
+     * {@code nextAfterProductName}, {@code nextAfterPrice} and {@code nextAfterProductId} as
+     * {@code afterProductName}, {@code afterPrice} and {@code afterProductId}; they are null on the
+     * last page.
+     */
+    @PreAuthorize("hasAuthority('Admin') || hasAuthority('Customer') || hasAuthority('SCOPE_internal')")
+    @GetMapping("/search")
+    public ResponseEntity<ProductPage> searchProducts(ProductSearchRequest productSearchRequest) {
+        ProductPage productPage = productService.searchProducts(productSearchRequest);
+        return new ResponseEntity<>(productPage, HttpStatus.OK);
+    }
+
+    /**
+     * Writes the whole catalog as newline-delimited JSON in product id order. An interrupted
+     * export can be resumed by passing the last product id received as {@code afterProductId}.
+     */
+    @PreAuthorize("hasAuthority('Admin') || hasAuthority('SCOPE_internal')")
+    @GetMapping(value = "/export", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> exportProducts(@RequestParam(defaultValue = "0") long afterProductId) {
+        StreamingResponseBody body = outputStream -> {
+            try (JsonGenerator generator = objectMapper.getFactory().createGenerator(outputStream)) {
+                generator.setRootValueSeparator(null);
+                productService.exportProducts(afterProductId, product -> writeLine(generator, product, false));
+            }
+        };
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .body(body);
+    }
+
     @PreAuthorize("hasAuthority('Admin') || hasAuthority('SCOPE_internal')")
     @PutMapping("/reduceQuantity/{id}")
     public ResponseEntity<Void> reduceQuantity(@PathVariable("id") long productId, @RequestParam long quantity) {
         productService.reduceQuantity(productId, quantity);
         return new ResponseEntity<>(HttpStatus.OK);
     }
+
+    @PreAuthorize("hasAuthority('Admin') || hasAuthority('SCOPE_internal')")
+    @PutMapping("/reduceQuantity")
+    public ResponseEntity<Void> reduceQuantities(@RequestBody List<ReduceQuantityRequest> reduceQuantityRequests) {
+        productService.reduceQuantities(reduceQuantityRequests);
+        return new ResponseEntity<>(HttpStatus.OK);
+    }
+
+    /**
+     * Takes the quantity off the product until the reservation is confirmed or released. A
+     * reservation that is neither before it expires gives its quantity back on its own.
+     */
+    @PreAuthorize("hasAuthority('Admin') || hasAuthority('SCOPE_internal')")
+    @PostMapping("/reservations")
+    public ResponseEntity<ReservationResponse> reserve(@RequestBody ReservationRequest reservationRequest) {
+        ReservationResponse reservationResponse = reservationService.reserve(reservationRequest);
+        return new ResponseEntity<>(reservationResponse, HttpStatus.CREATED);
+    }
+
+    /**
+     * Reserves many lines at once. Every line gets a result in request order: its reservation,
+     * or the error it was rejected with.
+     */
+    @PreAuthorize("hasAuthority('Admin') || hasAuthority('SCOPE_internal')")
+    @PostMapping("/reservations/batch")
+    public ResponseEntity<List<ReservationResult>> reserveAll(@RequestBody List<ReservationRequest> reservationRequests) {
+        List<ReservationResult> reservationResults = reservationService.reserveAll(reservationRequests);
+        return new ResponseEntity<>(reservationResults, HttpStatus.OK);
+    }
+
+    @PreAuthorize("hasAuthority('Admin') || hasAuthority('SCOPE_internal')")
+    @PutMapping("/reservations/{id}/confirm")
+    public ResponseEntity<Void> confirmReservation(@PathVariable("id") long reservationId) {
+        reservationService.confirm(reservationId);
+        return new ResponseEntity<>(HttpStatus.OK);
+    }
+
+    @PreAuthorize("hasAuthority('Admin') || hasAuthority('SCOPE_internal')")
+    @PutMapping("/reservations/{id}/release")
+    public ResponseEntity<Void> releaseReservation(@PathVariable("id") long reservationId) {
+        reservationService.release(reservationId);
+        return new ResponseEntity<>(HttpStatus.OK);
+    }
+
+    private static void writeLine(JsonGenerator generator, Object value, boolean flush) {
+        try {
+            generator.writeObject(value);
+            generator.writeRaw('\n');
+            if (flush) {
+                generator.flush();
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
 }
@@ -8,15 +8,21 @@ import lombok.NoArgsConstructor;
 import javax.persistence.*;
 
 @Entity
-@Table(name = "PRODUCT_DETAILS")
+@Table(name = "PRODUCT_DETAILS", indexes = {
+        @Index(name = "IDX_PRODUCT_NAME", columnList = "PRODUCT_NAME, PRODUCT_ID"),
+        @Index(name = "IDX_PRODUCT_PRICE", columnList = "PRICE, PRODUCT_ID")
+})
 @Data
 @AllArgsConstructor
 @NoArgsConstructor
 @Builder
 public class Product {
 
+    // Ids are handed out in blocks so that bulk imports do not go to the database for every row.
     @Id
-    @GeneratedValue(strategy = GenerationType.AUTO)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "product_sequence")
+    @SequenceGenerator(name = "product_sequence", sequenceName = "hibernate_sequence", allocationSize = 50)
+    @Column(name = "PRODUCT_ID")
     private long productId;
 
     @Column(name = "PRODUCT_NAME")
@@ -0,0 +1,42 @@
+package com.dailycodebuffer.productservice.entity;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import javax.persistence.*;
+import java.time.Instant;
+
+@Entity
+@Table(name = "RESERVATION_DETAILS", indexes = {
+        @Index(name = "IDX_RESERVATION_STATUS", columnList = "STATUS, EXPIRES_AT")
+})
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class Reservation {
+
+    public static final String RESERVED = "RESERVED";
+    public static final String CONFIRMED = "CONFIRMED";
+    public static final String RELEASED = "RELEASED";
+    public static final String EXPIRED = "EXPIRED";
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "reservation_sequence")
+    @SequenceGenerator(name = "reservation_sequence", sequenceName = "reservation_sequence", allocationSize = 50)
+    private long id;
+
+    @Column(name = "PRODUCT_ID")
+    private long productId;
+
+    @Column(name = "QUANTITY")
+    private long quantity;
+
+    @Column(name = "STATUS")
+    private String status;
+
+    @Column(name = "EXPIRES_AT")
+    private Instant expiresAt;
+}
@@ -10,8 +10,9 @@ public class ProductServiceException extends RuntimeException {
     private String errorCode;
     private int status;
 
+    // Client errors are expected and frequent, so they skip filling in a stack trace nobody reads.
     public ProductServiceException(String message, String errorCode, int status) {
-        super(message);
+        super(message, null, true, status >= 500);
         this.errorCode = errorCode;
         this.status = status;
     }
@@ -1,7 +1,6 @@
 package com.dailycodebuffer.productservice.exception;
 
 import com.dailycodebuffer.productservice.model.ErrorResponse;
-import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.ControllerAdvice;
 import org.springframework.web.bind.annotation.ExceptionHandler;
@@ -17,6 +16,6 @@ public class RestResponseEntityExceptionHandler extends ResponseEntityExceptionH
                 .errorCode(exception.getErrorCode())
                 .build();
 
-        return new ResponseEntity<>(errorResponse, HttpStatus.valueOf(exception.getStatus()));
+        return ResponseEntity.status(exception.getStatus()).body(errorResponse);
     }
 }
@@ -0,0 +1,17 @@
+package com.dailycodebuffer.productservice.mapper;
+
+import com.dailycodebuffer.productservice.entity.Product;
+import com.dailycodebuffer.productservice.model.ProductRequest;
+import com.dailycodebuffer.productservice.model.ProductResponse;
+import org.mapstruct.Mapper;
+import org.mapstruct.Mapping;
+
+@Mapper(componentModel = "spring")
+public interface ProductMapper {
+
+    @Mapping(target = "productId", ignore = true)
+    @Mapping(target = "productName", source = "name")
+    Product toProduct(ProductRequest productRequest);
+
+    ProductResponse toProductResponse(Product product);
+}
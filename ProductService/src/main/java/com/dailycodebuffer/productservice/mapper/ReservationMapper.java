@@ -0,0 +1,13 @@
+package com.dailycodebuffer.productservice.mapper;
+
+import com.dailycodebuffer.productservice.entity.Reservation;
+import com.dailycodebuffer.productservice.model.ReservationResponse;
+import org.mapstruct.Mapper;
+import org.mapstruct.Mapping;
+
+@Mapper(componentModel = "spring")
+public interface ReservationMapper {
+
+    @Mapping(target = "reservationId", source = "id")
+    ReservationResponse toReservationResponse(Reservation reservation);
+}
@@ -0,0 +1,28 @@
+package com.dailycodebuffer.productservice.model;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class ProductImportEvent {
+    private Type type;
+    private Long row;
+    private String message;
+    private Long rowsRead;
+    private Long imported;
+    private Long rejected;
+
+    public enum Type {
+        PROGRESS,
+        ERROR,
+        COMPLETED,
+        FAILED
+    }
+}
@@ -0,0 +1,19 @@
+package com.dailycodebuffer.productservice.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class ProductPage {
+    private List<ProductResponse> products;
+    private String nextAfterProductName;
+    private Long nextAfterPrice;
+    private Long nextAfterProductId;
+}
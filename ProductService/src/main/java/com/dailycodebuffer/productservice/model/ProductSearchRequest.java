@@ -0,0 +1,21 @@
+package com.dailycodebuffer.productservice.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class ProductSearchRequest {
+    private String namePrefix;
+    private Long minPrice;
+    private Long maxPrice;
+    private boolean inStock;
+    private String afterProductName;
+    private Long afterPrice;
+    private long afterProductId;
+    private Integer size;
+}
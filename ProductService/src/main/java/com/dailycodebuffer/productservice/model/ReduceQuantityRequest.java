@@ -0,0 +1,15 @@
+package com.dailycodebuffer.productservice.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class ReduceQuantityRequest {
+    private long productId;
+    private long quantity;
+}
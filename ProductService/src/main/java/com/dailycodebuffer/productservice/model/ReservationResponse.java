@@ -0,0 +1,20 @@
+package com.dailycodebuffer.productservice.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class ReservationResponse {
+    private long reservationId;
+    private long productId;
+    private long quantity;
+    private String status;
+    private Instant expiresAt;
+}
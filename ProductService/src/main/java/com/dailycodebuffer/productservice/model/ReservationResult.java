@@ -0,0 +1,21 @@
+package com.dailycodebuffer.productservice.model;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Outcome of one line of a bulk reservation: the reservation made, or the error it was
+ * rejected with.
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class ReservationResult {
+    private ReservationResponse reservation;
+    private ErrorResponse error;
+}
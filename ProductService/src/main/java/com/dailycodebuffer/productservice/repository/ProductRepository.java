@@ -2,8 +2,29 @@ package com.dailycodebuffer.productservice.repository;
 
 import com.dailycodebuffer.productservice.entity.Product;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
 @Repository
-public interface ProductRepository extends JpaRepository<Product, Long> {
+public interface ProductRepository extends JpaRepository<Product, Long>, ProductSearchRepository {
+
+    /**
+     * Decrements the stock of a product in a single conditional UPDATE.
+     *
+     * @return number of rows updated: 1 if the stock was reduced, 0 if the product
+     * does not exist or does not have enough quantity left
+     */
+    @Transactional
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("update Product p set p.quantity = p.quantity - :quantity " +
+            "where p.productId = :productId and p.quantity >= :quantity")
+    int reduceQuantity(@Param("productId") long productId, @Param("quantity") long quantity);
+
+    @Transactional
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("update Product p set p.quantity = p.quantity + :quantity where p.productId = :productId")
+    int restoreQuantity(@Param("productId") long productId, @Param("quantity") long quantity);
 }
@@ -0,0 +1,25 @@
+package com.dailycodebuffer.productservice.repository;
+
+import com.dailycodebuffer.productservice.entity.Product;
+
+import java.util.List;
+
+public interface ProductSearchRepository {
+
+    /**
+     * Returns products seeking past the given product instead of using an OFFSET, so every page
+     * costs the same however deep it is. With a {@code namePattern} products are ordered by name,
+     * else with a price filter by price, else by id, and always then by id, so that the query reads
+     * the index of its filter in order. {@code afterProductName} and {@code afterPrice} are only
+     * read when products are ordered by them. Null filters are left out of the query;
+     * {@code namePattern} is a LIKE pattern escaped with {@code '!'}.
+     */
+    List<Product> search(String namePattern,
+                         Long minPrice,
+                         Long maxPrice,
+                         boolean inStock,
+                         String afterProductName,
+                         Long afterPrice,
+                         long afterProductId,
+                         int limit);
+}
@@ -0,0 +1,72 @@
+package com.dailycodebuffer.productservice.repository;
+
+import com.dailycodebuffer.productservice.entity.Product;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import javax.persistence.TypedQuery;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+class ProductSearchRepositoryImpl implements ProductSearchRepository {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public List<Product> search(String namePattern,
+                                Long minPrice,
+                                Long maxPrice,
+                                boolean inStock,
+                                String afterProductName,
+                                Long afterPrice,
+                                long afterProductId,
+                                int limit) {
+        StringBuilder jpql = new StringBuilder("select p from Product p where 1 = 1");
+        Map<String, Object> parameters = new HashMap<>();
+        if (namePattern != null) {
+            jpql.append(" and p.productName like :namePattern escape '!'");
+            parameters.put("namePattern", namePattern);
+        }
+        if (minPrice != null) {
+            jpql.append(" and p.price >= :minPrice");
+            parameters.put("minPrice", minPrice);
+        }
+        if (maxPrice != null) {
+            jpql.append(" and p.price <= :maxPrice");
+            parameters.put("maxPrice", maxPrice);
+        }
+        if (inStock) {
+            jpql.append(" and p.quantity > 0");
+        }
+
+        // The first condition alone is a range the index can seek to.
+        String orderBy;
+        if (namePattern != null) {
+            if (afterProductName != null) {
+                jpql.append(" and p.productName >= :afterProductName"
+                        + " and (p.productName > :afterProductName or p.productId > :afterProductId)");
+                parameters.put("afterProductName", afterProductName);
+                parameters.put("afterProductId", afterProductId);
+            }
+            orderBy = "p.productName, p.productId";
+        } else if (minPrice != null || maxPrice != null) {
+            if (afterPrice != null) {
+                jpql.append(" and p.price >= :afterPrice and (p.price > :afterPrice or p.productId > :afterProductId)");
+                parameters.put("afterPrice", afterPrice);
+                parameters.put("afterProductId", afterProductId);
+            }
+            orderBy = "p.price, p.productId";
+        } else {
+            jpql.append(" and p.productId > :afterProductId");
+            parameters.put("afterProductId", afterProductId);
+            orderBy = "p.productId";
+        }
+        jpql.append(" order by ").append(orderBy);
+
+        TypedQuery<Product> query = entityManager.createQuery(jpql.toString(), Product.class);
+        parameters.forEach(query::setParameter);
+        return query.setMaxResults(limit).getResultList();
+    }
+}
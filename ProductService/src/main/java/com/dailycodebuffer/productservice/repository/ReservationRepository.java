@@ -0,0 +1,29 @@
+package com.dailycodebuffer.productservice.repository;
+
+import com.dailycodebuffer.productservice.entity.Reservation;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.Instant;
+import java.util.List;
+
+@Repository
+public interface ReservationRepository extends JpaRepository<Reservation, Long> {
+
+    List<Reservation> findByStatus(String status);
+
+    List<Reservation> findByStatusAndExpiresAtBefore(String status, Instant expiresAt);
+
+    /**
+     * Moves a reservation out of {@code from}, so that of a concurrent confirm, release and
+     * expiry only one can win.
+     *
+     * @return 1 if the status was changed, 0 if the reservation is not in {@code from}
+     */
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("update Reservation r set r.status = :to where r.id = :id and r.status = :from")
+    int updateStatus(@Param("id") long id, @Param("from") String from, @Param("to") String to);
+}
@@ -0,0 +1,307 @@
+package com.dailycodebuffer.productservice.service;
+
+import com.dailycodebuffer.productservice.repository.ProductRepository;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.OptionalLong;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.StampedLock;
+
+/**
+ * Holds the stock of the products being sold in memory, split into a number of
+ * independently updated stripes, and writes the net reductions back to
+ * PRODUCT_DETAILS on a timer.
+ *
+ * <p>The stock of a product is loaded on its first reduction, so this mode assumes a
+ * single ProductService instance owns the quantity of the products it sells. A stock that was
+ * neither reduced nor given back for a whole flush interval, and has nothing left to write back,
+ * is dropped and loaded again when it is next needed.
+ */
+@Component
+@ConditionalOnProperty(name = "product.inventory.escrow.enabled", havingValue = "true")
+@Log4j2
+public class InventoryEscrow {
+
+    private static final String FLUSH_SQL
+            = "update product_details set quantity = quantity - ? where product_id = ?";
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${product.inventory.escrow.stripes:8}")
+    private int stripes;
+
+    private final Map<Long, StripedStock> stocks = new ConcurrentHashMap<>();
+
+    // Shared by all products, so that the number of meters does not grow with the catalogue.
+    private final LongAdder casRetries = new LongAdder();
+    private final LongAdder neighbourFallbacks = new LongAdder();
+    private final LongAdder rejections = new LongAdder();
+
+    @PostConstruct
+    public void init() {
+        if (stripes < 1) {
+            throw new IllegalStateException("product.inventory.escrow.stripes must be at least 1, was " + stripes);
+        }
+        Gauge.builder("product.escrow.products", stocks, Map::size)
+                .register(meterRegistry);
+        FunctionCounter.builder("product.escrow.cas.retries", casRetries, LongAdder::sum)
+                .register(meterRegistry);
+        FunctionCounter.builder("product.escrow.neighbour.fallbacks", neighbourFallbacks, LongAdder::sum)
+                .register(meterRegistry);
+        FunctionCounter.builder("product.escrow.rejections", rejections, LongAdder::sum)
+                .register(meterRegistry);
+    }
+
+    /**
+     * @return {@code true} if the quantity was taken from the escrowed stock, {@code false}
+     * if the product does not exist or does not have enough quantity left
+     */
+    public boolean tryReduce(long productId, long quantity) {
+        while (true) {
+            StripedStock stock = stock(productId);
+            if (stock == null) {
+                return false;
+            }
+            long stamp = stock.eviction.tryOptimisticRead();
+            boolean reduced = stock.tryReduce(quantity);
+            if (stock.eviction.validate(stamp)) {
+                return reduced;
+            }
+            // The stock was being evicted, so the reduction is undone and made on the one in the map.
+            if (reduced) {
+                stock.release(quantity);
+            }
+        }
+    }
+
+    /**
+     * Gives back quantity taken by {@link #tryReduce(long, long)}, e.g. when a later line of
+     * the same batch could not be reduced or a reservation expired. The stock is loaded first
+     * if it was taken before a restart.
+     */
+    public void release(long productId, long quantity) {
+        while (true) {
+            StripedStock stock = stock(productId);
+            if (stock == null) {
+                return;
+            }
+            long stamp = stock.eviction.tryOptimisticRead();
+            stock.release(quantity);
+            if (stock.eviction.validate(stamp)) {
+                return;
+            }
+            stock.release(-quantity);
+        }
+    }
+
+    public OptionalLong available(long productId) {
+        StripedStock stock = stocks.get(productId);
+        return stock == null ? OptionalLong.empty() : OptionalLong.of(stock.available());
+    }
+
+    @Scheduled(fixedDelayString = "${product.inventory.escrow.flush-interval-ms:1000}")
+    public synchronized void flush() {
+        List<Object[]> batch = new ArrayList<>();
+        List<StripedStock> flushed = new ArrayList<>();
+        for (StripedStock stock : stocks.values()) {
+            long available = stock.available();
+            long delta = stock.persisted - available;
+            if (delta != 0) {
+                batch.add(new Object[]{delta, stock.productId});
+                flushed.add(stock);
+                stock.persisted = available;
+            }
+        }
+        if (!batch.isEmpty()) {
+            try {
+                jdbcTemplate.batchUpdate(FLUSH_SQL, batch);
+                log.info("Flushed quantity of {} products", batch.size());
+            } catch (RuntimeException e) {
+                for (int i = 0; i < flushed.size(); i++) {
+                    flushed.get(i).persisted += (long) batch.get(i)[0];
+                }
+                log.error("Failed to flush quantity of {} products, retrying on next flush", batch.size(), e);
+            }
+        }
+        evictIdle();
+    }
+
+    // Reductions racing the eviction see its write lock when they validate, and go to the reloaded stock.
+    private void evictIdle() {
+        int evicted = 0;
+        for (StripedStock stock : stocks.values()) {
+            if (stock.used) {
+                stock.used = false;
+                continue;
+            }
+            if (stock.available() != stock.persisted) {
+                continue;
+            }
+            long stamp = stock.eviction.writeLock();
+            if (!stock.used && stock.available() == stock.persisted) {
+                // Left locked, so that reductions still holding the stock never count on it.
+                stocks.remove(stock.productId, stock);
+                evicted++;
+            } else {
+                stock.eviction.unlockWrite(stamp);
+            }
+        }
+        if (evicted > 0) {
+            log.info("Evicted escrowed stock of {} idle products", evicted);
+        }
+    }
+
+    @PreDestroy
+    public void reconcile() {
+        log.info("Reconciling escrowed quantity of {} products", stocks.size());
+        flush();
+    }
+
+    private StripedStock stock(long productId) {
+        StripedStock stock = stocks.get(productId);
+        if (stock == null) {
+            stock = stocks.computeIfAbsent(productId, this::load);
+        } else if (!stock.used) {
+            stock.used = true;
+        }
+        return stock;
+    }
+
+    private StripedStock load(long productId) {
+        return productRepository.findById(productId)
+                .map(product -> new StripedStock(productId, product.getQuantity(), stripes,
+                        casRetries, neighbourFallbacks, rejections))
+                .orElse(null);
+    }
+
+    static class StripedStock {
+
+        // Cells are spaced a cache line apart so that stripes do not false-share.
+        private static final int PADDING = 8;
+
+        private final long productId;
+        private final int stripes;
+        private final AtomicLongArray cells;
+        private final LongAdder casRetries;
+        private final LongAdder neighbourFallbacks;
+        private final LongAdder rejections;
+        private final StampedLock eviction = new StampedLock();
+
+        // Only read and written by the flushing thread.
+        private long persisted;
+
+        // Set when the stock is taken from the map, and cleared by each flush; only written when it changes.
+        private volatile boolean used = true;
+
+        StripedStock(long productId, long quantity, int stripes,
+                     LongAdder casRetries, LongAdder neighbourFallbacks, LongAdder rejections) {
+            this.productId = productId;
+            this.stripes = stripes;
+            this.cells = new AtomicLongArray(stripes * PADDING);
+            this.casRetries = casRetries;
+            this.neighbourFallbacks = neighbourFallbacks;
+            this.rejections = rejections;
+            this.persisted = quantity;
+            for (int i = 0; i < stripes; i++) {
+                cells.set(i * PADDING, quantity / stripes + (i < quantity % stripes ? 1 : 0));
+            }
+        }
+
+        boolean tryReduce(long quantity) {
+            int home = (int) (Thread.currentThread().getId() % stripes);
+            for (int i = 0; i < stripes; i++) {
+                if (tryTake((home + i) % stripes, quantity)) {
+                    if (i > 0) {
+                        neighbourFallbacks.increment();
+                    }
+                    return true;
+                }
+            }
+
+            // No single stripe holds enough, so gather the quantity across all of them.
+            long[] taken = new long[stripes];
+            long remaining = quantity;
+            for (int i = 0; i < stripes && remaining > 0; i++) {
+                int stripe = (home + i) % stripes;
+                taken[stripe] = takeUpTo(stripe, remaining);
+                remaining -= taken[stripe];
+            }
+            if (remaining == 0) {
+                neighbourFallbacks.increment();
+                return true;
+            }
+
+            for (int i = 0; i < stripes; i++) {
+                if (taken[i] > 0) {
+                    cells.addAndGet(i * PADDING, taken[i]);
+                }
+            }
+            rejections.increment();
+            return false;
+        }
+
+        void release(long quantity) {
+            cells.addAndGet((int) (Thread.currentThread().getId() % stripes) * PADDING, quantity);
+        }
+
+        long available() {
+            long available = 0;
+            for (int i = 0; i < stripes; i++) {
+                available += cells.get(i * PADDING);
+            }
+            return available;
+        }
+
+        private boolean tryTake(int stripe, long quantity) {
+            int index = stripe * PADDING;
+            while (true) {
+                long current = cells.get(index);
+                if (current < quantity) {
+                    return false;
+                }
+                if (cells.compareAndSet(index, current, current - quantity)) {
+                    return true;
+                }
+                casRetries.increment();
+            }
+        }
+
+        private long takeUpTo(int stripe, long quantity) {
+            int index = stripe * PADDING;
+            while (true) {
+                long current = cells.get(index);
+                long take = Math.min(current, quantity);
+                if (take <= 0) {
+                    return 0;
+                }
+                if (cells.compareAndSet(index, current, current - take)) {
+                    return take;
+                }
+                casRetries.increment();
+            }
+        }
+    }
+}
@@ -0,0 +1,173 @@
+package com.dailycodebuffer.productservice.service;
+
+import com.dailycodebuffer.productservice.entity.Product;
+import com.dailycodebuffer.productservice.mapper.ProductMapper;
+import com.dailycodebuffer.productservice.model.ProductImportEvent;
+import com.dailycodebuffer.productservice.model.ProductRequest;
+import com.dailycodebuffer.productservice.repository.ProductRepository;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.dataformat.csv.CsvMapper;
+import com.fasterxml.jackson.dataformat.csv.CsvSchema;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManager;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Imports products from a CSV (header {@code name,price,quantity}) or NDJSON body while it
+ * is being read. Valid rows are inserted in JDBC batches of {@code product.import.batch-size},
+ * each batch in its own transaction, so rows imported before a failure stay imported.
+ */
+@Component
+@Log4j2
+public class ProductImporter {
+
+    public static final MediaType TEXT_CSV = MediaType.valueOf("text/csv");
+
+    private static final CsvMapper CSV_MAPPER = CsvMapper.builder()
+            .disable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES)
+            .build();
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private ProductMapper productMapper;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Value("${product.import.batch-size:500}")
+    private int batchSize;
+
+    /**
+     * Publishes an ERROR event for every rejected row, a PROGRESS event after every batch and
+     * finally a COMPLETED or FAILED event, which is also returned.
+     */
+    public ProductImportEvent importProducts(InputStream inputStream, MediaType contentType,
+                                             Consumer<ProductImportEvent> eventConsumer) throws IOException {
+        log.info("Importing products from {} body", contentType);
+        long rowsRead = 0;
+        long imported = 0;
+        long rejected = 0;
+        List<Product> batch = new ArrayList<>(batchSize);
+
+        try (MappingIterator<ProductRequest> rows = reader(contentType).readValues(inputStream)) {
+            // A row that cannot be mapped is reported and skipped; malformed syntax fails the import.
+            while (rows.hasNextValue()) {
+                long row = ++rowsRead;
+                String error;
+                try {
+                    ProductRequest productRequest = rows.nextValue();
+                    error = validate(productRequest);
+                    if (error == null) {
+                        batch.add(productMapper.toProduct(productRequest));
+                    }
+                } catch (JsonProcessingException e) {
+                    error = e.getOriginalMessage();
+                }
+                if (error != null) {
+                    rejected++;
+                    eventConsumer.accept(error(row, error));
+                }
+
+                if (batch.size() == batchSize) {
+                    imported += insert(batch);
+                    eventConsumer.accept(event(ProductImportEvent.Type.PROGRESS, rowsRead, imported, rejected));
+                }
+            }
+            imported += insert(batch);
+        } catch (IOException e) {
+            // The rows read before the body broke off are valid, so they are kept.
+            imported += insert(batch);
+            return failed(e, rowsRead, imported, rejected, eventConsumer);
+        } catch (RuntimeException e) {
+            return failed(e, rowsRead, imported, rejected, eventConsumer);
+        }
+
+        log.info("Imported {} products, rejected {} of {} rows", imported, rejected, rowsRead);
+        ProductImportEvent completed = event(ProductImportEvent.Type.COMPLETED, rowsRead, imported, rejected);
+        eventConsumer.accept(completed);
+        return completed;
+    }
+
+    private ObjectReader reader(MediaType contentType) {
+        if (TEXT_CSV.isCompatibleWith(contentType)) {
+            return CSV_MAPPER.readerFor(ProductRequest.class).with(CsvSchema.emptySchema().withHeader());
+        }
+        return objectMapper.readerFor(ProductRequest.class);
+    }
+
+    private static String validate(ProductRequest productRequest) {
+        if (productRequest.getName() == null || productRequest.getName().isBlank()) {
+            return "Product name is required";
+        }
+        if (productRequest.getPrice() < 0) {
+            return "Product price must not be negative";
+        }
+        if (productRequest.getQuantity() < 0) {
+            return "Product quantity must not be negative";
+        }
+        return null;
+    }
+
+    private int insert(List<Product> batch) {
+        if (batch.isEmpty()) {
+            return 0;
+        }
+        transactionTemplate.executeWithoutResult(status -> {
+            productRepository.saveAll(batch);
+            entityManager.flush();
+            // Detach the imported rows in case the persistence context outlives the transaction.
+            entityManager.clear();
+        });
+        int inserted = batch.size();
+        batch.clear();
+        return inserted;
+    }
+
+    private static ProductImportEvent failed(Exception e, long rowsRead, long imported, long rejected,
+                                             Consumer<ProductImportEvent> eventConsumer) {
+        log.error("Product import failed after {} rows", rowsRead, e);
+        ProductImportEvent failed = event(ProductImportEvent.Type.FAILED, rowsRead, imported, rejected);
+        failed.setMessage(e.getMessage());
+        eventConsumer.accept(failed);
+        return failed;
+    }
+
+    private static ProductImportEvent error(long row, String message) {
+        return ProductImportEvent.builder()
+                .type(ProductImportEvent.Type.ERROR)
+                .row(row)
+                .message(message)
+                .build();
+    }
+
+    private static ProductImportEvent event(ProductImportEvent.Type type, long rowsRead, long imported, long rejected) {
+        return ProductImportEvent.builder()
+                .type(type)
+                .rowsRead(rowsRead)
+                .imported(imported)
+                .rejected(rejected)
+                .build();
+    }
+}
@@ -1,12 +1,30 @@
 package com.dailycodebuffer.productservice.service;
 
+import com.dailycodebuffer.productservice.model.ProductPage;
 import com.dailycodebuffer.productservice.model.ProductRequest;
 import com.dailycodebuffer.productservice.model.ProductResponse;
+import com.dailycodebuffer.productservice.model.ProductSearchRequest;
+import com.dailycodebuffer.productservice.model.ReduceQuantityRequest;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
 public interface ProductService {
     long addProduct(ProductRequest productRequest);
 
     ProductResponse getProductById(long productId);
 
+    Stream<ProductResponse> getProductsByIds(Collection<Long> productIds);
+
+    ProductPage searchProducts(ProductSearchRequest productSearchRequest);
+
+    void exportProducts(long afterProductId, Consumer<ProductResponse> productConsumer);
+
     void reduceQuantity(long productId, long quantity);
+
+    void restoreQuantity(long productId, long quantity);
+
+    void reduceQuantities(List<ReduceQuantityRequest> reduceQuantityRequests);
 }
@@ -2,30 +2,78 @@ package com.dailycodebuffer.productservice.service;
 
 import com.dailycodebuffer.productservice.entity.Product;
 import com.dailycodebuffer.productservice.exception.ProductServiceException;
+import com.dailycodebuffer.productservice.mapper.ProductMapper;
+import com.dailycodebuffer.productservice.model.ProductPage;
 import com.dailycodebuffer.productservice.model.ProductRequest;
 import com.dailycodebuffer.productservice.model.ProductResponse;
+import com.dailycodebuffer.productservice.model.ProductSearchRequest;
+import com.dailycodebuffer.productservice.model.ReduceQuantityRequest;
 import com.dailycodebuffer.productservice.repository.ProductRepository;
 import lombok.extern.log4j.Log4j2;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
-import static org.springframework.beans.BeanUtils.*;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import static com.dailycodebuffer.productservice.cache.ProductCacheConfig.PRODUCTS;
 
 @Service
 @Log4j2
 public class ProductServiceImpl implements ProductService {
 
+    // Keeps the IN list of each bulk lookup query well below the database limits.
+    static final int LOOKUP_CHUNK_SIZE = 500;
+
+    static final int DEFAULT_PAGE_SIZE = 20;
+    static final int MAX_PAGE_SIZE = 100;
+
+    private static final String EXPORT_SQL = "select product_id, product_name, price, quantity "
+            + "from product_details where product_id > ? order by product_id";
+
     @Autowired
     private ProductRepository productRepository;
 
+    @Autowired
+    private ProductMapper productMapper;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Value("${product.export.fetch-size:1000}")
+    private int exportFetchSize;
+
+    @Autowired(required = false)
+    private InventoryEscrow inventoryEscrow;
+
+    @Autowired(required = false)
+    private CacheManager cacheManager;
+
     @Override
     public long addProduct(ProductRequest productRequest) {
         log.info("Saving product with request: {}", productRequest);
-        Product product = Product.builder()
-                .productName(productRequest.getName())
-                .price(productRequest.getPrice())
-                .quantity(productRequest.getQuantity())
-                .build();
+        Product product = productMapper.toProduct(productRequest);
         productRepository.save(product);
         log.info("Product saved with id:{}", product.getProductId());
 
@@ -33,32 +81,192 @@ public class ProductServiceImpl implements ProductService {
     }
 
     @Override
+    @Cacheable(cacheNames = PRODUCTS, key = "#productId", sync = true)
     public ProductResponse getProductById(long productId) {
         log.info("Fetching product with id:{}", productId);
 
         Product product = productRepository
                 .findById(productId)
                 .orElseThrow(() -> new ProductServiceException("Product with given id not found!", "PRODUCT_NOT_FOUND", 404));
-        ProductResponse productResponse = new ProductResponse();
-        copyProperties(product, productResponse);
+        ProductResponse productResponse = toProductResponse(product);
         log.info("Fetched product: {}", product);
 
         return productResponse;
     }
 
     @Override
+    public Stream<ProductResponse> getProductsByIds(Collection<Long> productIds) {
+        List<Long> ids = new ArrayList<>(new LinkedHashSet<>(productIds));
+        log.info("Fetching {} products by id", ids.size());
+
+        // Each chunk is queried only once the previous one has been consumed.
+        return IntStream.iterate(0, from -> from < ids.size(), from -> from + LOOKUP_CHUNK_SIZE)
+                .mapToObj(from -> ids.subList(from, Math.min(from + LOOKUP_CHUNK_SIZE, ids.size())))
+                .flatMap(chunk -> productRepository.findAllById(chunk).stream())
+                .map(this::toProductResponse);
+    }
+
+    @Override
+    public ProductPage searchProducts(ProductSearchRequest productSearchRequest) {
+        log.info("Searching products with request: {}", productSearchRequest);
+        int size = productSearchRequest.getSize() == null
+                ? DEFAULT_PAGE_SIZE
+                : Math.max(1, Math.min(productSearchRequest.getSize(), MAX_PAGE_SIZE));
+
+        String namePattern = toNamePattern(productSearchRequest.getNamePrefix());
+        boolean byPrice = namePattern == null
+                && (productSearchRequest.getMinPrice() != null || productSearchRequest.getMaxPrice() != null);
+        if (productSearchRequest.getAfterProductId() > 0
+                && (namePattern != null && productSearchRequest.getAfterProductName() == null
+                || byPrice && productSearchRequest.getAfterPrice() == null)) {
+            throw new ProductServiceException("The afterProductName or afterPrice of the previous page must be given to read the next page!",
+                    "INVALID_PAGE", 400);
+        }
+
+        // One extra row tells whether there is a next page without a count query.
+        List<Product> products = productRepository.search(
+                namePattern,
+                productSearchRequest.getMinPrice(),
+                productSearchRequest.getMaxPrice(),
+                productSearchRequest.isInStock(),
+                productSearchRequest.getAfterProductName(),
+                productSearchRequest.getAfterPrice(),
+                productSearchRequest.getAfterProductId(),
+                size + 1);
+        boolean hasNext = products.size() > size;
+        if (hasNext) {
+            products = products.subList(0, size);
+        }
+
+        Product last = hasNext ? products.get(size - 1) : null;
+        return ProductPage.builder()
+                .products(products.stream().map(this::toProductResponse).collect(Collectors.toList()))
+                .nextAfterProductName(last == null ? null : last.getProductName())
+                .nextAfterPrice(last == null ? null : last.getPrice())
+                .nextAfterProductId(last == null ? null : last.getProductId())
+                .build();
+    }
+
+    @Override
+    public void exportProducts(long afterProductId, Consumer<ProductResponse> productConsumer) {
+        log.info("Exporting products after id:{}", afterProductId);
+
+        // A forward-only cursor keeps only one fetch of rows in memory at a time.
+        jdbcTemplate.query(connection -> {
+            PreparedStatement statement = connection.prepareStatement(EXPORT_SQL,
+                    ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            statement.setFetchSize(exportFetchSize);
+            statement.setLong(1, afterProductId);
+            return statement;
+        }, (RowCallbackHandler) resultSet -> productConsumer.accept(toProductResponse(Product.builder()
+                .productId(resultSet.getLong("product_id"))
+                .productName(resultSet.getString("product_name"))
+                .price(resultSet.getLong("price"))
+                .quantity(resultSet.getLong("quantity"))
+                .build())));
+    }
+
+    @Override
+    @CacheEvict(cacheNames = PRODUCTS, key = "#productId")
     public void reduceQuantity(long productId, long quantity) {
         log.info("Reducing quantity:{} for product id:{}", quantity, productId);
-        Product product = productRepository
-                .findById(productId)
-                .orElseThrow(() -> new ProductServiceException("Product with given id not found!", "PRODUCT_NOT_FOUND", 404));
 
-        if(product.getQuantity() < quantity) {
-            throw new ProductServiceException("Product doesn't have sufficient quantity!", "INSUFFICIENT_QUANTITY", 400);
+        if (!reduce(productId, quantity)) {
+            throw quantityNotReduced(productId);
         }
-
-        product.setQuantity(product.getQuantity() - quantity);
-        productRepository.save(product);
         log.info("Quantity reduced by:{} for product id:{}", quantity, productId);
     }
+
+    @Override
+    @CacheEvict(cacheNames = PRODUCTS, key = "#productId")
+    public void restoreQuantity(long productId, long quantity) {
+        log.info("Restoring quantity:{} for product id:{}", quantity, productId);
+
+        if (inventoryEscrow != null) {
+            // The stock only goes back once the status change that gives it back is committed.
+            afterCompletion(committed -> {
+                if (committed) {
+                    inventoryEscrow.release(productId, quantity);
+                }
+            });
+        } else {
+            productRepository.restoreQuantity(productId, quantity);
+        }
+    }
+
+    @Override
+    @Transactional
+    public void reduceQuantities(List<ReduceQuantityRequest> reduceQuantityRequests) {
+        log.info("Reducing quantity for {} order lines", reduceQuantityRequests.size());
+
+        // Reducing in product id order makes concurrent batches take the row locks in the same order.
+        SortedMap<Long, Long> quantities = new TreeMap<>();
+        for (ReduceQuantityRequest reduceQuantityRequest : reduceQuantityRequests) {
+            quantities.merge(reduceQuantityRequest.getProductId(), reduceQuantityRequest.getQuantity(), Long::sum);
+        }
+
+        // Lines already reduced are given back by the rollback.
+        for (Map.Entry<Long, Long> line : quantities.entrySet()) {
+            if (!reduce(line.getKey(), line.getValue())) {
+                throw quantityNotReduced(line.getKey());
+            }
+        }
+        if (cacheManager != null) {
+            Cache cache = cacheManager.getCache(PRODUCTS);
+            quantities.keySet().forEach(cache::evict);
+        }
+        log.info("Quantity reduced for product ids:{}", quantities.keySet());
+    }
+
+    private static String toNamePattern(String namePrefix) {
+        if (namePrefix == null || namePrefix.isEmpty()) {
+            return null;
+        }
+        return namePrefix.replace("!", "!!").replace("%", "!%").replace("_", "!_") + "%";
+    }
+
+    private ProductResponse toProductResponse(Product product) {
+        ProductResponse productResponse = productMapper.toProductResponse(product);
+        if (inventoryEscrow != null) {
+            inventoryEscrow.available(product.getProductId()).ifPresent(productResponse::setQuantity);
+        }
+        return productResponse;
+    }
+
+    private boolean reduce(long productId, long quantity) {
+        if (inventoryEscrow == null) {
+            return productRepository.reduceQuantity(productId, quantity) == 1;
+        }
+        if (!inventoryEscrow.tryReduce(productId, quantity)) {
+            return false;
+        }
+        // The escrowed stock is not part of the transaction, so it is given back if that rolls back.
+        afterCompletion(committed -> {
+            if (!committed) {
+                inventoryEscrow.release(productId, quantity);
+            }
+        });
+        return true;
+    }
+
+    // Runs the callback when the surrounding transaction completes, or straight away outside one.
+    private static void afterCompletion(Consumer<Boolean> callback) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            callback.accept(true);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                callback.accept(status == STATUS_COMMITTED);
+            }
+        });
+    }
+
+    private ProductServiceException quantityNotReduced(long productId) {
+        if (!productRepository.existsById(productId)) {
+            return new ProductServiceException("Product with given id not found!", "PRODUCT_NOT_FOUND", 404);
+        }
+        return new ProductServiceException("Product doesn't have sufficient quantity!", "INSUFFICIENT_QUANTITY", 400);
+    }
 }
@@ -0,0 +1,17 @@
+package com.dailycodebuffer.productservice.service;
+
+import com.dailycodebuffer.productservice.model.ReservationRequest;
+import com.dailycodebuffer.productservice.model.ReservationResponse;
+import com.dailycodebuffer.productservice.model.ReservationResult;
+
+import java.util.List;
+
+public interface ReservationService {
+    ReservationResponse reserve(ReservationRequest reservationRequest);
+
+    List<ReservationResult> reserveAll(List<ReservationRequest> reservationRequests);
+
+    void confirm(long reservationId);
+
+    void release(long reservationId);
+}
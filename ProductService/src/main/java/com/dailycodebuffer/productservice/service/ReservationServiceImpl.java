@@ -0,0 +1,280 @@
+package com.dailycodebuffer.productservice.service;
+
+import com.dailycodebuffer.productservice.entity.Reservation;
+import com.dailycodebuffer.productservice.exception.ProductServiceException;
+import com.dailycodebuffer.productservice.mapper.ReservationMapper;
+import com.dailycodebuffer.productservice.model.ErrorResponse;
+import com.dailycodebuffer.productservice.model.ReservationRequest;
+import com.dailycodebuffer.productservice.model.ReservationResponse;
+import com.dailycodebuffer.productservice.model.ReservationResult;
+import com.dailycodebuffer.productservice.repository.ReservationRepository;
+import lombok.extern.log4j.Log4j2;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PostConstruct;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.DelayQueue;
+import java.util.concurrent.Delayed;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static com.dailycodebuffer.productservice.entity.Reservation.*;
+
+/**
+ * Holds stock for an order until its payment is known. Reserving takes the quantity off the
+ * product straight away; releasing or letting the reservation expire gives it back.
+ *
+ * <p>Expiry is driven by an in-memory {@link DelayQueue}, loaded on startup with every RESERVED
+ * row of RESERVATION_DETAILS and fed with the reservations this instance commits afterwards.
+ * Reservations committed later by another instance that went away are picked up by a periodic
+ * query on the (STATUS, EXPIRES_AT) index.
+ */
+@Service
+@Log4j2
+public class ReservationServiceImpl implements ReservationService {
+
+    @Autowired
+    private ReservationRepository reservationRepository;
+
+    @Autowired
+    private ProductService productService;
+
+    @Autowired
+    private ReservationMapper reservationMapper;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Value("${product.reservation.default-ttl:5m}")
+    private Duration defaultTtl;
+
+    @Value("${product.reservation.max-ttl:1h}")
+    private Duration maxTtl;
+
+    @Value("${product.reservation.orphan-grace:1m}")
+    private Duration orphanGrace;
+
+    @Value("${product.reservation.max-batch-size:1000}")
+    private int maxBatchSize;
+
+    // Confirmed and released reservations are not removed, they are skipped when they come due.
+    private final DelayQueue<Hold> holds = new DelayQueue<>();
+
+    @PostConstruct
+    public void loadHolds() {
+        List<Reservation> reservations = reservationRepository.findByStatus(RESERVED);
+        reservations.forEach(reservation -> holds.add(new Hold(reservation.getId(), reservation.getExpiresAt())));
+        log.info("Tracking expiry of {} reservations", reservations.size());
+    }
+
+    @Override
+    @Transactional
+    public ReservationResponse reserve(ReservationRequest reservationRequest) {
+        log.info("Reserving quantity:{} for product id:{}", reservationRequest.getQuantity(), reservationRequest.getProductId());
+        Duration ttl = ttl(reservationRequest.getTtlSeconds());
+
+        productService.reduceQuantity(reservationRequest.getProductId(), reservationRequest.getQuantity());
+        Reservation reservation = Reservation.builder()
+                .productId(reservationRequest.getProductId())
+                .quantity(reservationRequest.getQuantity())
+                .status(RESERVED)
+                .expiresAt(Instant.now().plus(ttl))
+                .build();
+        reservationRepository.save(reservation);
+        track(List.of(reservation));
+
+        log.info("Reservation created with id:{}", reservation.getId());
+        return reservationMapper.toReservationResponse(reservation);
+    }
+
+    /**
+     * Reserves every line on its own, in one transaction: a line that cannot be reserved gets
+     * the error it failed with and leaves the other lines reserved. The reservations are inserted
+     * together and the results come back in request order.
+     */
+    @Override
+    @Transactional
+    public List<ReservationResult> reserveAll(List<ReservationRequest> reservationRequests) {
+        if (reservationRequests.size() > maxBatchSize) {
+            throw new ProductServiceException("At most " + maxBatchSize + " lines can be reserved at once!",
+                    "BATCH_TOO_LARGE", 400);
+        }
+        log.info("Reserving {} order lines", reservationRequests.size());
+        Instant now = Instant.now();
+        Reservation[] reservations = new Reservation[reservationRequests.size()];
+        ReservationResult[] results = new ReservationResult[reservationRequests.size()];
+
+        // Reserving in product id order makes concurrent batches take the row locks in the same order.
+        List<Integer> lines = IntStream.range(0, reservationRequests.size()).boxed()
+                .sorted(Comparator.comparingLong(line -> reservationRequests.get(line).getProductId()))
+                .collect(Collectors.toList());
+        for (int line : lines) {
+            ReservationRequest reservationRequest = reservationRequests.get(line);
+            try {
+                Duration ttl = ttl(reservationRequest.getTtlSeconds());
+                productService.reduceQuantity(reservationRequest.getProductId(), reservationRequest.getQuantity());
+                reservations[line] = Reservation.builder()
+                        .productId(reservationRequest.getProductId())
+                        .quantity(reservationRequest.getQuantity())
+                        .status(RESERVED)
+                        .expiresAt(now.plus(ttl))
+                        .build();
+            } catch (ProductServiceException e) {
+                results[line] = ReservationResult.builder()
+                        .error(new ErrorResponse(e.getMessage(), e.getErrorCode()))
+                        .build();
+            }
+        }
+
+        List<Reservation> reserved = Arrays.stream(reservations).filter(Objects::nonNull).collect(Collectors.toList());
+        reservationRepository.saveAll(reserved);
+        track(reserved);
+        for (int line = 0; line < reservations.length; line++) {
+            Reservation reservation = reservations[line];
+            if (reservation != null) {
+                results[line] = ReservationResult.builder()
+                        .reservation(reservationMapper.toReservationResponse(reservation))
+                        .build();
+            }
+        }
+
+        log.info("Reserved {} of {} order lines", reserved.size(), reservationRequests.size());
+        return Arrays.asList(results);
+    }
+
+    @Override
+    @Transactional
+    public void confirm(long reservationId) {
+        log.info("Confirming reservation with id:{}", reservationId);
+        if (reservationRepository.updateStatus(reservationId, RESERVED, CONFIRMED) == 0) {
+            ProductServiceException exception = notReserved(reservationId);
+            // Orders may confirm again when they retry after a lost response.
+            if (!"RESERVATION_CONFIRMED".equals(exception.getErrorCode())) {
+                throw exception;
+            }
+        }
+    }
+
+    @Override
+    @Transactional
+    public void release(long reservationId) {
+        log.info("Releasing reservation with id:{}", reservationId);
+        if (!giveBack(reservationId, RELEASED)) {
+            ProductServiceException exception = notReserved(reservationId);
+            // Releasing twice, or after the reservation expired, has nothing left to give back.
+            if (exception.getStatus() != 409 || CONFIRMED.equals(statusOf(reservationId))) {
+                throw exception;
+            }
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${product.reservation.sweep-interval-ms:1000}")
+    public void expireReservations() {
+        int expired = 0;
+        for (Hold hold = holds.poll(); hold != null; hold = holds.poll()) {
+            if (expire(hold.reservationId)) {
+                expired++;
+            }
+        }
+        if (expired > 0) {
+            log.info("Expired {} reservations", expired);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${product.reservation.orphan-check-interval-ms:60000}")
+    public void expireOrphanedReservations() {
+        Instant cutoff = Instant.now().minus(orphanGrace);
+        for (Reservation reservation : reservationRepository.findByStatusAndExpiresAtBefore(RESERVED, cutoff)) {
+            if (expire(reservation.getId())) {
+                log.info("Expired orphaned reservation with id:{}", reservation.getId());
+            }
+        }
+    }
+
+    // A reservation that is rolled back never comes due, so it is only tracked once committed.
+    private void track(List<Reservation> reservations) {
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                reservations.forEach(reservation -> holds.add(new Hold(reservation.getId(), reservation.getExpiresAt())));
+            }
+        });
+    }
+
+    private boolean expire(long reservationId) {
+        try {
+            return Boolean.TRUE.equals(transactionTemplate.execute(status -> giveBack(reservationId, EXPIRED)));
+        } catch (RuntimeException e) {
+            log.error("Failed to expire reservation with id:{}, retrying on next sweep", reservationId, e);
+            holds.add(new Hold(reservationId, Instant.now()));
+            return false;
+        }
+    }
+
+    private boolean giveBack(long reservationId, String status) {
+        if (reservationRepository.updateStatus(reservationId, RESERVED, status) == 0) {
+            return false;
+        }
+        Reservation reservation = reservationRepository.findById(reservationId).orElseThrow();
+        productService.restoreQuantity(reservation.getProductId(), reservation.getQuantity());
+        return true;
+    }
+
+    private Duration ttl(Long ttlSeconds) {
+        if (ttlSeconds == null) {
+            return defaultTtl;
+        }
+        if (ttlSeconds <= 0) {
+            throw new ProductServiceException("Reservation time to live must be positive!", "INVALID_TTL", 400);
+        }
+        Duration ttl = Duration.ofSeconds(ttlSeconds);
+        return ttl.compareTo(maxTtl) > 0 ? maxTtl : ttl;
+    }
+
+    private String statusOf(long reservationId) {
+        return reservationRepository.findById(reservationId).map(Reservation::getStatus).orElse(null);
+    }
+
+    private ProductServiceException notReserved(long reservationId) {
+        String status = statusOf(reservationId);
+        if (status == null) {
+            return new ProductServiceException("Reservation with given id not found!", "RESERVATION_NOT_FOUND", 404);
+        }
+        return new ProductServiceException("Reservation is already " + status.toLowerCase() + "!",
+                "RESERVATION_" + status, 409);
+    }
+
+    static class Hold implements Delayed {
+
+        private final long reservationId;
+        private final long expiresAtMillis;
+
+        Hold(long reservationId, Instant expiresAt) {
+            this.reservationId = reservationId;
+            this.expiresAtMillis = expiresAt.toEpochMilli();
+        }
+
+        @Override
+        public long getDelay(TimeUnit unit) {
+            return unit.convert(expiresAtMillis - System.currentTimeMillis(), TimeUnit.MILLISECONDS);
+        }
+
+        @Override
+        public int compareTo(Delayed other) {
+            return Long.compare(expiresAtMillis, ((Hold) other).expiresAtMillis);
+        }
+    }
+}
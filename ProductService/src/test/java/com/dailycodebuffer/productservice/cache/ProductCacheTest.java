@@ -0,0 +1,182 @@
+package com.dailycodebuffer.productservice.cache;
+
+import com.dailycodebuffer.productservice.entity.Product;
+import com.dailycodebuffer.productservice.exception.ProductServiceException;
+import com.dailycodebuffer.productservice.mapper.ProductMapperImpl;
+import com.dailycodebuffer.productservice.model.ProductResponse;
+import com.dailycodebuffer.productservice.model.ReduceQuantityRequest;
+import com.dailycodebuffer.productservice.repository.ProductRepository;
+import com.dailycodebuffer.productservice.service.ProductService;
+import com.dailycodebuffer.productservice.service.ProductServiceImpl;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.fppt.jedismock.RedisServer;
+import io.lettuce.core.ClientOptions;
+import io.lettuce.core.protocol.ProtocolVersion;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.ImportAutoConfiguration;
+import org.springframework.boot.autoconfigure.data.redis.LettuceClientConfigurationBuilderCustomizer;
+import org.springframework.boot.autoconfigure.data.redis.RedisAutoConfiguration;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.IOException;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DataJpaTest(showSql = false, properties = "product.cache.enabled=true")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@ImportAutoConfiguration(RedisAutoConfiguration.class)
+@Import({ProductServiceImpl.class, ProductMapperImpl.class, ProductCacheConfig.class, ProductCacheTest.RedisStandInConfig.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class ProductCacheTest {
+
+    private static final RedisServer redisServer = startRedis();
+
+    @Autowired
+    private ProductService productService;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private TwoLevelCache productsCache;
+
+    @Autowired
+    private RedisTemplate<String, Object> productCacheRedisTemplate;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @TestConfiguration
+    static class RedisStandInConfig {
+
+        @Bean
+        public MeterRegistry meterRegistry() {
+            return new SimpleMeterRegistry();
+        }
+
+        // The in-memory Redis server only speaks RESP2.
+        @Bean
+        public LettuceClientConfigurationBuilderCustomizer resp2ClientCustomizer() {
+            return builder -> builder.clientOptions(ClientOptions.builder()
+                    .protocolVersion(ProtocolVersion.RESP2)
+                    .build());
+        }
+    }
+
+    @DynamicPropertySource
+    static void redisProperties(DynamicPropertyRegistry registry) {
+        registry.add("spring.redis.host", () -> "localhost");
+        registry.add("spring.redis.port", redisServer::getBindPort);
+    }
+
+    @AfterAll
+    static void stopRedis() throws IOException {
+        redisServer.stop();
+    }
+
+    @Test
+    @DisplayName("Get Product - Served from L1, then from L2 once L1 is dropped")
+    void testGetProductFromCache() {
+        // Mocking
+        long productId = saveProduct(10);
+        ProductResponse expected = productService.getProductById(productId);
+        productRepository.deleteById(productId);
+
+        // Actual/Assertion
+        double localHits = localHits();
+        assertEquals(expected, productService.getProductById(productId));
+        assertEquals(localHits + 1, localHits());
+
+        double remoteHits = remoteHits();
+        productsCache.evictLocal(String.valueOf(productId));
+        assertEquals(expected, productService.getProductById(productId));
+        assertEquals(remoteHits + 1, remoteHits());
+    }
+
+    @Test
+    @DisplayName("Reduce Quantity - Evicts the cached product")
+    void testReduceQuantityEvictsProduct() {
+        long productId = saveProduct(10);
+        assertEquals(10, productService.getProductById(productId).getQuantity());
+
+        productService.reduceQuantity(productId, 4);
+        assertEquals(6, productService.getProductById(productId).getQuantity());
+
+        productService.reduceQuantities(List.of(new ReduceQuantityRequest(productId, 1)));
+        assertEquals(5, productService.getProductById(productId).getQuantity());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    @DisplayName("Invalidation - Eviction published by another instance drops the L1 entry")
+    void testInvalidationFromAnotherInstance() throws InterruptedException {
+        long productId = saveProduct(10);
+        productService.getProductById(productId);
+        Cache<String, Object> localCache = (Cache<String, Object>) productsCache.getNativeCache();
+        assertNotNull(localCache.getIfPresent(String.valueOf(productId)));
+
+        productCacheRedisTemplate.convertAndSend(productsCache.getInvalidationChannel(), String.valueOf(productId));
+
+        for (int i = 0; i < 50 && localCache.getIfPresent(String.valueOf(productId)) != null; i++) {
+            Thread.sleep(100);
+        }
+        assertNull(localCache.getIfPresent(String.valueOf(productId)));
+    }
+
+    @Test
+    @DisplayName("Get Product - Not found is not cached")
+    void testGetProductNotFound() {
+        ProductServiceException exception = assertThrows(ProductServiceException.class,
+                () -> productService.getProductById(-1));
+        assertEquals("PRODUCT_NOT_FOUND", exception.getErrorCode());
+        assertNull(productsCache.get(-1L));
+    }
+
+    private double localHits() {
+        return meterRegistry.get("cache.gets")
+                .tag("cache", ProductCacheConfig.PRODUCTS)
+                .tag("result", "hit")
+                .functionCounter()
+                .count();
+    }
+
+    private double remoteHits() {
+        return meterRegistry.get("cache.remote.gets")
+                .tag("cache", ProductCacheConfig.PRODUCTS)
+                .tag("result", "hit")
+                .counter()
+                .count();
+    }
+
+    private long saveProduct(long quantity) {
+        return productRepository.save(Product.builder()
+                        .productName("iPhone")
+                        .price(1000)
+                        .quantity(quantity)
+                        .build())
+                .getProductId();
+    }
+
+    private static RedisServer startRedis() {
+        try {
+            return RedisServer.newRedisServer().start();
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
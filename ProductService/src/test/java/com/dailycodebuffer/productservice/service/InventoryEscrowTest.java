@@ -0,0 +1,253 @@
+package com.dailycodebuffer.productservice.service;
+
+import com.dailycodebuffer.productservice.entity.Product;
+import com.dailycodebuffer.productservice.exception.ProductServiceException;
+import com.dailycodebuffer.productservice.mapper.ProductMapperImpl;
+import com.dailycodebuffer.productservice.model.ReduceQuantityRequest;
+import com.dailycodebuffer.productservice.repository.ProductRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import lombok.extern.log4j.Log4j2;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongPredicate;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DataJpaTest(showSql = false, properties = {
+        "product.inventory.escrow.enabled=true",
+        "product.inventory.escrow.flush-interval-ms=3600000",
+        "logging.level.com.dailycodebuffer.productservice.service.ProductServiceImpl=WARN"
+})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import({ProductServiceImpl.class, ProductMapperImpl.class, InventoryEscrow.class, InventoryEscrowTest.MetricsConfig.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@Log4j2
+class InventoryEscrowTest {
+
+    private static final int BUYERS = 64;
+    private static final long STOCK = 20_000;
+    private static final long ATTEMPTS = 30_000;
+
+    @Autowired
+    private ProductService productService;
+
+    @Autowired
+    private InventoryEscrow inventoryEscrow;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @TestConfiguration
+    static class MetricsConfig {
+
+        @Bean
+        public MeterRegistry meterRegistry() {
+            return new SimpleMeterRegistry();
+        }
+    }
+
+    @Test
+    @DisplayName("Escrow - Concurrent buyers never oversell and flush reconciles the table")
+    void testReduceQuantityConcurrently() throws Exception {
+        // Mocking
+        long productId = saveProduct(STOCK);
+        double rejectionsBefore = meterRegistry.get("product.escrow.rejections").functionCounter().count();
+
+        // Actual
+        long sold = buy(productId, quantity -> {
+            try {
+                productService.reduceQuantity(productId, quantity);
+                return true;
+            } catch (ProductServiceException e) {
+                return false;
+            }
+        });
+
+        // Assertion
+        assertEquals(STOCK, sold);
+        assertEquals(0, productService.getProductById(productId).getQuantity());
+        assertEquals(STOCK, productRepository.findById(productId).orElseThrow().getQuantity());
+
+        inventoryEscrow.reconcile();
+        assertEquals(0, productRepository.findById(productId).orElseThrow().getQuantity());
+        assertEquals(ATTEMPTS - STOCK, meterRegistry.get("product.escrow.rejections")
+                .functionCounter()
+                .count() - rejectionsBefore);
+    }
+
+    @Test
+    @DisplayName("Escrow - Reduction larger than any stripe is gathered from neighbours")
+    void testReduceQuantityAcrossStripes() {
+        long productId = saveProduct(80);
+
+        productService.reduceQuantity(productId, 75);
+        ProductServiceException exception = assertThrows(ProductServiceException.class,
+                () -> productService.reduceQuantity(productId, 6));
+        assertEquals("INSUFFICIENT_QUANTITY", exception.getErrorCode());
+        productService.reduceQuantity(productId, 5);
+
+        inventoryEscrow.flush();
+        assertEquals(0, productRepository.findById(productId).orElseThrow().getQuantity());
+    }
+
+    @Test
+    @DisplayName("Escrow - Batch gives back reduced lines when one cannot be reduced")
+    void testReduceQuantitiesAllOrNothing() {
+        long firstProductId = saveProduct(10);
+        long secondProductId = saveProduct(1);
+
+        assertThrows(ProductServiceException.class, () -> productService.reduceQuantities(List.of(
+                new ReduceQuantityRequest(firstProductId, 5),
+                new ReduceQuantityRequest(secondProductId, 2))));
+        assertEquals(10, inventoryEscrow.available(firstProductId).orElseThrow());
+        assertEquals(1, inventoryEscrow.available(secondProductId).orElseThrow());
+    }
+
+    @Test
+    @DisplayName("Escrow - Stock taken or given back in a rolled back transaction is left as it was")
+    void testRollbackLeavesEscrowUnchanged() {
+        // Mocking
+        long productId = saveProduct(10);
+        productService.reduceQuantity(productId, 4);
+
+        // Actual
+        transactionTemplate.executeWithoutResult(status -> {
+            productService.reduceQuantity(productId, 3);
+            productService.restoreQuantity(productId, 4);
+            assertEquals(3, inventoryEscrow.available(productId).orElseThrow());
+            status.setRollbackOnly();
+        });
+
+        // Assertion
+        assertEquals(6, inventoryEscrow.available(productId).orElseThrow());
+        transactionTemplate.executeWithoutResult(status -> productService.restoreQuantity(productId, 4));
+        assertEquals(10, inventoryEscrow.available(productId).orElseThrow());
+    }
+
+    @Test
+    @DisplayName("Escrow - Idle stock is dropped once flushed and loaded again when needed")
+    void testIdleStockEvicted() {
+        // Mocking
+        long productId = saveProduct(10);
+        productService.reduceQuantity(productId, 4);
+
+        // Actual/Assertion
+        inventoryEscrow.flush();
+        assertEquals(6, inventoryEscrow.available(productId).orElseThrow());
+        inventoryEscrow.flush();
+        assertTrue(inventoryEscrow.available(productId).isEmpty());
+        assertEquals(6, productRepository.findById(productId).orElseThrow().getQuantity());
+        assertEquals(6, productService.getProductById(productId).getQuantity());
+
+        productService.reduceQuantity(productId, 5);
+        assertEquals(1, inventoryEscrow.available(productId).orElseThrow());
+        inventoryEscrow.flush();
+        assertEquals(1, productRepository.findById(productId).orElseThrow().getQuantity());
+    }
+
+    @Test
+    @DisplayName("Escrow - Product Not Found")
+    void testReduceQuantityProductNotFound() {
+        ProductServiceException exception = assertThrows(ProductServiceException.class,
+                () -> productService.reduceQuantity(-1, 1));
+        assertEquals("PRODUCT_NOT_FOUND", exception.getErrorCode());
+    }
+
+    @Test
+    @DisplayName("Escrow - Stripes must be at least one")
+    void testInvalidStripes() {
+        InventoryEscrow escrow = new InventoryEscrow();
+        ReflectionTestUtils.setField(escrow, "stripes", 0);
+
+        IllegalStateException exception = assertThrows(IllegalStateException.class, escrow::init);
+        assertTrue(exception.getMessage().contains("product.inventory.escrow.stripes"));
+    }
+
+    @Test
+    @Tag("benchmark")
+    @DisplayName("Escrow - Throughput compared with the repository update path")
+    void benchmarkEscrowAgainstRepository() throws Exception {
+        long escrowProductId = saveProduct(STOCK);
+        long repositoryProductId = saveProduct(STOCK);
+        inventoryEscrow.tryReduce(escrowProductId, 0);
+
+        long startedAt = System.nanoTime();
+        buy(escrowProductId, quantity -> inventoryEscrow.tryReduce(escrowProductId, quantity));
+        long escrowNanos = System.nanoTime() - startedAt;
+
+        startedAt = System.nanoTime();
+        buy(repositoryProductId, quantity -> productRepository.reduceQuantity(repositoryProductId, quantity) == 1);
+        long repositoryNanos = System.nanoTime() - startedAt;
+
+        log.info("{} buyers, {} reductions: escrow {} ops/s, repository {} ops/s", BUYERS, ATTEMPTS,
+                ATTEMPTS * 1_000_000_000L / escrowNanos, ATTEMPTS * 1_000_000_000L / repositoryNanos);
+
+        inventoryEscrow.flush();
+        assertEquals(0, productRepository.findById(escrowProductId).orElseThrow().getQuantity());
+        assertEquals(0, productRepository.findById(repositoryProductId).orElseThrow().getQuantity());
+    }
+
+    private long buy(long productId, LongPredicate reduce) throws Exception {
+        AtomicLong sold = new AtomicLong();
+        AtomicLong remainingAttempts = new AtomicLong(ATTEMPTS);
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(BUYERS);
+
+        List<Future<?>> futures = new ArrayList<>();
+        for (int i = 0; i < BUYERS; i++) {
+            futures.add(executor.submit(() -> {
+                start.await();
+                while (remainingAttempts.getAndDecrement() > 0) {
+                    if (reduce.test(1)) {
+                        sold.incrementAndGet();
+                    }
+                }
+                return null;
+            }));
+        }
+
+        start.countDown();
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+        return sold.get();
+    }
+
+    private long saveProduct(long quantity) {
+        return productRepository.save(Product.builder()
+                        .productName("iPhone")
+                        .price(1000)
+                        .quantity(quantity)
+                        .build())
+                .getProductId();
+    }
+}
@@ -0,0 +1,157 @@
+package com.dailycodebuffer.productservice.service;
+
+import com.dailycodebuffer.productservice.entity.Product;
+import com.dailycodebuffer.productservice.mapper.ProductMapperImpl;
+import com.dailycodebuffer.productservice.model.ProductImportEvent;
+import com.dailycodebuffer.productservice.repository.ProductRepository;
+import lombok.extern.log4j.Log4j2;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.ImportAutoConfiguration;
+import org.springframework.boot.autoconfigure.jackson.JacksonAutoConfiguration;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.MediaType;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.io.SequenceInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DataJpaTest(showSql = false, properties = "product.import.batch-size=500")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@ImportAutoConfiguration(JacksonAutoConfiguration.class)
+@Import({ProductImporter.class, ProductMapperImpl.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@Log4j2
+class ProductImporterTest {
+
+    private static final int ROWS = 100_000;
+
+    @Autowired
+    private ProductImporter productImporter;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Test
+    @DisplayName("Import Products - CSV rows are validated one by one")
+    void testImportCsvReportsRowErrors() throws Exception {
+        // Mocking
+        String prefix = UUID.randomUUID().toString();
+        String csv = "name,price,quantity\n"
+                + prefix + " iPhone,1000,10\n"
+                + ",1000,10\n"
+                + prefix + " Pixel,cheap,10\n"
+                + prefix + " Galaxy,900,-1\n"
+                + "\"" + prefix + " Watch, Series 8\",400,3\n";
+        List<ProductImportEvent> events = new ArrayList<>();
+
+        // Actual
+        ProductImportEvent result = productImporter.importProducts(stream(csv), ProductImporter.TEXT_CSV, events::add);
+
+        // Assertion
+        assertEquals(ProductImportEvent.Type.COMPLETED, result.getType());
+        assertEquals(5, result.getRowsRead());
+        assertEquals(2, result.getImported());
+        assertEquals(3, result.getRejected());
+        assertEquals(List.of(2L, 3L, 4L), events.stream()
+                .filter(event -> event.getType() == ProductImportEvent.Type.ERROR)
+                .map(ProductImportEvent::getRow)
+                .collect(Collectors.toList()));
+        assertEquals(List.of(prefix + " Watch, Series 8", prefix + " iPhone"), productRepository.findAll().stream()
+                .map(Product::getProductName)
+                .filter(name -> name.startsWith(prefix))
+                .sorted()
+                .collect(Collectors.toList()));
+    }
+
+    @Test
+    @DisplayName("Import Products - NDJSON rows are saved in JDBC batches")
+    void testImportNdjsonInBatches() throws Exception {
+        // Mocking
+        long before = productRepository.count();
+        List<ProductImportEvent> events = new ArrayList<>();
+
+        // Actual
+        ProductImportEvent result = productImporter.importProducts(ndjsonRows(1_200), MediaType.APPLICATION_NDJSON, events::add);
+
+        // Assertion
+        assertEquals(ProductImportEvent.Type.COMPLETED, result.getType());
+        assertEquals(1_200, result.getImported());
+        assertEquals(2, events.stream()
+                .filter(event -> event.getType() == ProductImportEvent.Type.PROGRESS)
+                .count());
+        assertEquals(before + 1_200, productRepository.count());
+    }
+
+    @Test
+    @Tag("benchmark")
+    @DisplayName("Import Products - 100k NDJSON rows in JDBC batches")
+    void benchmarkImportNdjson() throws Exception {
+        // Mocking
+        long before = productRepository.count();
+        List<ProductImportEvent> events = new ArrayList<>();
+
+        // Actual
+        long startedAt = System.nanoTime();
+        ProductImportEvent result = productImporter.importProducts(ndjsonRows(ROWS), MediaType.APPLICATION_NDJSON, events::add);
+        long elapsedMillis = (System.nanoTime() - startedAt) / 1_000_000;
+        log.info("Imported {} rows in {} ms ({} rows/s)", ROWS, elapsedMillis, ROWS * 1000L / Math.max(1, elapsedMillis));
+
+        // Assertion
+        assertEquals(ProductImportEvent.Type.COMPLETED, result.getType());
+        assertEquals(ROWS, result.getImported());
+        assertEquals(0, result.getRejected());
+        assertEquals(ROWS / 500, events.stream()
+                .filter(event -> event.getType() == ProductImportEvent.Type.PROGRESS)
+                .count());
+        assertEquals(before + ROWS, productRepository.count());
+    }
+
+    @Test
+    @DisplayName("Import Products - Malformed NDJSON fails after the rows before it")
+    void testImportMalformedNdjson() throws Exception {
+        String ndjson = "{\"name\":\"iPhone\",\"price\":1000,\"quantity\":10}\n{\"name\":\"Pixel\",";
+
+        ProductImportEvent result = productImporter.importProducts(stream(ndjson), MediaType.APPLICATION_NDJSON, event -> {
+        });
+
+        assertEquals(ProductImportEvent.Type.FAILED, result.getType());
+        assertEquals(1, result.getImported());
+    }
+
+    private static InputStream stream(String body) {
+        return new ByteArrayInputStream(body.getBytes(StandardCharsets.UTF_8));
+    }
+
+    // Generates the body lazily, as a supplier's upload would arrive.
+    private static InputStream ndjsonRows(int rows) {
+        return new SequenceInputStream(new Enumeration<>() {
+            private int row;
+
+            @Override
+            public boolean hasMoreElements() {
+                return row < rows;
+            }
+
+            @Override
+            public InputStream nextElement() {
+                row++;
+                return stream("{\"name\":\"Product " + row + "\",\"price\":" + row % 1000 + ",\"quantity\":10}\n");
+            }
+        });
+    }
+}
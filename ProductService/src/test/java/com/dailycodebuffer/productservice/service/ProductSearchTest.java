@@ -0,0 +1,280 @@
+package com.dailycodebuffer.productservice.service;
+
+import com.dailycodebuffer.productservice.entity.Product;
+import com.dailycodebuffer.productservice.exception.ProductServiceException;
+import com.dailycodebuffer.productservice.mapper.ProductMapperImpl;
+import com.dailycodebuffer.productservice.model.ProductPage;
+import com.dailycodebuffer.productservice.model.ProductResponse;
+import com.dailycodebuffer.productservice.model.ProductSearchRequest;
+import com.dailycodebuffer.productservice.repository.ProductRepository;
+import lombok.extern.log4j.Log4j2;
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+import java.util.function.IntFunction;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DataJpaTest(showSql = false, properties = {
+        "logging.level.com.dailycodebuffer.productservice.service.ProductServiceImpl=WARN",
+        "spring.jpa.properties.hibernate.session_factory.statement_inspector="
+                + "com.dailycodebuffer.productservice.service.ProductSearchTest$LastQuery"
+})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import({ProductServiceImpl.class, ProductMapperImpl.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@Log4j2
+class ProductSearchTest {
+
+    private static final long BENCHMARK_FIRST_ID = 100_000_001;
+    private static final int BENCHMARK_ROWS = 1_000_000;
+    private static final int PAGE_SIZE = 100;
+    private static final int WARMUP_SAMPLES = 20;
+    private static final int SAMPLES = 25;
+
+    @Autowired
+    private ProductService productService;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    // Keeps the last query Hibernate sent, so that the test can ask H2 how it runs it.
+    public static class LastQuery implements StatementInspector {
+
+        private static volatile String sql;
+
+        @Override
+        public String inspect(String sql) {
+            if (sql.startsWith("select")) {
+                LastQuery.sql = sql;
+            }
+            return sql;
+        }
+    }
+
+    @Test
+    @DisplayName("Search Products - Pages through name prefix matches without gaps")
+    void testSearchProductsPagesByNamePrefix() {
+        // Mocking
+        String prefix = uniquePrefix();
+        List<Long> productIds = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            productIds.add(saveProduct(prefix + i, 100, 1));
+        }
+        saveProduct("Other " + prefix, 100, 1);
+
+        // Actual
+        List<Long> found = new ArrayList<>();
+        ProductSearchRequest request = ProductSearchRequest.builder().namePrefix(prefix).size(2).build();
+        int pages = 0;
+        ProductPage page;
+        do {
+            page = productService.searchProducts(request);
+            page.getProducts().forEach(product -> found.add(product.getProductId()));
+            request.setAfterProductName(page.getNextAfterProductName());
+            request.setAfterProductId(page.getNextAfterProductId() == null ? 0 : page.getNextAfterProductId());
+            pages++;
+        } while (page.getNextAfterProductId() != null);
+
+        // Assertion
+        assertEquals(productIds, found);
+        assertEquals(3, pages);
+    }
+
+    @Test
+    @DisplayName("Search Products - Price range and in stock filters")
+    void testSearchProductsFilters() {
+        // Mocking
+        String prefix = uniquePrefix();
+        saveProduct(prefix + "cheap", 10, 5);
+        long inRange = saveProduct(prefix + "mid", 50, 5);
+        long outOfStock = saveProduct(prefix + "mid sold out", 60, 0);
+        saveProduct(prefix + "expensive", 500, 5);
+
+        // Actual
+        ProductPage all = productService.searchProducts(ProductSearchRequest.builder()
+                .namePrefix(prefix).minPrice(20L).maxPrice(100L).build());
+        ProductPage inStock = productService.searchProducts(ProductSearchRequest.builder()
+                .namePrefix(prefix).minPrice(20L).maxPrice(100L).inStock(true).build());
+
+        // Assertion
+        assertEquals(List.of(inRange, outOfStock), ids(all));
+        assertNull(all.getNextAfterProductId());
+        assertEquals(List.of(inRange), ids(inStock));
+    }
+
+    @Test
+    @DisplayName("Search Products - LIKE wildcards in the prefix are matched literally")
+    void testSearchProductsEscapesWildcards() {
+        String prefix = uniquePrefix();
+        long literal = saveProduct(prefix + "100%_off!", 10, 1);
+        saveProduct(prefix + "100 and more", 10, 1);
+
+        ProductPage page = productService.searchProducts(ProductSearchRequest.builder()
+                .namePrefix(prefix + "100%_").build());
+
+        assertEquals(List.of(literal), ids(page));
+    }
+
+    @Test
+    @DisplayName("Search Products - Pages through a price range cheapest first without gaps")
+    void testSearchProductsPagesByPrice() {
+        // Mocking
+        String prefix = uniquePrefix();
+        long third = saveProduct(prefix + "c", 987_654_322, 1);
+        long first = saveProduct(prefix + "a", 987_654_321, 1);
+        long second = saveProduct(prefix + "b", 987_654_321, 1);
+
+        // Actual
+        ProductSearchRequest request = ProductSearchRequest.builder()
+                .minPrice(987_654_321L).maxPrice(987_654_322L).size(2).build();
+        ProductPage firstPage = productService.searchProducts(request);
+        request.setAfterPrice(firstPage.getNextAfterPrice());
+        request.setAfterProductId(firstPage.getNextAfterProductId());
+        ProductPage secondPage = productService.searchProducts(request);
+
+        // Assertion
+        assertEquals(List.of(first, second), ids(firstPage));
+        assertEquals(List.of(third), ids(secondPage));
+        assertNull(secondPage.getNextAfterProductId());
+    }
+
+    @Test
+    @DisplayName("Search Products - Next page of a name search needs the name it ended at")
+    void testSearchProductsIncompletePage() {
+        ProductServiceException exception = assertThrows(ProductServiceException.class,
+                () -> productService.searchProducts(ProductSearchRequest.builder()
+                        .namePrefix("iPhone").afterProductId(1).build()));
+
+        assertEquals("INVALID_PAGE", exception.getErrorCode());
+        assertEquals(400, exception.getStatus());
+    }
+
+    @Test
+    @DisplayName("Search Products - Name and price searches seek the index of their filter")
+    void testSearchProductsUsesIndexes() {
+        productService.searchProducts(ProductSearchRequest.builder()
+                .namePrefix("iPhone").afterProductName("iPhone 12").afterProductId(1).build());
+        assertTrue(plan().contains("IDX_PRODUCT_NAME: PRODUCT_NAME >="), plan());
+
+        productService.searchProducts(ProductSearchRequest.builder().minPrice(100L).maxPrice(200L).build());
+        assertTrue(plan().contains("IDX_PRODUCT_PRICE: PRICE >="), plan());
+
+        productService.searchProducts(ProductSearchRequest.builder().afterProductId(1).build());
+        assertTrue(plan().contains("PRIMARY_KEY"), plan());
+        assertTrue(plan().contains("index sorted"), plan());
+    }
+
+    @Test
+    @Tag("benchmark")
+    @DisplayName("Search Products - Keyset and offset pages deep into 1M rows, by id, name prefix and price range")
+    void benchmarkKeysetAgainstOffset() {
+        jdbcTemplate.update("insert into product_details (product_id, product_name, price, quantity) "
+                        + "select x, concat('Bulk ', x), mod(x, 1000), mod(x, 7) from system_range(?, ?)",
+                BENCHMARK_FIRST_ID, BENCHMARK_FIRST_ID + BENCHMARK_ROWS - 1);
+        try {
+            compare("All products", ProductSearchRequest::new, "1 = 1", "product_id");
+            compare("Name prefix", () -> ProductSearchRequest.builder().namePrefix("Bulk 1005").build(),
+                    "product_name like 'Bulk 1005%'", "product_name, product_id");
+            compare("Price range", () -> ProductSearchRequest.builder().minPrice(100L).maxPrice(199L).build(),
+                    "price between 100 and 199", "price, product_id");
+        } finally {
+            jdbcTemplate.update("delete from product_details where product_id >= ?", BENCHMARK_FIRST_ID);
+        }
+    }
+
+    // Reads the first page and pages near the end of the matches of a search, seeking and skipping to them.
+    private void compare(String search, Supplier<ProductSearchRequest> request, String where, String orderBy) {
+        String sql = "select product_id, product_name, price, quantity from product_details where " + where
+                + " order by " + orderBy + " limit ? offset ?";
+        int matches = jdbcTemplate.queryForObject("select count(*) from product_details where " + where, Integer.class);
+        int deepOffset = matches - PAGE_SIZE - WARMUP_SAMPLES - SAMPLES;
+        // The row before each sampled page, so that each sample reads a slightly different page and
+        // no query result can be reused.
+        List<Product> afterProducts = jdbcTemplate.query(sql, (resultSet, row) -> Product.builder()
+                        .productId(resultSet.getLong("product_id"))
+                        .productName(resultSet.getString("product_name"))
+                        .price(resultSet.getLong("price"))
+                        .build(),
+                WARMUP_SAMPLES + SAMPLES, deepOffset - 1);
+        IntFunction<List<Long>> keysetPage = sample -> {
+            ProductSearchRequest page = request.get();
+            page.setSize(PAGE_SIZE);
+            page.setAfterProductName(afterProducts.get(sample).getProductName());
+            page.setAfterPrice(afterProducts.get(sample).getPrice());
+            page.setAfterProductId(afterProducts.get(sample).getProductId());
+            return ids(productService.searchProducts(page));
+        };
+        IntFunction<List<Long>> offsetPage = sample -> jdbcTemplate.query(sql,
+                (resultSet, row) -> resultSet.getLong("product_id"), PAGE_SIZE, deepOffset + sample);
+
+        long keysetFirst = medianNanos(sample -> {
+            ProductSearchRequest page = request.get();
+            page.setSize(PAGE_SIZE - sample % 2);
+            return productService.searchProducts(page);
+        });
+        long keysetLast = medianNanos(keysetPage);
+        long offsetFirst = medianNanos(sample -> jdbcTemplate.query(sql,
+                (resultSet, row) -> resultSet.getLong("product_id"), PAGE_SIZE - sample % 2, 0));
+        long offsetLast = medianNanos(offsetPage);
+
+        log.info("{}: {} matches, {} per page: keyset page 1 {} us, page at {} {} us; offset page 1 {} us, page at {} {} us",
+                search, matches, PAGE_SIZE, keysetFirst / 1000, deepOffset, keysetLast / 1000,
+                offsetFirst / 1000, deepOffset, offsetLast / 1000);
+
+        assertEquals(offsetPage.apply(0), keysetPage.apply(0));
+    }
+
+    private String plan() {
+        return jdbcTemplate.queryForObject("explain " + LastQuery.sql, String.class);
+    }
+
+    private static long medianNanos(IntFunction<?> query) {
+        for (int i = 0; i < WARMUP_SAMPLES; i++) {
+            query.apply(SAMPLES + i);
+        }
+        long[] samples = new long[SAMPLES];
+        for (int i = 0; i < SAMPLES; i++) {
+            long startedAt = System.nanoTime();
+            query.apply(i);
+            samples[i] = System.nanoTime() - startedAt;
+        }
+        Arrays.sort(samples);
+        return samples[SAMPLES / 2];
+    }
+
+    private static List<Long> ids(ProductPage page) {
+        return page.getProducts().stream().map(ProductResponse::getProductId).collect(Collectors.toList());
+    }
+
+    private static String uniquePrefix() {
+        return UUID.randomUUID() + " ";
+    }
+
+    private long saveProduct(String productName, long price, long quantity) {
+        return productRepository.save(Product.builder()
+                        .productName(productName)
+                        .price(price)
+                        .quantity(quantity)
+                        .build())
+                .getProductId();
+    }
+}
@@ -0,0 +1,187 @@
+package com.dailycodebuffer.productservice.service;
+
+import com.dailycodebuffer.productservice.entity.Product;
+import com.dailycodebuffer.productservice.exception.ProductServiceException;
+import com.dailycodebuffer.productservice.mapper.ProductMapperImpl;
+import com.dailycodebuffer.productservice.model.ReduceQuantityRequest;
+import com.dailycodebuffer.productservice.repository.ProductRepository;
+import lombok.extern.log4j.Log4j2;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DataJpaTest(showSql = false, properties = "logging.level.com.dailycodebuffer.productservice.service.ProductServiceImpl=WARN")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import({ProductServiceImpl.class, ProductMapperImpl.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@Log4j2
+class ProductServiceImplConcurrencyTest {
+
+    private static final long STOCK = 2_000;
+    private static final long ATTEMPTS = 3_000;
+
+    @Autowired
+    private ProductService productService;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @ParameterizedTest(name = "{0} concurrent buyers")
+    @ValueSource(ints = {1, 8, 64})
+    @DisplayName("Reduce Quantity - Concurrent buyers never oversell")
+    void testReduceQuantityConcurrently(int buyers) throws Exception {
+        // Mocking
+        long productId = saveProduct(STOCK);
+        AtomicLong sold = new AtomicLong();
+        AtomicLong rejected = new AtomicLong();
+        AtomicLong remainingAttempts = new AtomicLong(ATTEMPTS);
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(buyers);
+
+        List<Future<?>> futures = new ArrayList<>();
+        for (int i = 0; i < buyers; i++) {
+            futures.add(executor.submit(() -> {
+                start.await();
+                while (remainingAttempts.getAndDecrement() > 0) {
+                    try {
+                        productService.reduceQuantity(productId, 1);
+                        sold.incrementAndGet();
+                    } catch (ProductServiceException e) {
+                        assertEquals("INSUFFICIENT_QUANTITY", e.getErrorCode());
+                        rejected.incrementAndGet();
+                    }
+                }
+                return null;
+            }));
+        }
+
+        // Actual
+        long startedAt = System.nanoTime();
+        start.countDown();
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        long elapsedNanos = System.nanoTime() - startedAt;
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+
+        log.info("{} buyers: {} reductions in {} ms ({} ops/s)", buyers, ATTEMPTS,
+                TimeUnit.NANOSECONDS.toMillis(elapsedNanos), ATTEMPTS * 1_000_000_000L / elapsedNanos);
+
+        // Assertion
+        assertEquals(STOCK, sold.get());
+        assertEquals(ATTEMPTS - STOCK, rejected.get());
+        assertEquals(0, productRepository.findById(productId).orElseThrow().getQuantity());
+    }
+
+    @Test
+    @DisplayName("Reduce Quantity - Product Not Found")
+    void testReduceQuantityProductNotFound() {
+        ProductServiceException exception = assertThrows(ProductServiceException.class,
+                () -> productService.reduceQuantity(-1, 1));
+        assertEquals("PRODUCT_NOT_FOUND", exception.getErrorCode());
+        assertEquals(404, exception.getStatus());
+    }
+
+    @Test
+    @DisplayName("Reduce Quantity - Insufficient Quantity")
+    void testReduceQuantityInsufficientQuantity() {
+        long productId = saveProduct(5);
+
+        ProductServiceException exception = assertThrows(ProductServiceException.class,
+                () -> productService.reduceQuantity(productId, 6));
+        assertEquals("INSUFFICIENT_QUANTITY", exception.getErrorCode());
+        assertEquals(400, exception.getStatus());
+        assertEquals(5, productRepository.findById(productId).orElseThrow().getQuantity());
+    }
+
+    @Test
+    @DisplayName("Reduce Quantities - Rolls back every line when one cannot be reduced")
+    void testReduceQuantitiesAllOrNothing() {
+        long firstProductId = saveProduct(10);
+        long secondProductId = saveProduct(1);
+
+        ProductServiceException exception = assertThrows(ProductServiceException.class,
+                () -> productService.reduceQuantities(List.of(
+                        new ReduceQuantityRequest(firstProductId, 5),
+                        new ReduceQuantityRequest(secondProductId, 2))));
+        assertEquals("INSUFFICIENT_QUANTITY", exception.getErrorCode());
+        assertEquals(10, productRepository.findById(firstProductId).orElseThrow().getQuantity());
+        assertEquals(1, productRepository.findById(secondProductId).orElseThrow().getQuantity());
+    }
+
+    @Test
+    @DisplayName("Reduce Quantities - Merges lines of the same product")
+    void testReduceQuantitiesMergesLines() {
+        long productId = saveProduct(3);
+
+        assertThrows(ProductServiceException.class, () -> productService.reduceQuantities(List.of(
+                new ReduceQuantityRequest(productId, 2),
+                new ReduceQuantityRequest(productId, 2))));
+        productService.reduceQuantities(List.of(
+                new ReduceQuantityRequest(productId, 1),
+                new ReduceQuantityRequest(productId, 2)));
+        assertEquals(0, productRepository.findById(productId).orElseThrow().getQuantity());
+    }
+
+    @Test
+    @DisplayName("Reduce Quantities - Batches listing products in opposite order do not deadlock")
+    void testReduceQuantitiesConcurrently() throws Exception {
+        long firstProductId = saveProduct(STOCK);
+        long secondProductId = saveProduct(STOCK);
+        int buyers = 16;
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(buyers);
+
+        List<Future<?>> futures = new ArrayList<>();
+        for (int i = 0; i < buyers; i++) {
+            List<ReduceQuantityRequest> batch = i % 2 == 0
+                    ? List.of(new ReduceQuantityRequest(firstProductId, 1), new ReduceQuantityRequest(secondProductId, 1))
+                    : List.of(new ReduceQuantityRequest(secondProductId, 1), new ReduceQuantityRequest(firstProductId, 1));
+            futures.add(executor.submit(() -> {
+                start.await();
+                for (int j = 0; j < STOCK / buyers; j++) {
+                    productService.reduceQuantities(batch);
+                }
+                return null;
+            }));
+        }
+
+        start.countDown();
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+
+        assertEquals(STOCK % buyers, productRepository.findById(firstProductId).orElseThrow().getQuantity());
+        assertEquals(STOCK % buyers, productRepository.findById(secondProductId).orElseThrow().getQuantity());
+    }
+
+    private long saveProduct(long quantity) {
+        return productRepository.save(Product.builder()
+                        .productName("iPhone")
+                        .price(1000)
+                        .quantity(quantity)
+                        .build())
+                .getProductId();
+    }
+}
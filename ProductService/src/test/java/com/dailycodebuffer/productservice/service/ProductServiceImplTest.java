@@ -0,0 +1,100 @@
+package com.dailycodebuffer.productservice.service;
+
+import com.dailycodebuffer.productservice.entity.Product;
+import com.dailycodebuffer.productservice.mapper.ProductMapperImpl;
+import com.dailycodebuffer.productservice.model.ProductResponse;
+import com.dailycodebuffer.productservice.repository.ProductRepository;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DataJpaTest(showSql = false)
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import({ProductServiceImpl.class, ProductMapperImpl.class})
+class ProductServiceImplTest {
+
+    @Autowired
+    private ProductService productService;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Test
+    @DisplayName("Get Products By Ids - Success spanning several chunks")
+    void testGetProductsByIdsSuccess() {
+        // Mocking
+        List<Long> productIds = new ArrayList<>();
+        for (int i = 0; i < ProductServiceImpl.LOOKUP_CHUNK_SIZE + 10; i++) {
+            productIds.add(saveProduct("Product " + i));
+        }
+        List<Long> requestedIds = new ArrayList<>(productIds);
+        requestedIds.add(productIds.get(0));
+        requestedIds.add(-1L);
+
+        // Actual
+        List<ProductResponse> productResponses;
+        try (Stream<ProductResponse> products = productService.getProductsByIds(requestedIds)) {
+            productResponses = products.collect(Collectors.toList());
+        }
+
+        // Assertion
+        assertEquals(productIds.size(), productResponses.size());
+        assertEquals(Set.copyOf(productIds), productResponses.stream()
+                .map(ProductResponse::getProductId)
+                .collect(Collectors.toSet()));
+        ProductResponse first = productResponses.stream()
+                .filter(p -> p.getProductId() == productIds.get(0))
+                .findFirst()
+                .orElseThrow();
+        assertEquals("Product 0", first.getProductName());
+        assertEquals(10, first.getQuantity());
+    }
+
+    @Test
+    @DisplayName("Get Products By Ids - No products found")
+    void testGetProductsByIdsNotFound() {
+        assertEquals(0, productService.getProductsByIds(List.of(-1L, -2L)).count());
+        assertEquals(0, productService.getProductsByIds(List.of()).count());
+    }
+
+    @Test
+    @DisplayName("Export Products - Rows after the last seen id in id order")
+    void testExportProductsResumesAfterProductId() {
+        // Mocking
+        List<Long> productIds = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            productIds.add(saveProduct("Product " + i));
+        }
+
+        // Actual
+        List<ProductResponse> exported = new ArrayList<>();
+        productService.exportProducts(productIds.get(1), exported::add);
+
+        // Assertion
+        assertEquals(productIds.subList(2, 5), exported.stream()
+                .map(ProductResponse::getProductId)
+                .collect(Collectors.toList()));
+        assertEquals("Product 2", exported.get(0).getProductName());
+        assertEquals(10, exported.get(0).getQuantity());
+    }
+
+    private long saveProduct(String productName) {
+        return productRepository.saveAndFlush(Product.builder()
+                        .productName(productName)
+                        .price(1000)
+                        .quantity(10)
+                        .build())
+                .getProductId();
+    }
+}
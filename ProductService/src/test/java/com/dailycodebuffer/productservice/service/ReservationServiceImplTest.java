@@ -0,0 +1,261 @@
+package com.dailycodebuffer.productservice.service;
+
+import com.dailycodebuffer.productservice.entity.Product;
+import com.dailycodebuffer.productservice.entity.Reservation;
+import com.dailycodebuffer.productservice.exception.ProductServiceException;
+import com.dailycodebuffer.productservice.mapper.ProductMapperImpl;
+import com.dailycodebuffer.productservice.mapper.ReservationMapperImpl;
+import com.dailycodebuffer.productservice.model.ReservationRequest;
+import com.dailycodebuffer.productservice.model.ReservationResponse;
+import com.dailycodebuffer.productservice.model.ReservationResult;
+import com.dailycodebuffer.productservice.repository.ProductRepository;
+import com.dailycodebuffer.productservice.repository.ReservationRepository;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DataJpaTest(showSql = false, properties = {
+        "product.reservation.sweep-interval-ms=3600000",
+        "product.reservation.orphan-check-interval-ms=3600000",
+        "product.reservation.orphan-grace=0s",
+        "logging.level.com.dailycodebuffer.productservice.service=WARN"
+})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import({ReservationServiceImpl.class, ProductServiceImpl.class, ProductMapperImpl.class, ReservationMapperImpl.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class ReservationServiceImplTest {
+
+    private static final int RESERVATIONS = 200;
+
+    @Autowired
+    private ReservationServiceImpl reservationService;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private ReservationRepository reservationRepository;
+
+    @Test
+    @DisplayName("Reserve - Confirm keeps the quantity taken")
+    void testReserveAndConfirm() {
+        // Mocking
+        long productId = saveProduct(10);
+
+        // Actual
+        ReservationResponse reservation = reservationService.reserve(request(productId, 3, null));
+        reservationService.confirm(reservation.getReservationId());
+        reservationService.confirm(reservation.getReservationId());
+
+        // Assertion
+        assertEquals(Reservation.RESERVED, reservation.getStatus());
+        assertNotNull(reservation.getExpiresAt());
+        assertEquals(7, quantityOf(productId));
+        assertEquals(Reservation.CONFIRMED, statusOf(reservation.getReservationId()));
+
+        ProductServiceException exception = assertThrows(ProductServiceException.class,
+                () -> reservationService.release(reservation.getReservationId()));
+        assertEquals("RESERVATION_CONFIRMED", exception.getErrorCode());
+        assertEquals(7, quantityOf(productId));
+    }
+
+    @Test
+    @DisplayName("Reserve - Release gives the quantity back once")
+    void testReserveAndRelease() {
+        long productId = saveProduct(10);
+
+        ReservationResponse reservation = reservationService.reserve(request(productId, 4, null));
+        reservationService.release(reservation.getReservationId());
+        reservationService.release(reservation.getReservationId());
+
+        assertEquals(10, quantityOf(productId));
+        assertEquals(Reservation.RELEASED, statusOf(reservation.getReservationId()));
+        ProductServiceException exception = assertThrows(ProductServiceException.class,
+                () -> reservationService.confirm(reservation.getReservationId()));
+        assertEquals("RESERVATION_RELEASED", exception.getErrorCode());
+    }
+
+    @Test
+    @DisplayName("Reserve - Expired reservations give the quantity back")
+    void testExpiredReservationsAreReclaimed() throws Exception {
+        // Mocking
+        long productId = saveProduct(10);
+        ReservationResponse expiring = reservationService.reserve(request(productId, 2, 1L));
+        ReservationResponse lasting = reservationService.reserve(request(productId, 3, 60L));
+
+        // Actual
+        reservationService.expireReservations();
+        assertEquals(5, quantityOf(productId));
+        TimeUnit.MILLISECONDS.sleep(1100);
+        reservationService.expireReservations();
+
+        // Assertion
+        assertEquals(7, quantityOf(productId));
+        assertEquals(Reservation.EXPIRED, statusOf(expiring.getReservationId()));
+        assertEquals(Reservation.RESERVED, statusOf(lasting.getReservationId()));
+        ProductServiceException exception = assertThrows(ProductServiceException.class,
+                () -> reservationService.confirm(expiring.getReservationId()));
+        assertEquals("RESERVATION_EXPIRED", exception.getErrorCode());
+    }
+
+    @Test
+    @DisplayName("Reserve - Reservations left by another instance are expired")
+    void testOrphanedReservationsAreReclaimed() throws Exception {
+        long productId = saveProduct(10);
+        Reservation orphan = reservationRepository.save(Reservation.builder()
+                .productId(productId)
+                .quantity(4)
+                .status(Reservation.RESERVED)
+                .expiresAt(Instant.now().minusSeconds(1))
+                .build());
+
+        reservationService.expireOrphanedReservations();
+
+        assertEquals(14, quantityOf(productId));
+        assertEquals(Reservation.EXPIRED, statusOf(orphan.getId()));
+    }
+
+    @Test
+    @DisplayName("Reserve - Confirm racing expiry gives every reservation exactly one outcome")
+    void testConfirmRacingExpiry() throws Exception {
+        // Mocking
+        long productId = saveProduct(RESERVATIONS);
+        List<Long> reservationIds = new ArrayList<>();
+        for (int i = 0; i < RESERVATIONS; i++) {
+            reservationIds.add(reservationService.reserve(request(productId, 1, 1L)).getReservationId());
+        }
+        assertEquals(0, quantityOf(productId));
+        TimeUnit.MILLISECONDS.sleep(1100);
+
+        // Actual
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<Boolean>> confirms = new ArrayList<>();
+        for (long reservationId : reservationIds) {
+            confirms.add(executor.submit(() -> {
+                start.await();
+                try {
+                    reservationService.confirm(reservationId);
+                    return true;
+                } catch (ProductServiceException e) {
+                    return false;
+                }
+            }));
+        }
+        Future<?> sweep = executor.submit(() -> {
+            start.await();
+            reservationService.expireReservations();
+            return null;
+        });
+        start.countDown();
+        long confirmed = 0;
+        for (Future<Boolean> confirm : confirms) {
+            confirmed += confirm.get() ? 1 : 0;
+        }
+        sweep.get();
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+
+        // Assertion
+        long expired = reservationIds.stream()
+                .filter(reservationId -> Reservation.EXPIRED.equals(statusOf(reservationId)))
+                .count();
+        assertEquals(RESERVATIONS, confirmed + expired);
+        assertEquals(expired, quantityOf(productId));
+    }
+
+    @Test
+    @DisplayName("Reserve - Insufficient quantity leaves no reservation behind")
+    void testReserveInsufficientQuantity() {
+        long productId = saveProduct(1);
+        long before = reservationRepository.count();
+
+        ProductServiceException exception = assertThrows(ProductServiceException.class,
+                () -> reservationService.reserve(request(productId, 2, null)));
+
+        assertEquals("INSUFFICIENT_QUANTITY", exception.getErrorCode());
+        assertEquals(before, reservationRepository.count());
+        assertEquals(1, quantityOf(productId));
+    }
+
+    @Test
+    @DisplayName("Reserve All - Lines that cannot be reserved leave the others reserved")
+    void testReserveAll() {
+        // Mocking
+        long productId = saveProduct(10);
+        long otherProductId = saveProduct(1);
+        long before = reservationRepository.count();
+
+        // Actual
+        List<ReservationResult> results = reservationService.reserveAll(List.of(
+                request(otherProductId, 1, null),
+                request(productId, 3, null),
+                request(otherProductId, 1, null),
+                request(-1, 1, null),
+                request(productId, 2, 0L)));
+
+        // Assertion
+        assertEquals(5, results.size());
+        assertEquals(otherProductId, results.get(0).getReservation().getProductId());
+        assertEquals(3, results.get(1).getReservation().getQuantity());
+        assertEquals("INSUFFICIENT_QUANTITY", results.get(2).getError().getErrorCode());
+        assertEquals("PRODUCT_NOT_FOUND", results.get(3).getError().getErrorCode());
+        assertEquals("INVALID_TTL", results.get(4).getError().getErrorCode());
+        assertNull(results.get(0).getError());
+        assertNull(results.get(2).getReservation());
+        assertEquals(Reservation.RESERVED, statusOf(results.get(1).getReservation().getReservationId()));
+        assertEquals(before + 2, reservationRepository.count());
+        assertEquals(7, quantityOf(productId));
+        assertEquals(0, quantityOf(otherProductId));
+    }
+
+    @Test
+    @DisplayName("Reserve - Reservation Not Found")
+    void testConfirmReservationNotFound() {
+        ProductServiceException exception = assertThrows(ProductServiceException.class,
+                () -> reservationService.confirm(-1));
+        assertEquals("RESERVATION_NOT_FOUND", exception.getErrorCode());
+        assertEquals(404, exception.getStatus());
+    }
+
+    private static ReservationRequest request(long productId, long quantity, Long ttlSeconds) {
+        return ReservationRequest.builder()
+                .productId(productId)
+                .quantity(quantity)
+                .ttlSeconds(ttlSeconds)
+                .build();
+    }
+
+    private long quantityOf(long productId) {
+        return productRepository.findById(productId).orElseThrow().getQuantity();
+    }
+
+    private String statusOf(long reservationId) {
+        return reservationRepository.findById(reservationId).orElseThrow().getStatus();
+    }
+
+    private long saveProduct(long quantity) {
+        return productRepository.save(Product.builder()
+                        .productName("iPhone")
+                        .price(1000)
+                        .quantity(quantity)
+                        .build())
+                .getProductId();
+    }
+}